@@ -0,0 +1,103 @@
+package com.example.weatherapp.benchmarks;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.services.WeatherService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The memory taken per entry by the weather cache on the heap and off the heap. Each operation fills the cache of
+ * a new WeatherService by requesting the weather of distinct zip codes from the stubbed WeatherAPI, as cache misses
+ * fill it in production, and reports the heap and direct memory retained per entry, including the few objects of the
+ * service itself, as auxiliary counters.
+ * Heap usage is measured after full collections, so the figures are approximate; the time of an operation
+ * includes those collections and is only indicative.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CacheMemoryBenchmark {
+
+    // Entries put in the cache, which holds as many.
+    private static final int ENTRIES = 200_000;
+
+    // Smallest forecast response the WeatherService accepts, with both conditions.
+    private static final String FORECAST = """
+        {"current":{"last_updated_epoch":1609459200,"temp_c":11.2,"temp_f":52.2,
+         "condition":{"text":"Partly cloudy","icon":"//cdn.weatherapi.com/weather/64x64/day/116.png","code":1003}},
+         "forecast":{"forecastday":[{"day":{"maxtemp_c":12.5,"maxtemp_f":54.5,"mintemp_c":9.2,"mintemp_f":48.6,
+         "condition":{"text":"Patchy rain nearby","icon":"//cdn.weatherapi.com/weather/64x64/day/176.png","code":1063}}}]}}""";
+
+    @Param({"heap", "off-heap"})
+    private String backend;
+
+    private final Upstreams.StubRestTemplate restTemplate = new Upstreams.StubRestTemplate(null, FORECAST);
+
+    /**
+     * Memory retained by the cache, reported next to the time of the operation.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+
+        // Heap retained per entry, in bytes.
+        public long heapBytesPerEntry;
+
+        // Direct memory retained per entry, in bytes.
+        public long directBytesPerEntry;
+
+        // Entries held by the cache once filled, fewer than requested if some were evicted.
+        public long entries;
+    }
+
+    @Benchmark
+    public WeatherService fill(Footprint footprint) throws IOException {
+        // The off-heap cache allocates its direct memory when created, so the service is created after measuring.
+        long heapBefore = usedHeap();
+        long directBefore = usedDirectMemory();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WeatherService weatherService = new WeatherService(Upstreams.configuration(ENTRIES, backend), restTemplate,
+            WebClient.create(), Upstreams.OBJECT_MAPPER, meterRegistry);
+        try {
+            for (int i = 0; i < ENTRIES; i++) {
+                weatherService.getWeather(new Location("Address " + i, String.valueOf(100000 + i), 37.0 + i * 1e-6, -122.0));
+            }
+            footprint.heapBytesPerEntry = (usedHeap() - heapBefore) / ENTRIES;
+            footprint.directBytesPerEntry = (usedDirectMemory() - directBefore) / ENTRIES;
+            footprint.entries = (long) meterRegistry.get("cache.size").tag("cache", "weatherCache").gauge().value();
+            return weatherService;
+        } finally {
+            weatherService.shutdown();
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirectMemory() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(pool -> "direct".equals(pool.getName()))
+            .mapToLong(BufferPoolMXBean::getMemoryUsed)
+            .sum();
+    }
+}
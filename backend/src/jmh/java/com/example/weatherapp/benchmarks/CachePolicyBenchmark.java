@@ -0,0 +1,144 @@
+package com.example.weatherapp.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.example.weatherapp.cache.Caches;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Replays a skewed trace of cache keys against a Guava cache with LRU eviction, as the services used before,
+ * and against the Caffeine W-TinyLFU cache they use now, both holding a tenth of the key space.
+ * The trace follows a Zipf distribution, with the hottest keys spread over the key space, and is the same
+ * for every run. Each access is a lookup followed by a put on a miss, from eight threads.
+ * Next to the throughput, the hits and misses of the run are reported as "hits" and "misses".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class CachePolicyBenchmark {
+
+    // Distinct keys in the trace, as geohash cells of precision 5.
+    private static final int KEYS = 100_000;
+
+    // Accesses in the trace.
+    private static final int TRACE_LENGTH = 1 << 20;
+
+    // Zipf exponent of the key popularity.
+    private static final double SKEW = 0.9;
+
+    // Entries held by either cache.
+    private static final int MAXIMUM_SIZE = KEYS / 10;
+
+    private static final String VALUE = "weather";
+
+    @Param({"guava", "caffeine"})
+    private String policy;
+
+    private String[] trace;
+
+    private com.google.common.cache.Cache<String, String> guavaCache;
+
+    private Cache<String, String> caffeineCache;
+
+    /**
+     * Position of a thread in the trace, and its hits and misses.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Replay {
+
+        public long hits;
+
+        public long misses;
+
+        private int position;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            // Threads start at different points of the trace, as concurrent requests would.
+            position = (int) (Thread.currentThread().threadId() * 7919) & (TRACE_LENGTH - 1);
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        trace = zipfTrace(new Random(42));
+        if ("guava".equals(policy)) {
+            guavaCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .maximumSize(MAXIMUM_SIZE)
+                .recordStats()
+                .build();
+        } else {
+            caffeineCache = Caches.build(TimeUnit.HOURS.toSeconds(1), MAXIMUM_SIZE, 0, (String key, String value) -> 1);
+        }
+    }
+
+    @Benchmark
+    public String access(Replay replay) {
+        String key = trace[replay.position];
+        replay.position = (replay.position + 1) & (TRACE_LENGTH - 1);
+
+        String value = guavaCache != null ? guavaCache.getIfPresent(key) : caffeineCache.getIfPresent(key);
+        if (value != null) {
+            replay.hits++;
+            return value;
+        }
+        replay.misses++;
+        if (guavaCache != null) {
+            guavaCache.put(key, VALUE);
+        } else {
+            caffeineCache.put(key, VALUE);
+        }
+        return VALUE;
+    }
+
+    /**
+     * Draws the trace from a Zipf distribution over the keys, ranking them in a shuffled order
+     * so that popularity is unrelated to the key itself.
+     */
+    private static String[] zipfTrace(Random random) {
+        double[] cumulative = new double[KEYS];
+        double total = 0;
+        for (int rank = 0; rank < KEYS; rank++) {
+            total += 1 / Math.pow(rank + 1, SKEW);
+            cumulative[rank] = total;
+        }
+
+        String[] keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "geo:" + Integer.toString(i, 32);
+        }
+        for (int i = KEYS - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String swapped = keys[i];
+            keys[i] = keys[j];
+            keys[j] = swapped;
+        }
+
+        String[] trace = new String[TRACE_LENGTH];
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            trace[i] = keys[rank >= 0 ? rank : Math.min(KEYS - 1, -rank - 1)];
+        }
+        return trace;
+    }
+}
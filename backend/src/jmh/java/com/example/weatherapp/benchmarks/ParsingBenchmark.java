@@ -0,0 +1,118 @@
+package com.example.weatherapp.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.parsers.GeocodeParser;
+import com.example.weatherapp.parsers.WeatherApiParser;
+import com.example.weatherapp.services.AddressService;
+import com.example.weatherapp.services.WeatherService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Parsing of the recorded geocode and forecast payloads, as done by AddressService and WeatherService
+ * on every cache miss. The tree reads are the baseline the streaming parsers replaced; the stream reads parse
+ * the bytes of the payload as the services parse the response body. The service benchmarks make the whole
+ * uncached call through the services, with the RestTemplate stubbed, so that their parse is measured in place.
+ * Compare the allocation per operation reported by the gc profiler along with the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParsingBenchmark {
+
+    private static final byte[] GEOCODE_BYTES = Upstreams.GEOCODE_PAYLOAD.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] FORECAST_BYTES = Upstreams.FORECAST_PAYLOAD.getBytes(StandardCharsets.UTF_8);
+
+    private static final Location LOCATION = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private AddressService addressService;
+
+    private WeatherService weatherService;
+
+    @Setup
+    public void setup() throws IOException {
+        // Both readers must see the same values before comparing their cost.
+        WeatherApiParser.ParsedForecast forecast = WeatherApiParser.parseForecast(new ByteArrayInputStream(FORECAST_BYTES));
+        JsonNode root = objectMapper.readTree(Upstreams.FORECAST_PAYLOAD);
+        if (forecast.forecast() == null
+                || forecast.current().getTemperatureC() != root.path("current").path("temp_c").asDouble()
+                || forecast.forecast().getMaxTempC()
+                    != root.path("forecast").path("forecastday").get(0).path("day").path("maxtemp_c").asDouble()) {
+            throw new IllegalStateException("The streaming forecast parser disagrees with the tree read");
+        }
+        GeocodeParser.ParsedGeocode geocode = GeocodeParser.parse(new ByteArrayInputStream(GEOCODE_BYTES));
+        if (!"OK".equals(geocode.status()) || !"94043".equals(geocode.zipCode())) {
+            throw new IllegalStateException("The streaming geocode parser disagrees with the recorded payload");
+        }
+
+        Upstreams.StubRestTemplate restTemplate =
+            new Upstreams.StubRestTemplate(Upstreams.GEOCODE_PAYLOAD, Upstreams.FORECAST_PAYLOAD);
+        addressService = Upstreams.addressService(restTemplate);
+        weatherService = Upstreams.weatherService(restTemplate);
+    }
+
+    @TearDown
+    public void tearDown() {
+        weatherService.shutdown();
+    }
+
+    @Benchmark
+    public GeocodeParser.ParsedGeocode geocodeStreaming() throws IOException {
+        return GeocodeParser.parse(Upstreams.GEOCODE_PAYLOAD);
+    }
+
+    @Benchmark
+    public GeocodeParser.ParsedGeocode geocodeStreamingFromBytes() throws IOException {
+        return GeocodeParser.parse(new ByteArrayInputStream(GEOCODE_BYTES));
+    }
+
+    @Benchmark
+    public JsonNode geocodeTree() throws IOException {
+        return objectMapper.readTree(Upstreams.GEOCODE_PAYLOAD);
+    }
+
+    @Benchmark
+    public Location geocodeService() throws IOException {
+        addressService.clearCache();
+        return addressService.getLocation("1600 Amphitheatre Parkway");
+    }
+
+    @Benchmark
+    public WeatherApiParser.ParsedForecast forecastStreaming() throws IOException {
+        return WeatherApiParser.parseForecast(Upstreams.FORECAST_PAYLOAD);
+    }
+
+    @Benchmark
+    public WeatherApiParser.ParsedForecast forecastStreamingFromBytes() throws IOException {
+        return WeatherApiParser.parseForecast(new ByteArrayInputStream(FORECAST_BYTES));
+    }
+
+    @Benchmark
+    public JsonNode forecastTree() throws IOException {
+        return objectMapper.readTree(Upstreams.FORECAST_PAYLOAD);
+    }
+
+    @Benchmark
+    public Weather forecastService() throws IOException {
+        weatherService.clearCache();
+        return weatherService.getWeather(LOCATION);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.weatherapp.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.parsers.WeatherApiParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * Serialization of a /weather response body in each format the endpoint negotiates, with and without gzip.
+ * The weather data is the recorded forecast payload as parsed by WeatherService.
+ * Next to the time per response, the size of the serialized response is reported as "payloadBytes".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectMapper objectMapper;
+
+    private Weather weather;
+
+    /**
+     * Size of the last serialized response, reported as a secondary result.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+
+        public long payloadBytes;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = switch (format) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> new JsonMapper();
+        };
+        WeatherApiParser.ParsedForecast parsed = WeatherApiParser.parseForecast(Upstreams.FORECAST_PAYLOAD);
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        weather = new Weather(location, parsed.current(), parsed.forecast(), true);
+    }
+
+    @Benchmark
+    public byte[] serialize(PayloadSize size) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        OutputStream out = gzip ? new GZIPOutputStream(buffer) : buffer;
+        // Closes the stream, which finishes the gzip trailer.
+        objectMapper.writeValue(out, weather);
+        byte[] payload = buffer.toByteArray();
+        size.payloadBytes = payload.length;
+        return payload;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.weatherapp.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server standing in for the Geocoding API and the WeatherAPI, answering every request with
+ * the recorded payloads after a fixed delay. Calls to it go through the whole HTTP client of the application:
+ * connection pool, deadline and in-flight limit. Every geocoding response carries a new zip code, so that
+ * the weather of each geocoded address is fetched rather than served from the cache or a joined call.
+ */
+final class StubUpstreamServer implements AutoCloseable {
+
+    static final String GEOCODE_PATH = "/maps/api/geocode/json";
+
+    static final String FORECAST_PATH = "/v1/forecast.json";
+
+    // Zip code of the recorded geocoding response, replaced in every response.
+    private static final String RECORDED_ZIP_CODE = "94043";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicInteger geocodeCalls = new AtomicInteger();
+
+    private final long delayInMillis;
+
+    private final byte[] forecastResponse = Upstreams.FORECAST_PAYLOAD.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Starts the server on a free port.
+     *
+     * @param delayInMillis The time taken by every call.
+     * @throws IOException If the server cannot be started.
+     */
+    StubUpstreamServer(long delayInMillis) throws IOException {
+        this.delayInMillis = delayInMillis;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.createContext(GEOCODE_PATH, exchange -> respond(exchange, geocodeResponse()));
+        server.createContext(FORECAST_PATH, exchange -> respond(exchange, forecastResponse));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Returns the URL of a path on the server.
+     */
+    String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    private byte[] geocodeResponse() {
+        String zipCode = String.format("%05d", geocodeCalls.incrementAndGet() % 100000);
+        return Upstreams.GEOCODE_PAYLOAD.replace(RECORDED_ZIP_CODE, zipCode).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) throws IOException {
+        try (exchange) {
+            Thread.sleep(delayInMillis);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.weatherapp.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.weatherapp.WeatherappApplication;
+import com.example.weatherapp.services.AddressService;
+import com.example.weatherapp.services.WeatherService;
+
+/**
+ * A burst of concurrent GET /weather requests for distinct addresses, under platform servlet threads and
+ * under virtual threads. The application runs with its real services and HTTP client against a
+ * StubUpstreamServer, so every request geocodes and fetches the forecast over HTTP, within the in-flight limit
+ * and the connection pool. With a limit below the 200 servlet threads, the limit bounds both thread modes;
+ * above, platform threads run out first. Each operation is one whole burst.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadModeBenchmark {
+
+    // Concurrent clients hitting /weather in a burst.
+    private static final int CONCURRENT_REQUESTS = 2000;
+
+    // Simulated latency of each upstream call.
+    private static final long UPSTREAM_DELAY_MILLIS = 50;
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    // Upstream calls allowed in flight at the same time, see InFlightLimitInterceptor.
+    @Param({"100", "400"})
+    private int maxInFlightRequests;
+
+    private StubUpstreamServer upstreams;
+
+    private ConfigurableApplicationContext context;
+
+    private ExecutorService clientExecutor;
+
+    private HttpClient client;
+
+    private String url;
+
+    // Numbers the addresses, so that no request is answered from the caches of an earlier one.
+    private final AtomicLong addresses = new AtomicLong();
+
+    @Setup
+    public void setup() throws IOException {
+        upstreams = new StubUpstreamServer(UPSTREAM_DELAY_MILLIS);
+        context = SpringApplication.run(WeatherappApplication.class,
+            "--server.port=0",
+            "--spring.threads.virtual.enabled=" + virtualThreads,
+            "--address-service.api-key=benchmark",
+            "--weather-service.api-key=benchmark",
+            "--address-service.base-url=" + upstreams.url(StubUpstreamServer.GEOCODE_PATH),
+            "--weather-service.base-url=" + upstreams.url(StubUpstreamServer.FORECAST_PATH),
+            // Weather is cached by zip code, which the stub makes distinct for every address.
+            "--weather-service.geohash-precision=0",
+            "--http-client.upstream-hosts=localhost",
+            "--http-client.max-in-flight-requests=" + maxInFlightRequests,
+            "--http-client.max-connections-per-host=" + maxInFlightRequests,
+            "--http-client.max-connections-total=" + maxInFlightRequests,
+            // Requests queue for a call or a connection for the length of a burst rather than fail.
+            "--http-client.in-flight-acquire-timeout-ms=30000",
+            "--http-client.connection-request-timeout-ms=30000");
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        url = "http://localhost:" + port + "/weather?address=";
+
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(clientExecutor)
+            .build();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCaches() {
+        context.getBean(AddressService.class).clearCache();
+        context.getBean(WeatherService.class).clearCache();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        clientExecutor.close();
+        context.close();
+        upstreams.close();
+    }
+
+    @Benchmark
+    public int burst() throws Exception {
+        List<CompletableFuture<Integer>> responses = new ArrayList<>(CONCURRENT_REQUESTS);
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(
+                URI.create(url + addresses.incrementAndGet() + "+Main+Street")).build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode));
+        }
+        for (CompletableFuture<Integer> response : responses) {
+            int status = response.get();
+            if (status != 200) {
+                throw new IllegalStateException("Unexpected status " + status);
+            }
+        }
+        return responses.size();
+    }
+}
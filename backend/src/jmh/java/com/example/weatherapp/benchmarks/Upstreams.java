@@ -0,0 +1,207 @@
+package com.example.weatherapp.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.services.AddressService;
+import com.example.weatherapp.services.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Shared fixtures for the benchmarks: recorded upstream payloads, a RestTemplate answering with them
+ * without any I/O, and services wired the way the application wires them.
+ */
+final class Upstreams {
+
+    // Recorded Geocoding API response for 1600 Amphitheatre Parkway.
+    static final String GEOCODE_PAYLOAD = readPayload("payloads/geocode.json");
+
+    // Recorded WeatherAPI forecast response, with three days of hourly data.
+    static final String FORECAST_PAYLOAD = readPayload("payloads/forecast.json");
+
+    // Weather cache size of the benchmarks that do not set one, large enough for every location they request.
+    private static final long WEATHER_CACHE_MAXIMUM_SIZE = 100000;
+
+    // ObjectMapper built as Spring Boot builds the one of the application.
+    static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private Upstreams() {
+    }
+
+    /**
+     * Creates an AddressService calling the stubbed Geocoding API.
+     */
+    static AddressService addressService(RestTemplate restTemplate) {
+        return new AddressService(configuration(), restTemplate, WebClient.create(), new SimpleMeterRegistry());
+    }
+
+    /**
+     * Creates a WeatherService calling the stubbed WeatherAPI.
+     */
+    static WeatherService weatherService(RestTemplate restTemplate) {
+        return weatherService(restTemplate, WEATHER_CACHE_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a WeatherService calling the stubbed WeatherAPI, with a weather cache of the given size.
+     */
+    static WeatherService weatherService(RestTemplate restTemplate, long weatherCacheMaximumSize) {
+        return new WeatherService(configuration(weatherCacheMaximumSize), restTemplate, WebClient.create(),
+            OBJECT_MAPPER, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Returns the configuration defaults of application.yaml, with cache entries that outlive a benchmark run.
+     */
+    static AppConfiguration configuration() {
+        return configuration(WEATHER_CACHE_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Returns the configuration defaults of application.yaml, with a weather cache of the given size.
+     */
+    static AppConfiguration configuration(long weatherCacheMaximumSize) {
+        return configuration(weatherCacheMaximumSize, "heap");
+    }
+
+    /**
+     * Returns the configuration defaults of application.yaml, with a weather cache of the given size and backend.
+     *
+     * @param weatherCacheMaximumSize The entries held by the weather cache, on the heap or off it.
+     * @param weatherCacheBackend The backend of the weather cache, "heap" or "off-heap".
+     */
+    static AppConfiguration configuration(long weatherCacheMaximumSize, String weatherCacheBackend) {
+        return new AppConfiguration() {
+            @Override
+            public String getAddressServiceApiKey() {
+                return "benchmark";
+            }
+
+            @Override
+            public String getWeatherServiceApiKey() {
+                return "benchmark";
+            }
+
+            @Override
+            public String getAddressServiceBaseUrl() {
+                return "https://maps.googleapis.com/maps/api/geocode/json";
+            }
+
+            @Override
+            public String getWeatherServiceBaseUrl() {
+                return "https://api.weatherapi.com/v1/forecast.json";
+            }
+
+            @Override
+            public int getCacheExpiryInSeconds() {
+                return 3600;
+            }
+
+            @Override
+            public long getWeatherCacheMaximumSize() {
+                return weatherCacheMaximumSize;
+            }
+
+            @Override
+            public String getWeatherCacheBackend() {
+                return weatherCacheBackend;
+            }
+
+            @Override
+            public int getOffHeapCacheCapacity() {
+                return (int) weatherCacheMaximumSize;
+            }
+
+            @Override
+            public int getRefreshThreads() {
+                return 2;
+            }
+
+            @Override
+            public int getRefreshQueueSize() {
+                return 100;
+            }
+
+            @Override
+            public int getGeocodeCacheExpiryInSeconds() {
+                return 3600;
+            }
+
+            @Override
+            public int getGeocodeNegativeCacheExpiryInSeconds() {
+                return 300;
+            }
+
+            @Override
+            public long getGeocodeCacheMaximumSize() {
+                return 10000;
+            }
+
+            @Override
+            public long getGeocodeNegativeCacheMaximumSize() {
+                return 1000;
+            }
+        };
+    }
+
+    /**
+     * RestTemplate answering Geocoding API and WeatherAPI requests with fixed payloads, which the services
+     * parse from the response stream as they do in production.
+     */
+    static final class StubRestTemplate extends RestTemplate {
+
+        private final byte[] geocodeResponse;
+
+        private final byte[] forecastResponse;
+
+        /**
+         * Creates the stub. A null payload is answered with an empty body.
+         */
+        StubRestTemplate(String geocodeResponse, String forecastResponse) {
+            this.geocodeResponse = bytes(geocodeResponse);
+            this.forecastResponse = bytes(forecastResponse);
+        }
+
+        @Override
+        public <T> T execute(String url, HttpMethod method, RequestCallback requestCallback,
+                             ResponseExtractor<T> responseExtractor, Object... uriVariables) {
+            byte[] body = url.contains("/geocode/") ? geocodeResponse : forecastResponse;
+            try (ClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK)) {
+                return responseExtractor.extractData(response);
+            } catch (IOException e) {
+                throw new ResourceAccessException("I/O error: " + e.getMessage(), e);
+            }
+        }
+
+        private static byte[] bytes(String payload) {
+            return payload != null ? payload.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        }
+    }
+
+    private static String readPayload(String name) {
+        try (InputStream in = Upstreams.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing payload " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
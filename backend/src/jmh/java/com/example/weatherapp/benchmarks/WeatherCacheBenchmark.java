@@ -0,0 +1,68 @@
+package com.example.weatherapp.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.WeatherService;
+
+/**
+ * The WeatherService cache under contention from many request threads.
+ * With fewer zip codes than the cache holds, lookups are hits once warmed up and only read the cache;
+ * with more, lookups keep evicting each other and every miss loads and puts a new entry.
+ * The stubbed WeatherAPI answers with a minimal forecast, so that misses mostly measure the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class WeatherCacheBenchmark {
+
+    // Smallest forecast response the WeatherService accepts.
+    private static final String MINIMAL_FORECAST = """
+        {"current":{"temp_c":11.2,"temp_f":52.2},"forecast":{"forecastday":[{"day":{"mintemp_c":9.2}}]}}""";
+
+    // Number of distinct zip codes looked up.
+    @Param({"500", "5000"})
+    private int zipCodes;
+
+    // Maximum number of entries of the WeatherService cache, between the two numbers of zip codes.
+    @Param("1000")
+    private long cacheSize;
+
+    private WeatherService weatherService;
+
+    private Location[] locations;
+
+    @Setup
+    public void setup() {
+        weatherService = Upstreams.weatherService(new Upstreams.StubRestTemplate(null, MINIMAL_FORECAST), cacheSize);
+        locations = new Location[zipCodes];
+        for (int i = 0; i < zipCodes; i++) {
+            locations[i] = new Location("Address " + i, String.format("%05d", i), 37.422, -122.084);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        weatherService.shutdown();
+    }
+
+    @Benchmark
+    public Weather getWeather() throws IOException {
+        return weatherService.getWeather(locations[ThreadLocalRandom.current().nextInt(zipCodes)]);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.weatherapp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.example.weatherapp.controllers.WeatherController;
+import com.example.weatherapp.services.AddressService;
+import com.example.weatherapp.services.WeatherService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * End-to-end GET /weather through the DispatcherServlet, including JSON serialization of the response,
+ * with both upstreams stubbed by the recorded payloads.
+ * Cached requests are answered from the geocode and weather caches; uncached requests clear both caches first,
+ * so they geocode, fetch and parse the forecast on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WeatherControllerBenchmark {
+
+    @Param({"true", "false"})
+    private boolean cached;
+
+    private AddressService addressService;
+
+    private WeatherService weatherService;
+
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setup() {
+        Upstreams.StubRestTemplate restTemplate =
+            new Upstreams.StubRestTemplate(Upstreams.GEOCODE_PAYLOAD, Upstreams.FORECAST_PAYLOAD);
+        addressService = Upstreams.addressService(restTemplate);
+        weatherService = Upstreams.weatherService(restTemplate);
+
+        WeatherController controller = new WeatherController();
+        ReflectionTestUtils.setField(controller, "addressService", addressService);
+        ReflectionTestUtils.setField(controller, "weatherService", weatherService);
+        ReflectionTestUtils.setField(controller, "meterRegistry", new SimpleMeterRegistry());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        weatherService.shutdown();
+    }
+
+    @Benchmark
+    public MvcResult getWeather() throws Exception {
+        if (!cached) {
+            addressService.clearCache();
+            weatherService.clearCache();
+        }
+        MvcResult result = mockMvc.perform(get("/weather").param("address", "1600 Amphitheatre Parkway")).andReturn();
+        if (result.getResponse().getStatus() != 200) {
+            throw new IllegalStateException("Unexpected status " + result.getResponse().getStatus());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.weatherapp.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * AddressTrace is the sequence of addresses the load test requests the weather for, one per line in a file.
+ * Generated traces follow a Zipf distribution over a fixed set of addresses, with the most requested addresses
+ * spread over the set, and are the same for the same parameters and seed. A trace is written out once generated,
+ * so that a run can be replayed from the file, or the file replaced by addresses taken from real traffic.
+ */
+final class AddressTrace {
+
+    private AddressTrace() {
+    }
+
+    /**
+     * Generates a trace.
+     *
+     * @param addresses The number of distinct addresses.
+     * @param length The number of requests in the trace.
+     * @param skew The Zipf exponent of the address popularity, 0 for evenly requested addresses.
+     * @param seed The seed of the draws.
+     * @return The addresses, in request order.
+     */
+    static List<String> generate(int addresses, int length, double skew, long seed) {
+        Random random = new Random(seed);
+        double[] cumulative = new double[addresses];
+        double total = 0;
+        for (int rank = 0; rank < addresses; rank++) {
+            total += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+
+        // Rank the addresses in a shuffled order, so that popularity is unrelated to the address itself.
+        String[] byRank = new String[addresses];
+        for (int i = 0; i < addresses; i++) {
+            byRank[i] = address(i);
+        }
+        for (int i = addresses - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String swapped = byRank[i];
+            byRank[i] = byRank[j];
+            byRank[j] = swapped;
+        }
+
+        List<String> trace = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            trace.add(byRank[rank >= 0 ? rank : Math.min(addresses - 1, -rank - 1)]);
+        }
+        return trace;
+    }
+
+    /**
+     * Reads a trace, skipping blank lines.
+     *
+     * @param file The file holding one address per line.
+     * @return The addresses, in request order.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<String> read(Path file) throws IOException {
+        return Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+            .map(String::trim)
+            .filter(line -> !line.isEmpty())
+            .toList();
+    }
+
+    /**
+     * Writes a trace, one address per line.
+     *
+     * @param file The file to write, replaced if it exists.
+     * @param trace The addresses, in request order.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(Path file, List<String> trace) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, trace, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a made-up street address, distinct for every index.
+     */
+    private static String address(int i) {
+        return (i % 9000 + 100) + " Main Street, Springfield " + (i / 9000 + 1);
+    }
+}
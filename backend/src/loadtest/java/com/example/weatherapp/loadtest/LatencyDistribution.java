@@ -0,0 +1,66 @@
+package com.example.weatherapp.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * LatencyDistribution draws the time the upstream simulator takes to answer a request.
+ * Distributions are given as text, so that they can be passed on the command line:
+ * <ul>
+ *     <li>"none": answers right away.</li>
+ *     <li>"fixed:40": always 40 ms.</li>
+ *     <li>"uniform:20-80": between 20 and 80 ms, evenly.</li>
+ *     <li>"lognormal:40,300": a median of 40 ms and a 99th percentile of 300 ms, the long tail of real upstreams.</li>
+ * </ul>
+ */
+@FunctionalInterface
+interface LatencyDistribution {
+
+    // The 99th percentile of the standard normal distribution.
+    double Z_99 = 2.326;
+
+    /**
+     * Draws a latency.
+     *
+     * @return The latency in milliseconds, 0 or more.
+     */
+    long sampleMillis();
+
+    /**
+     * Parses a distribution.
+     *
+     * @param spec The distribution, e.g. "lognormal:40,300".
+     * @return The distribution.
+     * @throws IllegalArgumentException If the distribution cannot be parsed.
+     */
+    static LatencyDistribution parse(String spec) {
+        String[] kindAndParameters = spec.trim().split(":", 2);
+        String parameters = kindAndParameters.length > 1 ? kindAndParameters[1] : "";
+        try {
+            switch (kindAndParameters[0]) {
+                case "none" -> {
+                    return () -> 0;
+                }
+                case "fixed" -> {
+                    long millis = Long.parseLong(parameters.trim());
+                    return () -> millis;
+                }
+                case "uniform" -> {
+                    String[] bounds = parameters.split("-");
+                    long min = Long.parseLong(bounds[0].trim());
+                    long max = Long.parseLong(bounds[1].trim());
+                    return () -> ThreadLocalRandom.current().nextLong(min, max + 1);
+                }
+                case "lognormal" -> {
+                    String[] percentiles = parameters.split(",");
+                    double median = Double.parseDouble(percentiles[0].trim());
+                    double p99 = Double.parseDouble(percentiles[1].trim());
+                    double sigma = Math.log(p99 / median) / Z_99;
+                    return () -> Math.round(median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+                }
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid latency distribution: " + spec, e);
+        }
+    }
+}
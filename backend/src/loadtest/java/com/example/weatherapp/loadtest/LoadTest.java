@@ -0,0 +1,239 @@
+package com.example.weatherapp.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.StreamSupport;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.weatherapp.WeatherappApplication;
+
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * LoadTest starts the application with its Geocoding API and WeatherAPI replaced by an UpstreamSimulator,
+ * drives GET /weather at a target rate with the addresses of an AddressTrace, and reports the latency histogram
+ * of the requests, their status codes, the calls the upstreams received and the hit ratio of the caches.
+ * Requests are sent on a fixed schedule whatever the response times (an open model, as real clients behave),
+ * and their latency is measured from when they were due, so that a stalled driver does not hide queueing.
+ * Run it with `./gradlew loadTest`. The load and the upstreams are set with -Ploadtest.name=value, see
+ * the settings below; the application itself with --args, e.g. --args='--hedging.enabled=true'.
+ */
+public final class LoadTest {
+
+    // Upper bounds of the histogram buckets, in milliseconds.
+    private static final long[] BUCKETS_IN_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    // Time given to the requests in flight at the end of the run.
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // The load.
+        double rps = Double.parseDouble(setting("rps", "100"));
+        int durationSeconds = Integer.parseInt(setting("duration-seconds", "60"));
+        String traceFile = setting("trace", "");
+        int addresses = Integer.parseInt(setting("addresses", "10000"));
+        double skew = Double.parseDouble(setting("skew", "0.9"));
+        long seed = Long.parseLong(setting("seed", "42"));
+
+        // The upstreams.
+        UpstreamSimulator.Settings geocode = UpstreamSimulator.Settings.parse(
+            setting("geocode-latency", "lognormal:40,250"),
+            setting("geocode-errors", ""),
+            Double.parseDouble(setting("geocode-max-rps", "0")));
+        UpstreamSimulator.Settings forecast = UpstreamSimulator.Settings.parse(
+            setting("forecast-latency", "lognormal:60,400"),
+            setting("forecast-errors", ""),
+            Double.parseDouble(setting("forecast-max-rps", "0")));
+
+        int requests = (int) Math.round(rps * durationSeconds);
+        List<String> trace;
+        if (traceFile.isEmpty()) {
+            trace = AddressTrace.generate(addresses, requests, skew, seed);
+            Path generated = Path.of("build", "loadtest", "trace.txt");
+            AddressTrace.write(generated, trace);
+            System.out.printf("Generated a trace of %d requests over %d addresses, replay it with -Ploadtest.trace=%s%n",
+                requests, addresses, generated);
+        } else {
+            trace = AddressTrace.read(Path.of(traceFile));
+            System.out.printf("Replaying %s (%d requests)%n", traceFile, trace.size());
+        }
+
+        try (UpstreamSimulator simulator = new UpstreamSimulator(0, geocode, forecast)) {
+            simulator.start();
+
+            // System properties take precedence over application.yaml, and are themselves overridden by --args.
+            System.setProperty("server.port", "0");
+            System.setProperty("address-service.api-key", "loadtest");
+            System.setProperty("weather-service.api-key", "loadtest");
+            System.setProperty("address-service.base-url", simulator.url(UpstreamSimulator.GEOCODE_PATH));
+            System.setProperty("weather-service.base-url", simulator.url(UpstreamSimulator.FORECAST_PATH));
+            System.setProperty("http-client.upstream-hosts", "localhost");
+
+            try (ConfigurableApplicationContext context = SpringApplication.run(WeatherappApplication.class, args)) {
+                int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                Timer latency = Timer.builder("loadtest.latency")
+                    .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                    .serviceLevelObjectives(buckets())
+                    // One histogram over the whole run.
+                    .distributionStatisticExpiry(Duration.ofSeconds(durationSeconds).plus(DRAIN_TIMEOUT).plusMinutes(1))
+                    .distributionStatisticBufferLength(1)
+                    .register(new SimpleMeterRegistry());
+                Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+                LongAdder failures = new LongAdder();
+
+                long start = System.nanoTime();
+                boolean drained = drive("http://localhost:" + port + "/weather", trace, rps, requests, latency,
+                    statuses, failures);
+                double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+                report(latency, statuses, failures, requests, elapsedSeconds, drained);
+                reportUpstream("Geocoding API", simulator.geocodeCalls(), elapsedSeconds);
+                reportUpstream("WeatherAPI", simulator.forecastCalls(), elapsedSeconds);
+                MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+                reportCache(meterRegistry, "geocodeCache");
+                reportCache(meterRegistry, "weatherCache");
+            }
+        }
+    }
+
+    /**
+     * Sends the requests on schedule, cycling through the trace, and waits for the responses.
+     *
+     * @return true if every response arrived within the drain timeout.
+     */
+    private static boolean drive(String url, List<String> trace, double rps, int requests, Timer latency,
+                                 Map<Integer, LongAdder> statuses, LongAdder failures) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+        CountDownLatch done = new CountDownLatch(requests);
+        long intervalInNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < requests; i++) {
+            long due = start + i * intervalInNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            String address = trace.get(i % trace.size());
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create(url + "?address=" + URLEncoder.encode(address, StandardCharsets.UTF_8)))
+                .timeout(DRAIN_TIMEOUT)
+                .GET()
+                .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, e) -> {
+                latency.record(System.nanoTime() - due, TimeUnit.NANOSECONDS);
+                if (e != null) {
+                    failures.increment();
+                } else {
+                    statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+                }
+                done.countDown();
+            });
+        }
+        return done.await(DRAIN_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    private static void report(Timer latency, Map<Integer, LongAdder> statuses, LongAdder failures, int requests,
+                               double elapsedSeconds, boolean drained) {
+        HistogramSnapshot snapshot = latency.takeSnapshot();
+        System.out.printf("%nRequests: %d sent in %.1f s (%.1f/s), %d answered, %d failed without a response%s%n",
+            requests, elapsedSeconds, requests / elapsedSeconds, snapshot.count() - failures.sum(), failures.sum(),
+            drained ? "" : ", some still in flight when the run ended");
+
+        Map<Integer, Long> byStatus = new TreeMap<>();
+        statuses.forEach((status, count) -> byStatus.put(status, count.sum()));
+        System.out.printf("Status codes: %s%n", byStatus);
+
+        System.out.printf("Latency (ms): mean %.1f", snapshot.mean(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            System.out.printf(", p%s %.1f", trimZeros(Math.round(percentile.percentile() * 1000) / 10.0),
+                percentile.value(TimeUnit.MILLISECONDS));
+        }
+        System.out.printf(", max %.1f%n", snapshot.max(TimeUnit.MILLISECONDS));
+
+        // Bucket counts are cumulative, the last bucket holds the requests above every bound.
+        System.out.println("Latency histogram:");
+        long below = 0;
+        for (CountAtBucket bucket : snapshot.histogramCounts()) {
+            long count = (long) bucket.count();
+            printBucket(String.format("<= %.0f ms", bucket.bucket(TimeUnit.MILLISECONDS)), count - below, count,
+                snapshot.count());
+            below = count;
+        }
+        printBucket(String.format("> %d ms", BUCKETS_IN_MILLIS[BUCKETS_IN_MILLIS.length - 1]),
+            snapshot.count() - below, snapshot.count(), snapshot.count());
+    }
+
+    private static void printBucket(String label, long count, long cumulative, long total) {
+        System.out.printf("  %-12s %8d  %6.2f%%  %7.3f%%%n", label, count,
+            total > 0 ? 100.0 * count / total : 0, total > 0 ? 100.0 * cumulative / total : 0);
+    }
+
+    private static void reportUpstream(String name, Map<String, Long> calls, double elapsedSeconds) {
+        long total = calls.values().stream().mapToLong(Long::longValue).sum();
+        System.out.printf("%s: %d calls (%.1f/s) %s%n", name, total, total / elapsedSeconds, calls);
+    }
+
+    private static void reportCache(MeterRegistry meterRegistry, String cache) {
+        double hits = cacheGets(meterRegistry, cache, "hit");
+        double misses = cacheGets(meterRegistry, cache, "miss");
+        double lookups = hits + misses;
+        System.out.printf("%s: %.0f lookups, hit ratio %.1f%%%n", cache, lookups, lookups > 0 ? 100 * hits / lookups : 0);
+    }
+
+    private static double cacheGets(MeterRegistry meterRegistry, String cache, String result) {
+        return meterRegistry.find("cache.gets").tag("cache", cache).tag("result", result).meters().stream()
+            .flatMap(meter -> StreamSupport.stream(meter.measure().spliterator(), false))
+            .mapToDouble(Measurement::getValue)
+            .sum();
+    }
+
+    private static Duration[] buckets() {
+        Duration[] buckets = new Duration[BUCKETS_IN_MILLIS.length];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = Duration.ofMillis(BUCKETS_IN_MILLIS[i]);
+        }
+        return buckets;
+    }
+
+    private static String trimZeros(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    /**
+     * Returns a setting of the load test, the system property "loadtest." + name.
+     */
+    private static String setting(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.weatherapp.loadtest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.weatherapp.http.TokenBucket;
+import com.example.weatherapp.services.AddressService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * UpstreamSimulator stands in for the Google Geocoding API and the WeatherAPI forecast endpoint, so that the
+ * application can be load tested without API keys or network access. It answers with the recorded payloads
+ * of the tests. Every address geocodes to its own coordinates and zip code, derived from the address, so that
+ * distinct addresses fill distinct weather cache entries as real ones would.
+ * Each upstream has its own latency distribution, error rates and throughput cap. Errors are answered the way
+ * the real upstream reports them: a geocoding status such as "OVER_QUERY_LIMIT", or a WeatherAPI error code
+ * such as 1006, 2007 or 9999 with its HTTP status. Requests over the throughput cap are rejected right away,
+ * with an "OVER_QUERY_LIMIT" status by the Geocoding API and a 429 status by the WeatherAPI.
+ * Requests are counted per upstream and outcome.
+ */
+class UpstreamSimulator implements Closeable {
+
+    static final String GEOCODE_PATH = "/maps/api/geocode/json";
+
+    static final String FORECAST_PATH = "/v1/forecast.json";
+
+    // Outcome of the requests answered with a payload.
+    static final String OK = "ok";
+
+    // Outcome of the requests over the throughput cap.
+    static final String THROTTLED = "throttled";
+
+    // HTTP status and message of the WeatherAPI error codes, other codes are answered with 400.
+    private static final Map<String, Integer> FORECAST_ERROR_STATUSES = Map.of("1006", 400, "2007", 403, "9999", 400);
+
+    private static final Map<String, String> FORECAST_ERROR_MESSAGES = Map.of(
+        "1006", "No location found matching parameter 'q'",
+        "2007", "API key has exceeded calls per month quota.",
+        "9999", "Internal application error.");
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Upstream geocode;
+
+    private final Upstream forecast;
+
+    // Recorded Geocoding API response, rewritten per address.
+    private final ObjectNode geocodePayload;
+
+    // Recorded WeatherAPI forecast response, answered as is.
+    private final byte[] forecastPayload;
+
+    /**
+     * Settings of a simulated upstream.
+     *
+     * @param latency The time taken to answer a request.
+     * @param errorRates The fraction of requests answered with each error, by status or error code.
+     * @param maxRequestsPerSecond The throughput cap, 0 for none.
+     */
+    record Settings(LatencyDistribution latency, Map<String, Double> errorRates, double maxRequestsPerSecond) {
+
+        /**
+         * Parses the settings of an upstream.
+         *
+         * @param latency The latency distribution, see LatencyDistribution.
+         * @param errorRates The error rates as "code:rate" pairs separated by commas, e.g. "1006:0.01,9999:0.001".
+         * @param maxRequestsPerSecond The throughput cap, 0 for none.
+         * @return The settings.
+         */
+        static Settings parse(String latency, String errorRates, double maxRequestsPerSecond) {
+            Map<String, Double> rates = new LinkedHashMap<>();
+            for (String pair : errorRates.split(",")) {
+                if (pair.isBlank()) {
+                    continue;
+                }
+                String[] codeAndRate = pair.split(":");
+                if (codeAndRate.length != 2) {
+                    throw new IllegalArgumentException("Invalid error rate: " + pair);
+                }
+                rates.put(codeAndRate[0].trim(), Double.parseDouble(codeAndRate[1].trim()));
+            }
+            return new Settings(LatencyDistribution.parse(latency), rates, maxRequestsPerSecond);
+        }
+    }
+
+    /**
+     * Creates a simulator listening on a local port.
+     *
+     * @param port The port, 0 for any free port.
+     * @param geocode The settings of the Geocoding API.
+     * @param forecast The settings of the WeatherAPI.
+     * @throws IOException If the port cannot be bound.
+     */
+    UpstreamSimulator(int port, Settings geocode, Settings forecast) throws IOException {
+        this.geocode = new Upstream(geocode);
+        this.forecast = new Upstream(forecast);
+        this.geocodePayload = (ObjectNode) OBJECT_MAPPER.readTree(readPayload("payloads/geocode.json"));
+        this.forecastPayload = readPayload("payloads/forecast.json");
+
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        server.setExecutor(executor);
+        server.createContext(GEOCODE_PATH, exchange -> handle(exchange, this.geocode, this::answerGeocode));
+        server.createContext(FORECAST_PATH, exchange -> handle(exchange, this.forecast, this::answerForecast));
+    }
+
+    void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the URL of an endpoint of the simulator.
+     *
+     * @param path GEOCODE_PATH or FORECAST_PATH.
+     */
+    String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * Returns the requests answered by the Geocoding API so far, by outcome: "ok", "throttled" or the status.
+     */
+    Map<String, Long> geocodeCalls() {
+        return geocode.calls();
+    }
+
+    /**
+     * Returns the requests answered by the WeatherAPI so far, by outcome: "ok", "throttled" or the error code.
+     */
+    Map<String, Long> forecastCalls() {
+        return forecast.calls();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Answers a request: rejects it over the throughput cap, otherwise waits for the drawn latency,
+     * then answers with an error drawn from the error rates or with the payload.
+     */
+    private void handle(HttpExchange exchange, Upstream upstream, Answer answer) throws IOException {
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (upstream.throttle != null && !upstream.throttle.tryAcquire()) {
+                upstream.count(THROTTLED);
+                answer.write(exchange, query, THROTTLED);
+                return;
+            }
+
+            long latency = upstream.settings.latency().sampleMillis();
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+
+            String error = upstream.drawError();
+            upstream.count(error != null ? error : OK);
+            answer.write(exchange, query, error);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers a geocoding request with the recorded payload, moved to coordinates and a zip code derived
+     * from the address, or with the status of the error.
+     */
+    private void answerGeocode(HttpExchange exchange, Map<String, String> query, String error) throws IOException {
+        if (error != null) {
+            String status = THROTTLED.equals(error) ? "OVER_QUERY_LIMIT" : error;
+            ObjectNode body = OBJECT_MAPPER.createObjectNode().put("status", status);
+            body.putArray("results");
+            write(exchange, 200, OBJECT_MAPPER.writeValueAsBytes(body));
+            return;
+        }
+
+        // Spread the addresses over the contiguous United States, the same address always landing on the same spot.
+        String address = AddressService.normalizeAddress(query.getOrDefault("address", ""));
+        long hash = address.hashCode() * 0x9E3779B97F4A7C15L;
+        double latitude = 25 + (hash >>> 40) / (double) (1L << 24) * 24;
+        double longitude = -124 + ((hash >>> 16) & 0xFFFFFF) / (double) (1L << 24) * 57;
+        String zipCode = String.format(Locale.ROOT, "%05d", Math.floorMod(hash, 100000));
+
+        ObjectNode body = geocodePayload.deepCopy();
+        ObjectNode result = (ObjectNode) body.get("results").get(0);
+        result.put("formatted_address", address + ", USA");
+        ObjectNode location = (ObjectNode) result.get("geometry").get("location");
+        location.put("lat", latitude);
+        location.put("lng", longitude);
+        for (JsonNode component : (ArrayNode) result.get("address_components")) {
+            if (component.get("types").toString().contains("\"postal_code\"")) {
+                ((ObjectNode) component).put("long_name", zipCode).put("short_name", zipCode);
+            }
+        }
+        write(exchange, 200, OBJECT_MAPPER.writeValueAsBytes(body));
+    }
+
+    /**
+     * Answers a forecast request with the recorded payload, or with the WeatherAPI error.
+     */
+    private void answerForecast(HttpExchange exchange, Map<String, String> query, String error) throws IOException {
+        if (THROTTLED.equals(error)) {
+            write(exchange, 429, new byte[0]);
+        } else if (error != null) {
+            ObjectNode body = OBJECT_MAPPER.createObjectNode();
+            body.putObject("error")
+                .put("code", error)
+                .put("message", FORECAST_ERROR_MESSAGES.getOrDefault(error, "Error " + error));
+            write(exchange, FORECAST_ERROR_STATUSES.getOrDefault(error, 400), OBJECT_MAPPER.writeValueAsBytes(body));
+        } else {
+            write(exchange, 200, forecastPayload);
+        }
+    }
+
+    private static void write(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            String[] nameAndValue = parameter.split("=", 2);
+            if (nameAndValue.length == 2) {
+                query.put(nameAndValue[0], URLDecoder.decode(nameAndValue[1], StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static byte[] readPayload(String name) {
+        try (InputStream in = UpstreamSimulator.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing payload " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the answer to a request.
+     */
+    @FunctionalInterface
+    private interface Answer {
+
+        /**
+         * @param error The error to answer with, "throttled", or null to answer with the payload.
+         */
+        void write(HttpExchange exchange, Map<String, String> query, String error) throws IOException;
+    }
+
+    /**
+     * A simulated upstream: its settings, throughput cap and request counts.
+     */
+    private static final class Upstream {
+
+        private final Settings settings;
+
+        // The throughput cap, or null if none.
+        private final TokenBucket throttle;
+
+        private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+
+        Upstream(Settings settings) {
+            this.settings = settings;
+            this.throttle = settings.maxRequestsPerSecond() > 0
+                ? new TokenBucket(settings.maxRequestsPerSecond(), (int) Math.max(1, settings.maxRequestsPerSecond() / 10))
+                : null;
+        }
+
+        /**
+         * Draws the error of a request from the error rates.
+         *
+         * @return The error, or null to answer with the payload.
+         */
+        String drawError() {
+            double draw = ThreadLocalRandom.current().nextDouble();
+            for (Map.Entry<String, Double> rate : settings.errorRates().entrySet()) {
+                draw -= rate.getValue();
+                if (draw < 0) {
+                    return rate.getKey();
+                }
+            }
+            return null;
+        }
+
+        void count(String outcome) {
+            calls.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        }
+
+        Map<String, Long> calls() {
+            Map<String, Long> counts = new TreeMap<>();
+            calls.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+            return counts;
+        }
+    }
+}
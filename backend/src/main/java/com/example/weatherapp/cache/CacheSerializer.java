@@ -0,0 +1,114 @@
+package com.example.weatherapp.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+
+/**
+ * CacheSerializer turns the values of a shared cache tier into bytes and back.
+ * The binary serializer reuses the compact codecs of the persistent tier; the JSON serializer is larger,
+ * but readable by other tools and tolerant of added fields.
+ *
+ * @param <V> The value type.
+ */
+public interface CacheSerializer<V> {
+
+    /**
+     * Value of shared-cache.serializer selecting the binary serializer.
+     */
+    String BINARY = "binary";
+
+    /**
+     * Value of shared-cache.serializer selecting the JSON serializer.
+     */
+    String JSON = "json";
+
+    /**
+     * Returns the name of the format, part of the shared cache keys so that instances using different formats
+     * never read each other's values.
+     */
+    String name();
+
+    byte[] serialize(V value) throws IOException;
+
+    V deserialize(byte[] bytes) throws IOException;
+
+    /**
+     * Returns the serializer of a format.
+     *
+     * @param format "binary" or "json".
+     * @param codec The codec of the values, used by the binary serializer.
+     * @param type The class of the values, used by the JSON serializer.
+     * @return The serializer.
+     * @throws IllegalArgumentException If the format is unknown.
+     */
+    static <V> CacheSerializer<V> of(String format, PersistentCacheStore.Codec<V> codec, Class<V> type) {
+        return switch (format) {
+            case BINARY -> binary(codec);
+            case JSON -> json(type);
+            default -> throw new IllegalArgumentException("Unknown cache serializer: " + format);
+        };
+    }
+
+    /**
+     * Returns a serializer writing values with a codec of the persistent tier.
+     *
+     * @param codec The codec.
+     * @return The serializer.
+     */
+    static <V> CacheSerializer<V> binary(PersistentCacheStore.Codec<V> codec) {
+        return new CacheSerializer<>() {
+            @Override
+            public String name() {
+                return BINARY;
+            }
+
+            @Override
+            public byte[] serialize(V value) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+                codec.write(new DataOutputStream(bytes), value);
+                return bytes.toByteArray();
+            }
+
+            @Override
+            public V deserialize(byte[] bytes) throws IOException {
+                return codec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+            }
+        };
+    }
+
+    /**
+     * Returns a serializer writing values as JSON.
+     *
+     * @param type The class of the values.
+     * @return The serializer.
+     */
+    static <V> CacheSerializer<V> json(Class<V> type) {
+        // Immutable values are created with their constructor, whose parameter names the module reads.
+        ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new ParameterNamesModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return new CacheSerializer<>() {
+            @Override
+            public String name() {
+                return JSON;
+            }
+
+            @Override
+            public byte[] serialize(V value) throws IOException {
+                return objectMapper.writeValueAsBytes(value);
+            }
+
+            @Override
+            public V deserialize(byte[] bytes) throws IOException {
+                return objectMapper.readValue(bytes, type);
+            }
+        };
+    }
+}
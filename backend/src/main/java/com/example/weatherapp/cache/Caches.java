@@ -0,0 +1,132 @@
+package com.example.weatherapp.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+/**
+ * Caches builds the in-memory caches of the services on Caffeine, whose W-TinyLFU eviction admits a new entry
+ * only if it is requested more often than the entry it would evict, and whose reads take no lock.
+ * A cache is bounded either by its number of entries or, when a memory limit is configured, by the estimated
+ * heap size of its entries. The estimates below assume compressed object pointers.
+ */
+public final class Caches {
+
+    // Bytes per megabyte.
+    private static final long MEGABYTE = 1024 * 1024;
+
+    // Caffeine node with its key and value references, expiry time and policy links.
+    private static final int ENTRY_OVERHEAD = 64;
+
+    // Weather object with its flags and references.
+    private static final int WEATHER_SIZE = 40;
+
+    // Current object with its temperatures, update time and condition reference.
+    private static final int CURRENT_SIZE = 40;
+
+    // Forecast object with its four temperatures and condition reference.
+    private static final int FORECAST_SIZE = 48;
+
+    // Condition object with its code and two string references.
+    private static final int CONDITION_SIZE = 24;
+
+    // Location object with its references, and its two boxed coordinates.
+    private static final int LOCATION_SIZE = 32 + 2 * 16;
+
+    // Record wrapping a cached value with its fetch time and, for weather data, its encoding.
+    private static final int TIMESTAMPED_SIZE = 24;
+
+    private Caches() {
+    }
+
+    /**
+     * Builds a cache recording hit, miss and eviction statistics.
+     *
+     * @param expiryInSeconds The time after which an entry expires, counted from its write.
+     * @param maximumSize The maximum number of entries, used without a memory limit.
+     * @param maximumMegabytes The maximum estimated heap size of the entries, 0 to bound the cache by maximumSize.
+     * @param weigher Estimates the heap size of an entry in bytes.
+     * @return The cache.
+     */
+    public static <K, V> Cache<K, V> build(long expiryInSeconds, long maximumSize, long maximumMegabytes,
+                                           Weigher<K, V> weigher) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .expireAfterWrite(expiryInSeconds, TimeUnit.SECONDS)
+            .recordStats();
+        if (maximumMegabytes > 0) {
+            return builder.maximumWeight(maximumMegabytes * MEGABYTE).weigher(weigher).build();
+        }
+        return builder.maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Estimates the heap size of a weather cache entry: its key, and the weather data with its fetch time
+     * and encoding.
+     *
+     * @param key The cache key.
+     * @param weather The weather data.
+     * @param encodedData The encoding of the weather data, may be null.
+     * @return The estimate in bytes.
+     */
+    public static int weigh(String key, Weather weather, byte[] encodedData) {
+        int size = ENTRY_OVERHEAD + sizeOf(key) + TIMESTAMPED_SIZE + WEATHER_SIZE + sizeOf(weather.getLocation());
+        if (encodedData != null) {
+            // Byte array header and content rounded up to 8 bytes.
+            size += (16 + encodedData.length + 7) & ~7;
+        }
+        if (weather.getCurrent() != null) {
+            size += CURRENT_SIZE + sizeOf(weather.getCurrent().getCondition());
+        }
+        if (weather.getForecast() != null) {
+            size += FORECAST_SIZE + sizeOf(weather.getForecast().getCondition());
+        }
+        return size;
+    }
+
+    /**
+     * Estimates the heap size of a geocode cache entry: its key, and the location with its geocoding time.
+     *
+     * @param key The normalized address.
+     * @param location The location.
+     * @return The estimate in bytes.
+     */
+    public static int weigh(String key, Location location) {
+        return ENTRY_OVERHEAD + sizeOf(key) + TIMESTAMPED_SIZE + sizeOf(location);
+    }
+
+    /**
+     * Estimates the heap size of a cache entry whose value is a shared constant, such as a negative cache entry.
+     *
+     * @param key The cache key.
+     * @return The estimate in bytes.
+     */
+    public static int weigh(String key) {
+        return ENTRY_OVERHEAD + sizeOf(key);
+    }
+
+    private static int sizeOf(Location location) {
+        if (location == null) {
+            return 0;
+        }
+        return LOCATION_SIZE + sizeOf(location.getFormattedAddress()) + sizeOf(location.getZipCode());
+    }
+
+    private static int sizeOf(Weather.Condition condition) {
+        if (condition == null) {
+            return 0;
+        }
+        return CONDITION_SIZE + sizeOf(condition.getText()) + sizeOf(condition.getIcon());
+    }
+
+    private static int sizeOf(String value) {
+        if (value == null) {
+            return 0;
+        }
+        // String object, and its byte array header and content rounded up to 8 bytes.
+        return 24 + ((16 + value.length() + 7) & ~7);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.weatherapp.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+/**
+ * CountMinSketch estimates how often keys were seen in fixed memory, however many distinct keys there are.
+ * Each key maps to one counter in each of four rows; its estimate is the smallest of those counters, which
+ * may overcount because of collisions with other keys but never undercounts. Increments only raise the
+ * counters holding the minimum (conservative update), which keeps the overcount low.
+ * All counters are halved after a number of increments, so that the estimates follow recent traffic
+ * rather than all traffic since startup.
+ */
+public class CountMinSketch {
+
+    // Number of rows, each indexed by a different hash of the key.
+    private static final int DEPTH = 4;
+
+    private final AtomicIntegerArray counters;
+
+    private final int widthMask;
+
+    // Number of increments after which all counters are halved.
+    private final long resetAfter;
+
+    private final AtomicLong increments = new AtomicLong();
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param width The number of counters per row, rounded up to a power of two.
+     * @param resetAfter The number of increments after which all counters are halved.
+     */
+    public CountMinSketch(int width, long resetAfter) {
+        int rowWidth = Math.max(2, Integer.highestOneBit(Math.max(1, width - 1)) << 1);
+        this.counters = new AtomicIntegerArray(rowWidth * DEPTH);
+        this.widthMask = rowWidth - 1;
+        this.resetAfter = Math.max(1, resetAfter);
+    }
+
+    /**
+     * Counts one occurrence of a key.
+     *
+     * @param key The key.
+     * @return The estimated count of the key, including this occurrence.
+     */
+    public int increment(String key) {
+        int[] indexes = indexes(key);
+        int min = Integer.MAX_VALUE;
+        for (int index : indexes) {
+            min = Math.min(min, counters.get(index));
+        }
+        for (int index : indexes) {
+            // Concurrent increments may both raise a counter, which only overcounts.
+            if (counters.get(index) == min) {
+                counters.incrementAndGet(index);
+            }
+        }
+        if (increments.incrementAndGet() % resetAfter == 0) {
+            halve();
+        }
+        return min + 1;
+    }
+
+    /**
+     * Returns the estimated count of a key.
+     *
+     * @param key The key.
+     * @return The estimate, 0 if the key was not seen recently.
+     */
+    public int estimate(String key) {
+        int min = Integer.MAX_VALUE;
+        for (int index : indexes(key)) {
+            min = Math.min(min, counters.get(index));
+        }
+        return min;
+    }
+
+    private void halve() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.updateAndGet(i, count -> count >>> 1);
+        }
+    }
+
+    /**
+     * Returns the counter of the key in every row, derived from the two halves of one 128-bit hash.
+     */
+    private int[] indexes(String key) {
+        HashCode hash = Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8);
+        long first = hash.asLong();
+        long second = ByteBuffer.wrap(hash.asBytes()).getLong(Long.BYTES);
+        int[] indexes = new int[DEPTH];
+        for (int row = 0; row < DEPTH; row++) {
+            long combined = first + row * second;
+            indexes[row] = row * (widthMask + 1) + (int) ((combined ^ (combined >>> 32)) & widthMask);
+        }
+        return indexes;
+    }
+}
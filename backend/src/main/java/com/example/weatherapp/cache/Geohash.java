@@ -0,0 +1,67 @@
+package com.example.weatherapp.cache;
+
+/**
+ * Geohash encodes coordinates as the base32 geohash of the grid cell containing them.
+ * Coordinates in the same cell share the same hash, so it can be used as a cache key
+ * that lets nearby locations share data. Each character narrows the cell down by a factor of 32:
+ * a precision of 5 is a cell of about 4.9 km x 4.9 km, 6 is about 1.2 km x 0.6 km.
+ */
+public final class Geohash {
+
+    // Longest supported hash, cells of a few centimeters.
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {
+    }
+
+    /**
+     * Returns the geohash of the cell containing the coordinates.
+     *
+     * @param latitude The latitude, between -90 and 90.
+     * @param longitude The longitude, between -180 and 180.
+     * @param precision The number of characters, between 1 and MAX_PRECISION.
+     * @return The geohash.
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION);
+        }
+
+        double minLatitude = -90;
+        double maxLatitude = 90;
+        double minLongitude = -180;
+        double maxLongitude = 180;
+
+        char[] hash = new char[precision];
+        boolean evenBit = true;
+        for (int i = 0; i < precision; i++) {
+            int index = 0;
+            // Every character holds 5 bits, alternating between longitude and latitude halvings.
+            for (int bit = 0; bit < 5; bit++) {
+                index <<= 1;
+                if (evenBit) {
+                    double middle = (minLongitude + maxLongitude) / 2;
+                    if (longitude >= middle) {
+                        index |= 1;
+                        minLongitude = middle;
+                    } else {
+                        maxLongitude = middle;
+                    }
+                } else {
+                    double middle = (minLatitude + maxLatitude) / 2;
+                    if (latitude >= middle) {
+                        index |= 1;
+                        minLatitude = middle;
+                    } else {
+                        maxLatitude = middle;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+            hash[i] = BASE32[index];
+        }
+        return new String(hash);
+    }
+}
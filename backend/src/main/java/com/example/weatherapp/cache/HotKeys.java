@@ -0,0 +1,99 @@
+package com.example.weatherapp.cache;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HotKeys tracks the most requested keys, each with a value to act on them, such as the location to refresh.
+ * Request counts are estimated by a CountMinSketch, which halves them periodically so that keys cooling down
+ * make room for new hot keys. Next to the sketch, at most twice the number of tracked keys are kept as
+ * candidates: a key becomes one once its estimate exceeds that of the least requested kept key, and the
+ * candidates are pruned back to the tracked number when they outgrow it.
+ *
+ * @param <V> The value type.
+ */
+public class HotKeys<V> {
+
+    private record Candidate<V>(String key, V value, int estimate) {
+    }
+
+    private final CountMinSketch sketch;
+
+    // Number of keys tracked.
+    private final int capacity;
+
+    private final Map<String, V> candidates = new ConcurrentHashMap<>();
+
+    // Estimate of the least requested key kept by the last pruning, which new keys must exceed.
+    private volatile int admissionThreshold;
+
+    /**
+     * Creates an empty tracker.
+     *
+     * @param capacity The number of keys tracked.
+     */
+    public HotKeys(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        // Sixteen counters per tracked key keep the collisions between hot keys rare.
+        int width = this.capacity * 16;
+        this.sketch = new CountMinSketch(width, width * 10L);
+    }
+
+    /**
+     * Counts a request for a key.
+     *
+     * @param key The key.
+     * @param value The value to keep for the key if it becomes a candidate.
+     */
+    public void record(String key, V value) {
+        int estimate = sketch.increment(key);
+        if (candidates.containsKey(key)) {
+            return;
+        }
+        if (candidates.size() < capacity || estimate > admissionThreshold) {
+            candidates.putIfAbsent(key, value);
+            if (candidates.size() > 2 * capacity) {
+                prune();
+            }
+        }
+    }
+
+    /**
+     * Returns the values of the most requested keys, most requested first.
+     *
+     * @return At most the tracked number of values.
+     */
+    public List<V> top() {
+        return ranked().stream()
+            .limit(capacity)
+            .map(Candidate::value)
+            .toList();
+    }
+
+    /**
+     * Returns the number of candidate keys.
+     */
+    public int size() {
+        return candidates.size();
+    }
+
+    private synchronized void prune() {
+        List<Candidate<V>> ranked = ranked();
+        if (ranked.size() <= capacity) {
+            return;
+        }
+        for (Candidate<V> dropped : ranked.subList(capacity, ranked.size())) {
+            candidates.remove(dropped.key());
+        }
+        admissionThreshold = ranked.get(capacity - 1).estimate();
+    }
+
+    private List<Candidate<V>> ranked() {
+        return candidates.entrySet().stream()
+            .map(entry -> new Candidate<>(entry.getKey(), entry.getValue(), sketch.estimate(entry.getKey())))
+            .sorted(Comparator.comparingInt(Candidate<V>::estimate).reversed())
+            .toList();
+    }
+}
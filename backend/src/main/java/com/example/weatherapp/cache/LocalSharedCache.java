@@ -0,0 +1,63 @@
+package com.example.weatherapp.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * LocalSharedCache is an in-process stand-in for a shared cache server, used to run and test the shared cache
+ * tier without external services. A single instance is shared by every service of the JVM, so that services
+ * created side by side behave like instances of the application sharing a server.
+ * Keys expire like on the server: expired keys are never returned, and are removed on access.
+ */
+public final class LocalSharedCache implements SharedCache {
+
+    /**
+     * The store shared by the whole JVM.
+     */
+    public static final LocalSharedCache INSTANCE = new LocalSharedCache();
+
+    private record Value(byte[] bytes, long expiresAt) {
+    }
+
+    private final Map<String, Value> values = new ConcurrentHashMap<>();
+
+    private LocalSharedCache() {
+    }
+
+    @Override
+    public byte[] get(String key) {
+        Value value = values.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= value.expiresAt()) {
+            values.remove(key, value);
+            return null;
+        }
+        return value.bytes();
+    }
+
+    @Override
+    public void put(String key, byte[] value, long ttlInMillis) {
+        values.put(key, new Value(value, System.currentTimeMillis() + ttlInMillis));
+    }
+
+    @Override
+    public void clear(String prefix) {
+        values.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Returns the number of keys held, including expired keys not accessed since.
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Does nothing, the store lives as long as the JVM.
+     */
+    @Override
+    public void close() {
+    }
+}
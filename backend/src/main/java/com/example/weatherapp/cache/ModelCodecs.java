@@ -0,0 +1,116 @@
+package com.example.weatherapp.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+
+/**
+ * ModelCodecs holds the compact binary codecs used to persist Location and Weather objects
+ * in a PersistentCacheStore. Only the data fields are written; the cache flags of Weather
+ * (from_cache, cache_age_seconds, stale) are set when an entry is served.
+ */
+public final class ModelCodecs {
+
+    /**
+     * Codec for Location objects.
+     */
+    public static final PersistentCacheStore.Codec<Location> LOCATION = new PersistentCacheStore.Codec<>() {
+        @Override
+        public void write(DataOutput out, Location location) throws IOException {
+            writeString(out, location.getFormattedAddress());
+            writeString(out, location.getZipCode());
+            writeDouble(out, location.getLatitude());
+            writeDouble(out, location.getLongitude());
+        }
+
+        @Override
+        public Location read(DataInput in) throws IOException {
+            return new Location(readString(in), readString(in), readDouble(in), readDouble(in));
+        }
+    };
+
+    /**
+     * Codec for Weather objects, including their Location.
+     */
+    public static final PersistentCacheStore.Codec<Weather> WEATHER = new PersistentCacheStore.Codec<>() {
+        @Override
+        public void write(DataOutput out, Weather weather) throws IOException {
+            out.writeBoolean(weather.getLocation() != null);
+            if (weather.getLocation() != null) {
+                LOCATION.write(out, weather.getLocation());
+            }
+
+            Weather.Current current = weather.getCurrent();
+            out.writeBoolean(current != null);
+            if (current != null) {
+                out.writeInt(current.getLastUpdated());
+                out.writeDouble(current.getTemperatureC());
+                out.writeDouble(current.getTemperatureF());
+                writeCondition(out, current.getCondition());
+            }
+
+            Weather.Forecast forecast = weather.getForecast();
+            out.writeBoolean(forecast != null);
+            if (forecast != null) {
+                out.writeDouble(forecast.getMinTempC());
+                out.writeDouble(forecast.getMinTempF());
+                out.writeDouble(forecast.getMaxTempC());
+                out.writeDouble(forecast.getMaxTempF());
+                writeCondition(out, forecast.getCondition());
+            }
+        }
+
+        @Override
+        public Weather read(DataInput in) throws IOException {
+            Location location = in.readBoolean() ? LOCATION.read(in) : null;
+            Weather.Current current = in.readBoolean()
+                ? new Weather.Current(in.readInt(), in.readDouble(), in.readDouble(), readCondition(in))
+                : null;
+            Weather.Forecast forecast = in.readBoolean()
+                ? new Weather.Forecast(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), readCondition(in))
+                : null;
+            return new Weather(location, current, forecast, false);
+        }
+    };
+
+    private ModelCodecs() {
+    }
+
+    private static void writeCondition(DataOutput out, Weather.Condition condition) throws IOException {
+        out.writeBoolean(condition != null);
+        if (condition != null) {
+            writeString(out, condition.getText());
+            writeString(out, condition.getIcon());
+            out.writeInt(condition.getCode());
+        }
+    }
+
+    private static Weather.Condition readCondition(DataInput in) throws IOException {
+        return in.readBoolean() ? new Weather.Condition(readString(in), readString(in), in.readInt()) : null;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDouble(DataOutput out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static Double readDouble(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+}
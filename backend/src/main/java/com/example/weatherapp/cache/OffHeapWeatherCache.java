@@ -0,0 +1,476 @@
+package com.example.weatherapp.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.weatherapp.models.Weather;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * OffHeapWeatherCache keeps weather data in fixed-width slots of direct memory instead of object graphs
+ * on the heap, so that millions of entries add neither heap nor garbage collection work.
+ *
+ * Each entry is one 88-byte slot holding the 128-bit hash of its cache key, its fetch time, the temperatures
+ * and the ids of its two conditions. Condition texts and icons are interned in a small dictionary: WeatherAPI
+ * uses a few dozen condition codes, each with a day and a night text and icon, so the dictionary holds each
+ * distinct code, text and icon once. Weather objects are only built when an entry is read, without a location,
+ * which the caller sets from the request. The key itself is not kept; two keys with the same 128-bit hash
+ * would share an entry, which is not expected to happen.
+ *
+ * The slots are grouped in sets of eight, and a key can only be stored in the set its hash points to.
+ * A put takes the slot of the same key, or a free or expired one, and otherwise evicts the oldest entry
+ * of the set. The sets are split over segments, each a direct buffer with its own lock.
+ */
+public class OffHeapWeatherCache {
+
+    // Slot layout, in bytes from the start of the slot.
+    private static final int KEY_HIGH = 0;
+    private static final int KEY_LOW = 8;
+    private static final int FETCHED_AT = 16;
+    private static final int CURRENT_TEMP_C = 24;
+    private static final int CURRENT_TEMP_F = 32;
+    private static final int MIN_TEMP_C = 40;
+    private static final int MIN_TEMP_F = 48;
+    private static final int MAX_TEMP_C = 56;
+    private static final int MAX_TEMP_F = 64;
+    private static final int LAST_UPDATED = 72;
+    private static final int CURRENT_CONDITION = 76;
+    private static final int FORECAST_CONDITION = 80;
+    private static final int PRESENT = 84;
+
+    /**
+     * Size of a slot in bytes.
+     */
+    public static final int SLOT_SIZE = 88;
+
+    // Slots per set.
+    private static final int WAYS = 8;
+
+    // Maximum number of segments, each with its own lock.
+    private static final int MAX_SEGMENTS = 64;
+
+    // Maximum number of distinct conditions, an entry whose condition does not fit is not cached.
+    private static final int MAX_CONDITIONS = 4096;
+
+    // Flags of the PRESENT field, whether the entry has current conditions and a forecast.
+    private static final int HAS_CURRENT = 1;
+    private static final int HAS_FORECAST = 2;
+
+    // Condition id of a missing condition.
+    private static final int NO_CONDITION = -1;
+
+    /**
+     * Weather data read from the cache together with the time it was fetched.
+     *
+     * @param weather The weather data, without a location.
+     * @param fetchedAt The fetch time in epoch milliseconds, as given to put.
+     */
+    public record Entry(Weather weather, long fetchedAt) {
+    }
+
+    private final long expiryInMillis;
+
+    private final Segment[] segments;
+
+    private final int setsPerSegment;
+
+    // Ids of the interned conditions, and the conditions by id.
+    private final Map<Weather.Condition, Integer> conditionIds = new ConcurrentHashMap<>();
+
+    private final Weather.Condition[] conditions = new Weather.Condition[MAX_CONDITIONS];
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder puts = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Allocates the cache.
+     *
+     * @param capacity The number of entries to make room for, rounded up to fill the sets.
+     * @param expiryInMillis Entries older than this are treated as absent and their slots reused.
+     */
+    public OffHeapWeatherCache(int capacity, long expiryInMillis) {
+        this.expiryInMillis = expiryInMillis;
+        int sets = ceilingPowerOfTwo(Math.max(1, (capacity + WAYS - 1) / WAYS));
+        int segmentCount = Math.min(MAX_SEGMENTS, sets);
+        this.setsPerSegment = sets / segmentCount;
+        if ((long) setsPerSegment * WAYS * SLOT_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Off-heap cache capacity too large: " + capacity);
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(ByteBuffer.allocateDirect(setsPerSegment * WAYS * SLOT_SIZE));
+        }
+    }
+
+    /**
+     * Returns the number of entries the cache has slots for.
+     */
+    public long capacity() {
+        return (long) segments.length * setsPerSegment * WAYS;
+    }
+
+    /**
+     * Returns the direct memory taken by the slots.
+     */
+    public long offHeapBytes() {
+        return capacity() * SLOT_SIZE;
+    }
+
+    /**
+     * Returns the number of entries, including expired ones whose slots have not been reused yet.
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Looks up an entry.
+     *
+     * @param key The cache key.
+     * @return The entry, or null if it is not cached or has expired.
+     */
+    public Entry get(String key) {
+        HashCode hash = hash(key);
+        long keyHigh = high(hash);
+        long keyLow = hash.asLong();
+        Segment segment = segment(keyLow);
+        int set = setOffset(keyHigh);
+
+        long fetchedAt;
+        int lastUpdated;
+        double currentTempC;
+        double currentTempF;
+        double minTempC;
+        double minTempF;
+        double maxTempC;
+        double maxTempF;
+        int currentCondition;
+        int forecastCondition;
+        int present;
+        synchronized (segment) {
+            ByteBuffer slots = segment.slots;
+            int slot = find(slots, set, keyHigh, keyLow);
+            if (slot < 0) {
+                misses.increment();
+                return null;
+            }
+            fetchedAt = slots.getLong(slot + FETCHED_AT);
+            if (System.currentTimeMillis() - fetchedAt >= expiryInMillis) {
+                slots.putLong(slot + FETCHED_AT, 0);
+                segment.size--;
+                misses.increment();
+                return null;
+            }
+            lastUpdated = slots.getInt(slot + LAST_UPDATED);
+            currentTempC = slots.getDouble(slot + CURRENT_TEMP_C);
+            currentTempF = slots.getDouble(slot + CURRENT_TEMP_F);
+            minTempC = slots.getDouble(slot + MIN_TEMP_C);
+            minTempF = slots.getDouble(slot + MIN_TEMP_F);
+            maxTempC = slots.getDouble(slot + MAX_TEMP_C);
+            maxTempF = slots.getDouble(slot + MAX_TEMP_F);
+            currentCondition = slots.getInt(slot + CURRENT_CONDITION);
+            forecastCondition = slots.getInt(slot + FORECAST_CONDITION);
+            present = slots.getInt(slot + PRESENT);
+        }
+        hits.increment();
+
+        // Build the objects outside the lock.
+        Weather.Current current = (present & HAS_CURRENT) != 0
+            ? new Weather.Current(lastUpdated, currentTempC, currentTempF, condition(currentCondition))
+            : null;
+        Weather.Forecast forecast = (present & HAS_FORECAST) != 0
+            ? new Weather.Forecast(minTempC, minTempF, maxTempC, maxTempF, condition(forecastCondition))
+            : null;
+        return new Entry(new Weather(null, current, forecast, false), fetchedAt);
+    }
+
+    /**
+     * Returns the fetch time of an entry, without counting a hit or miss.
+     *
+     * @param key The cache key.
+     * @return The fetch time in epoch milliseconds, or 0 if the entry is not cached or has expired.
+     */
+    public long fetchedAt(String key) {
+        HashCode hash = hash(key);
+        long keyHigh = high(hash);
+        long keyLow = hash.asLong();
+        Segment segment = segment(keyLow);
+        synchronized (segment) {
+            int slot = find(segment.slots, setOffset(keyHigh), keyHigh, keyLow);
+            if (slot < 0) {
+                return 0;
+            }
+            long fetchedAt = segment.slots.getLong(slot + FETCHED_AT);
+            return System.currentTimeMillis() - fetchedAt < expiryInMillis ? fetchedAt : 0;
+        }
+    }
+
+    /**
+     * Stores an entry, replacing the entry of the same key or evicting the oldest entry of its set.
+     * The location of the weather data is not stored.
+     *
+     * @param key The cache key.
+     * @param weather The weather data.
+     * @param fetchedAt The fetch time in epoch milliseconds.
+     * @return false if the entry was not stored because the condition dictionary is full.
+     */
+    public boolean put(String key, Weather weather, long fetchedAt) {
+        Weather.Current current = weather.getCurrent();
+        Weather.Forecast forecast = weather.getForecast();
+        int currentCondition = current != null ? intern(current.getCondition()) : NO_CONDITION;
+        int forecastCondition = forecast != null ? intern(forecast.getCondition()) : NO_CONDITION;
+        if ((current != null && current.getCondition() != null && currentCondition == NO_CONDITION)
+                || (forecast != null && forecast.getCondition() != null && forecastCondition == NO_CONDITION)) {
+            return false;
+        }
+
+        HashCode hash = hash(key);
+        long keyHigh = high(hash);
+        long keyLow = hash.asLong();
+        Segment segment = segment(keyLow);
+        int set = setOffset(keyHigh);
+        long now = System.currentTimeMillis();
+
+        synchronized (segment) {
+            ByteBuffer slots = segment.slots;
+            int slot = find(slots, set, keyHigh, keyLow);
+            if (slot < 0) {
+                slot = claim(segment, set, now);
+            }
+            slots.putLong(slot + KEY_HIGH, keyHigh);
+            slots.putLong(slot + KEY_LOW, keyLow);
+            slots.putLong(slot + FETCHED_AT, fetchedAt);
+            slots.putInt(slot + PRESENT, (current != null ? HAS_CURRENT : 0) | (forecast != null ? HAS_FORECAST : 0));
+            if (current != null) {
+                slots.putInt(slot + LAST_UPDATED, current.getLastUpdated());
+                slots.putDouble(slot + CURRENT_TEMP_C, current.getTemperatureC());
+                slots.putDouble(slot + CURRENT_TEMP_F, current.getTemperatureF());
+                slots.putInt(slot + CURRENT_CONDITION, currentCondition);
+            }
+            if (forecast != null) {
+                slots.putDouble(slot + MIN_TEMP_C, forecast.getMinTempC());
+                slots.putDouble(slot + MIN_TEMP_F, forecast.getMinTempF());
+                slots.putDouble(slot + MAX_TEMP_C, forecast.getMaxTempC());
+                slots.putDouble(slot + MAX_TEMP_F, forecast.getMaxTempF());
+                slots.putInt(slot + FORECAST_CONDITION, forecastCondition);
+            }
+        }
+        puts.increment();
+        return true;
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param key The cache key.
+     */
+    public void invalidate(String key) {
+        HashCode hash = hash(key);
+        long keyHigh = high(hash);
+        long keyLow = hash.asLong();
+        Segment segment = segment(keyLow);
+        synchronized (segment) {
+            int slot = find(segment.slots, setOffset(keyHigh), keyHigh, keyLow);
+            if (slot >= 0) {
+                segment.slots.putLong(slot + FETCHED_AT, 0);
+                segment.size--;
+            }
+        }
+    }
+
+    /**
+     * Removes all entries. The condition dictionary is kept.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (int slot = 0; slot < segment.slots.capacity(); slot += SLOT_SIZE) {
+                    segment.slots.putLong(slot + FETCHED_AT, 0);
+                }
+                segment.size = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the byte offset of the slot holding the key in its set, or -1.
+     */
+    private static int find(ByteBuffer slots, int set, long keyHigh, long keyLow) {
+        for (int slot = set; slot < set + WAYS * SLOT_SIZE; slot += SLOT_SIZE) {
+            if (slots.getLong(slot + FETCHED_AT) != 0
+                    && slots.getLong(slot + KEY_HIGH) == keyHigh
+                    && slots.getLong(slot + KEY_LOW) == keyLow) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the byte offset of a slot for a new key: a free slot, else an expired one, else the oldest of the set.
+     */
+    private int claim(Segment segment, int set, long now) {
+        ByteBuffer slots = segment.slots;
+        int oldest = set;
+        long oldestFetchedAt = Long.MAX_VALUE;
+        for (int slot = set; slot < set + WAYS * SLOT_SIZE; slot += SLOT_SIZE) {
+            long fetchedAt = slots.getLong(slot + FETCHED_AT);
+            if (fetchedAt == 0) {
+                segment.size++;
+                return slot;
+            }
+            if (fetchedAt < oldestFetchedAt) {
+                oldest = slot;
+                oldestFetchedAt = fetchedAt;
+            }
+        }
+        if (now - oldestFetchedAt < expiryInMillis) {
+            evictions.increment();
+        }
+        return oldest;
+    }
+
+    /**
+     * Returns the id of a condition, adding it to the dictionary if needed.
+     *
+     * @return The id, or NO_CONDITION if the condition is null or the dictionary is full.
+     */
+    private int intern(Weather.Condition condition) {
+        if (condition == null) {
+            return NO_CONDITION;
+        }
+        Integer id = conditionIds.get(condition);
+        if (id != null) {
+            return id;
+        }
+        synchronized (conditions) {
+            id = conditionIds.get(condition);
+            if (id != null) {
+                return id;
+            }
+            int next = conditionIds.size();
+            if (next >= MAX_CONDITIONS) {
+                return NO_CONDITION;
+            }
+            // Conditions are immutable, the dictionary shares the caller's object.
+            conditions[next] = condition;
+            conditionIds.put(condition, next);
+            return next;
+        }
+    }
+
+    private Weather.Condition condition(int id) {
+        return id == NO_CONDITION ? null : conditions[id];
+    }
+
+    private Segment segment(long keyLow) {
+        return segments[(int) (keyLow & (segments.length - 1))];
+    }
+
+    private int setOffset(long keyHigh) {
+        return (int) (keyHigh & (setsPerSegment - 1)) * WAYS * SLOT_SIZE;
+    }
+
+    private static HashCode hash(String key) {
+        return Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8);
+    }
+
+    // The upper half of the hash, asLong() being the lower half.
+    private static long high(HashCode hash) {
+        return ByteBuffer.wrap(hash.asBytes()).getLong(8);
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * A direct buffer of whole sets and the number of entries in it, guarded by the segment's monitor.
+     */
+    private static final class Segment {
+
+        private final ByteBuffer slots;
+
+        private int size;
+
+        private Segment(ByteBuffer slots) {
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * Publishes the size, hit, miss, put and eviction metrics of the cache, under the same names as
+     * CaffeineCacheMetrics, and the direct memory it takes as "cache.off.heap.bytes".
+     *
+     * @param registry The registry.
+     * @param cache The cache.
+     * @param cacheName The name of the cache.
+     */
+    public static void monitor(MeterRegistry registry, OffHeapWeatherCache cache, String cacheName) {
+        new Metrics(cache, cacheName).bindTo(registry);
+    }
+
+    private static final class Metrics extends CacheMeterBinder<OffHeapWeatherCache> {
+
+        private Metrics(OffHeapWeatherCache cache, String cacheName) {
+            super(cache, cacheName, Collections.<Tag>emptyList());
+        }
+
+        @Override
+        protected Long size() {
+            OffHeapWeatherCache cache = getCache();
+            return cache != null ? cache.size() : null;
+        }
+
+        @Override
+        protected long hitCount() {
+            OffHeapWeatherCache cache = getCache();
+            return cache != null ? cache.hits.sum() : 0;
+        }
+
+        @Override
+        protected Long missCount() {
+            OffHeapWeatherCache cache = getCache();
+            return cache != null ? cache.misses.sum() : null;
+        }
+
+        @Override
+        protected Long evictionCount() {
+            OffHeapWeatherCache cache = getCache();
+            return cache != null ? cache.evictions.sum() : null;
+        }
+
+        @Override
+        protected long putCount() {
+            OffHeapWeatherCache cache = getCache();
+            return cache != null ? cache.puts.sum() : 0;
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+            Gauge.builder("cache.off.heap.bytes", getCache(), OffHeapWeatherCache::offHeapBytes)
+                .description("Direct memory taken by the slots of the cache")
+                .tags(getTagsWithCacheName())
+                .register(registry);
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package com.example.weatherapp.cache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * PersistentCacheStore is an append-only file of cache entries that survives restarts.
+ * It is meant as a second-level tier under an in-memory cache: entries are appended on every put,
+ * and looked up on a miss of the in-memory cache or read back to warm it at startup.
+ *
+ * Only the position of the newest record of every key is kept in memory. The file is scanned once
+ * when the store is opened, and rewritten without superseded and expired records whenever those
+ * take up most of it. A record cut short by a crash ends the scan, and the file is truncated to
+ * the last complete record.
+ *
+ * Lookups read the file concurrently, and appends only wait for each other. The file is rewritten
+ * by a background thread into a new file next to it, while lookups and appends go on; the store is
+ * only locked to copy the records appended meanwhile and swap the files. Until the swap succeeds
+ * the old file stays open and in use, so a failed compaction leaves the store as it was.
+ *
+ * The store is a best-effort tier: I/O failures are logged and reported as misses, never thrown.
+ *
+ * @param <V> The value type.
+ */
+public class PersistentCacheStore<V> implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentCacheStore.class);
+
+    // Identifies the file format, "WCS" followed by the format version.
+    private static final int MAGIC = 0x57435301;
+
+    // Size of the header, the magic number.
+    private static final int HEADER_SIZE = Integer.BYTES;
+
+    // Files smaller than this are never compacted.
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    // Records longer than this are taken for a corrupt length, entries are a few hundred bytes.
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+
+    /**
+     * Writes and reads values of the store.
+     *
+     * @param <V> The value type.
+     */
+    public interface Codec<V> {
+        void write(DataOutput out, V value) throws IOException;
+
+        V read(DataInput in) throws IOException;
+    }
+
+    /**
+     * A value read from the store together with the time it was written.
+     *
+     * @param value The value.
+     * @param writtenAt The write time in epoch milliseconds, as given to put.
+     */
+    public record Entry<V>(V value, long writtenAt) {
+    }
+
+    // Position and write time of the newest record of a key.
+    private record Slot(long position, int length, long writtenAt) {
+    }
+
+    private final Path file;
+
+    private final Codec<V> codec;
+
+    private final long expiryInMillis;
+
+    // Newest record of every key in the file.
+    private final Map<String, Slot> index = new ConcurrentHashMap<>();
+
+    // Lookups and appends share the file, swapping in a compacted file and clearing it take it exclusively.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Appends take turns at the end of the file, while holding the read lock.
+    private final Lock appendLock = new ReentrantLock();
+
+    // Runs compactions off the threads that append.
+    private final ThreadPoolExecutor compactionExecutor;
+
+    // Set while a compaction is queued or running.
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private volatile FileChannel channel;
+
+    // Number of times the store was cleared, so that a compaction started before does not bring back records.
+    private long generation;
+
+    // Total size of the records in the file, live or not. Updated under appendLock or the write lock.
+    private long recordBytes;
+
+    // Size of the newest record of every key. Updated under appendLock or the write lock.
+    private long liveBytes;
+
+    /**
+     * Opens the store, creating the file if needed, and indexes its records.
+     *
+     * @param file The file backing the store.
+     * @param codec The codec of the values.
+     * @param expiryInMillis Records older than this are ignored and dropped on compaction.
+     * @throws IOException If the file cannot be created or opened.
+     */
+    public PersistentCacheStore(Path file, Codec<V> codec, long expiryInMillis) throws IOException {
+        this.file = file;
+        this.codec = codec;
+        this.expiryInMillis = expiryInMillis;
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = open(file);
+        load();
+        if (isWasteful()) {
+            compact();
+        }
+
+        compactionExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("cache-store-compaction-%d").setDaemon(true).build());
+        compactionExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the entry stored for the key, or null if there is none or it has expired.
+     *
+     * @param key The key.
+     * @return The entry, or null.
+     */
+    public Entry<V> get(String key) {
+        Slot slot = index.get(key);
+        if (slot == null || isExpired(slot.writtenAt(), System.currentTimeMillis())) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            // The slot may have been moved by a compaction since it was looked up.
+            slot = index.get(key);
+            if (slot == null) {
+                return null;
+            }
+            return readRecord(slot);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read {} from {}: {}", key, file, e.getMessage());
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends an entry for the key, replacing any earlier one.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @param writtenAt The write time in epoch milliseconds, used for expiry.
+     */
+    public void put(String key, V value, long writtenAt) {
+        byte[] record;
+        try {
+            record = encode(key, value, writtenAt);
+        } catch (IOException e) {
+            LOGGER.warn("Could not encode {} for {}: {}", key, file, e.getMessage());
+            return;
+        }
+        if (record.length > MAX_RECORD_SIZE) {
+            // It would be taken for a corrupt record when the file is loaded.
+            LOGGER.warn("Not storing {} in {}, its record takes {} bytes", key, file, record.length);
+            return;
+        }
+
+        boolean wasteful;
+        lock.readLock().lock();
+        appendLock.lock();
+        try {
+            long position = channel.size();
+            writeFully(channel, ByteBuffer.wrap(record), position);
+            Slot previous = index.put(key, new Slot(position, record.length, writtenAt));
+            recordBytes += record.length;
+            liveBytes += record.length - (previous != null ? previous.length() : 0);
+            wasteful = isWasteful();
+        } catch (IOException e) {
+            LOGGER.warn("Could not write {} to {}: {}", key, file, e.getMessage());
+            return;
+        } finally {
+            appendLock.unlock();
+            lock.readLock().unlock();
+        }
+
+        if (wasteful) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Returns the entries that have not expired, newest first.
+     *
+     * @param limit The maximum number of entries to return.
+     * @return Key and entry of the newest entries.
+     */
+    public List<Map.Entry<String, Entry<V>>> newest(int limit) {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Entry<V>>> entries = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            List<Map.Entry<String, Slot>> slots = index.entrySet().stream()
+                .filter(slot -> !isExpired(slot.getValue().writtenAt(), now))
+                .sorted(Comparator.comparingLong((Map.Entry<String, Slot> slot) -> slot.getValue().writtenAt()).reversed())
+                .limit(limit)
+                .toList();
+            for (Map.Entry<String, Slot> slot : slots) {
+                entries.add(Map.entry(slot.getKey(), readRecord(slot.getValue())));
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not read entries from {}: {}", file, e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return entries;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            channel.truncate(HEADER_SIZE);
+            index.clear();
+            generation++;
+            recordBytes = 0;
+            liveBytes = 0;
+        } catch (IOException e) {
+            LOGGER.warn("Could not clear {}: {}", file, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of keys in the store, including expired ones not yet compacted away.
+     *
+     * @return The number of keys.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // A compaction still running finds the channel closed and gives up before swapping the files.
+        compactionExecutor.shutdown();
+        lock.writeLock().lock();
+        try {
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isExpired(long writtenAt, long now) {
+        return now - writtenAt >= expiryInMillis;
+    }
+
+    /**
+     * Opens the file, writing the header to a new file and rejecting files of another format.
+     */
+    private static FileChannel open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            channel.truncate(0);
+            writeFully(channel, ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+            return channel;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.getInt(0) != MAGIC) {
+            // Written by an incompatible version, start over rather than misread it.
+            LOGGER.warn("Discarding {}, it is not in the expected format", file);
+            channel.truncate(0);
+            writeFully(channel, ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+        }
+        return channel;
+    }
+
+    /**
+     * Scans the file sequentially and indexes the newest record of every key.
+     * Records are read by their header only, values are not decoded.
+     */
+    private void load() throws IOException {
+        long now = System.currentTimeMillis();
+        long fileSize = channel.size();
+        long position = HEADER_SIZE;
+        channel.position(position);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        try {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                // A length that does not fit in the rest of the file was cut short or corrupted, like a torn tail.
+                int bodyLength = length - Integer.BYTES;
+                if (bodyLength <= 0 || length > MAX_RECORD_SIZE || length > fileSize - position) {
+                    break;
+                }
+                byte[] body = new byte[bodyLength];
+                in.readFully(body);
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+                String key = record.readUTF();
+                long writtenAt = record.readLong();
+                if (!isExpired(writtenAt, now)) {
+                    index.put(key, new Slot(position, length, writtenAt));
+                } else {
+                    index.remove(key);
+                }
+                position += length;
+            }
+        } catch (EOFException e) {
+            // The last record was cut short, it is dropped below.
+        }
+
+        if (position < channel.size()) {
+            LOGGER.warn("Truncating incomplete record at {} in {}", position, file);
+            channel.truncate(position);
+        }
+        recordBytes = position - HEADER_SIZE;
+        liveBytes = index.values().stream().mapToLong(Slot::length).sum();
+        LOGGER.info("Loaded {} entries from {}", index.size(), file);
+    }
+
+    /**
+     * Checks whether superseded and expired records take up most of the file.
+     */
+    private boolean isWasteful() {
+        return recordBytes >= MIN_COMPACTION_SIZE && liveBytes * 2 <= recordBytes;
+    }
+
+    /**
+     * Queues a compaction on the background thread, unless one is already queued or running.
+     */
+    private void scheduleCompaction() {
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactionExecutor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Could not compact {}, it stays in use as it is: {}", file, e.getMessage());
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The store is closed.
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * Rewrites the file with only the live records. The records are copied to a new file next to it without
+     * holding a lock, then the records appended meanwhile are copied and the new file swapped in under the
+     * write lock. If anything fails before the swap, the new file is deleted and the old one stays in use.
+     * Called from the background thread, or from the constructor.
+     */
+    private void compact() throws IOException {
+        // Take a consistent view of the file: appends are waiting on appendLock.
+        FileChannel source;
+        Map<String, Slot> snapshot;
+        long snapshotEnd;
+        long snapshotGeneration;
+        lock.readLock().lock();
+        appendLock.lock();
+        try {
+            source = channel;
+            snapshot = new HashMap<>(index);
+            snapshotEnd = source.size();
+            snapshotGeneration = generation;
+        } finally {
+            appendLock.unlock();
+            lock.readLock().unlock();
+        }
+
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean swapped = false;
+        try {
+            writeFully(out, ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+
+            // Expired records are only dropped here, lookups already ignore them.
+            long now = System.currentTimeMillis();
+            Map<String, Slot> moved = new HashMap<>();
+            long position = HEADER_SIZE;
+            for (Map.Entry<String, Slot> entry : snapshot.entrySet()) {
+                Slot slot = entry.getValue();
+                if (isExpired(slot.writtenAt(), now)) {
+                    continue;
+                }
+                copyRecord(source, slot, out, position);
+                moved.put(entry.getKey(), new Slot(position, slot.length(), slot.writtenAt()));
+                position += slot.length();
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (generation != snapshotGeneration || !channel.isOpen()) {
+                    // Cleared or closed meanwhile, the copy is out of date.
+                    return;
+                }
+
+                // Records below the end of the snapshot are the ones copied, the others were appended meanwhile.
+                Map<String, Slot> swappedIndex = new HashMap<>();
+                for (Map.Entry<String, Slot> entry : index.entrySet()) {
+                    Slot slot = entry.getValue();
+                    if (slot.position() >= snapshotEnd) {
+                        copyRecord(channel, slot, out, position);
+                        swappedIndex.put(entry.getKey(), new Slot(position, slot.length(), slot.writtenAt()));
+                        position += slot.length();
+                    } else if (moved.containsKey(entry.getKey())) {
+                        swappedIndex.put(entry.getKey(), moved.get(entry.getKey()));
+                    }
+                }
+                out.force(false);
+                Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                // The channel follows the file it was opened on to its new name.
+                FileChannel previous = channel;
+                channel = out;
+                swapped = true;
+                index.keySet().retainAll(swappedIndex.keySet());
+                index.putAll(swappedIndex);
+                recordBytes = position - HEADER_SIZE;
+                liveBytes = recordBytes;
+                closeQuietly(previous);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            LOGGER.info("Compacted {} to {} entries", file, index.size());
+        } finally {
+            if (!swapped) {
+                closeQuietly(out);
+                Files.deleteIfExists(compacted);
+            }
+        }
+    }
+
+    private void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close a channel of {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Encodes a record: its length, the key, the write time and the value.
+     */
+    private byte[] encode(String key, V value, long writtenAt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeUTF(key);
+        out.writeLong(writtenAt);
+        codec.write(out, value);
+        out.flush();
+
+        byte[] record = bytes.toByteArray();
+        ByteBuffer.wrap(record).putInt(0, record.length);
+        return record;
+    }
+
+    private Entry<V> readRecord(Slot slot) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(slot.length());
+        readFully(channel, record, slot.position());
+
+        DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream(record.array(), Integer.BYTES, slot.length() - Integer.BYTES));
+        in.readUTF();
+        long writtenAt = in.readLong();
+        return new Entry<>(codec.read(in), writtenAt);
+    }
+
+    private static void copyRecord(FileChannel from, Slot slot, FileChannel to, long position) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(slot.length());
+        readFully(from, record, slot.position());
+        record.flip();
+        writeFully(to, record, position);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Record extends past the end of the file");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
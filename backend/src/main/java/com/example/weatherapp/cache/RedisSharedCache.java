@@ -0,0 +1,97 @@
+package com.example.weatherapp.cache;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+
+/**
+ * RedisSharedCache keeps the shared cache on a Redis server, through a single Lettuce connection shared by
+ * all threads. Keys are set with PSETEX, so that Redis expires them, and commands fail after the configured
+ * timeout rather than holding a request up.
+ * The connection is opened when the cache is created, and re-established by Lettuce if it drops.
+ */
+public class RedisSharedCache implements SharedCache {
+
+    // Keys deleted per SCAN round by clear.
+    private static final int SCAN_COUNT = 1000;
+
+    private final RedisClient client;
+
+    private final StatefulRedisConnection<String, byte[]> connection;
+
+    private final RedisCommands<String, byte[]> commands;
+
+    /**
+     * Connects to a Redis server.
+     *
+     * @param uri The URI of the server, e.g. redis://localhost:6379.
+     * @param timeout The maximum time a command may take.
+     * @throws IOException If the server cannot be reached.
+     */
+    public RedisSharedCache(String uri, Duration timeout) throws IOException {
+        RedisURI redisUri = RedisURI.create(uri);
+        redisUri.setTimeout(timeout);
+        this.client = RedisClient.create(redisUri);
+        try {
+            this.connection = client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+        } catch (RedisException e) {
+            client.shutdown();
+            throw new IOException("Could not connect to Redis at " + redisUri.getHost() + ": " + e.getMessage(), e);
+        }
+        this.commands = connection.sync();
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        try {
+            return commands.get(key);
+        } catch (RedisException e) {
+            throw new IOException("Redis GET failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] value, long ttlInMillis) throws IOException {
+        try {
+            commands.psetex(key, ttlInMillis, value);
+        } catch (RedisException e) {
+            throw new IOException("Redis PSETEX failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void clear(String prefix) throws IOException {
+        try {
+            ScanArgs args = ScanArgs.Builder.matches(prefix + "*").limit(SCAN_COUNT);
+            KeyScanCursor<String> cursor = commands.scan(args);
+            while (true) {
+                if (!cursor.getKeys().isEmpty()) {
+                    commands.del(cursor.getKeys().toArray(new String[0]));
+                }
+                if (cursor.isFinished()) {
+                    break;
+                }
+                cursor = commands.scan(ScanCursor.of(cursor.getCursor()), args);
+            }
+        } catch (RedisException e) {
+            throw new IOException("Redis SCAN failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+        client.shutdown();
+    }
+}
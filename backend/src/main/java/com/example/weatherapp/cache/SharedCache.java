@@ -0,0 +1,68 @@
+package com.example.weatherapp.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * SharedCache is a key-value store shared by all instances of the application, such as a Redis server.
+ * It holds serialized values with a time to live, and is meant as a tier under the in-memory caches of every
+ * instance, so that a value fetched by one instance is reused by the others. See SharedCacheTier.
+ */
+public interface SharedCache extends Closeable {
+
+    /**
+     * Value of shared-cache.backend selecting the in-process stand-in.
+     */
+    String LOCAL_BACKEND = "local";
+
+    /**
+     * Value of shared-cache.backend selecting a Redis server.
+     */
+    String REDIS_BACKEND = "redis";
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key The key.
+     * @return The value, or null if the key is missing or has expired.
+     * @throws IOException If the store cannot be reached.
+     */
+    byte[] get(String key) throws IOException;
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @param ttlInMillis The time after which the key expires.
+     * @throws IOException If the store cannot be reached.
+     */
+    void put(String key, byte[] value, long ttlInMillis) throws IOException;
+
+    /**
+     * Deletes all keys starting with a prefix.
+     *
+     * @param prefix The key prefix.
+     * @throws IOException If the store cannot be reached.
+     */
+    void clear(String prefix) throws IOException;
+
+    /**
+     * Opens a shared cache.
+     *
+     * @param backend "local" for the in-process stand-in, or "redis".
+     * @param redisUri The URI of the Redis server, used by the redis backend.
+     * @param timeout The maximum time a command may take, used by the redis backend.
+     * @return The shared cache.
+     * @throws IOException If the store cannot be reached.
+     * @throws IllegalArgumentException If the backend is unknown.
+     */
+    static SharedCache open(String backend, String redisUri, Duration timeout) throws IOException {
+        return switch (backend) {
+            case LOCAL_BACKEND -> LocalSharedCache.INSTANCE;
+            case REDIS_BACKEND -> new RedisSharedCache(redisUri, timeout);
+            default -> throw new IllegalArgumentException("Unknown shared cache backend: " + backend);
+        };
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.weatherapp.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * SharedCacheTier is the tier of one cache in a SharedCache, under the in-memory cache of every instance.
+ * Values are looked up on a miss of the in-memory cache, and written whenever an instance fetches them,
+ * so that the other instances do not fetch them again.
+ *
+ * Every value is stored with the time it was fetched, and expires in the shared cache when it would expire
+ * in memory: its time to live is the expiry of the cache minus its age. The in-memory caches keep the entries
+ * they read from the shared cache with that same fetch time, so an entry expires at the same moment on every
+ * instance whichever one fetched it.
+ *
+ * Keys are namespaced by the cache name and the serializer format. The tier is best-effort like the
+ * persistent tier: failures of the shared cache are logged and reported as misses, never thrown.
+ * Lookups are published as "cache.shared.gets" and writes as "cache.shared.puts", tagged with the cache
+ * name and the result.
+ * Lookups and writes block on the shared cache, so the reactive paths of the services call them on a worker
+ * thread rather than on the event loop.
+ *
+ * @param <V> The value type.
+ */
+public class SharedCacheTier<V> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedCacheTier.class);
+
+    private final SharedCache sharedCache;
+
+    private final CacheSerializer<V> serializer;
+
+    // Prefix of the keys of this cache.
+    private final String prefix;
+
+    private final long expiryInMillis;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter getErrors;
+
+    private final Counter puts;
+
+    private final Counter putErrors;
+
+    /**
+     * Creates the tier of a cache.
+     *
+     * @param sharedCache The shared cache.
+     * @param serializer The serializer of the values.
+     * @param keyPrefix The prefix of all keys of the application.
+     * @param name The name of the cache, e.g. "weather".
+     * @param expiryInMillis How long a value is kept after it was fetched.
+     * @param meterRegistry The registry of the lookup and write counters.
+     */
+    public SharedCacheTier(SharedCache sharedCache, CacheSerializer<V> serializer, String keyPrefix, String name,
+                           long expiryInMillis, MeterRegistry meterRegistry) {
+        this.sharedCache = sharedCache;
+        this.serializer = serializer;
+        this.prefix = keyPrefix + name + ":" + serializer.name() + ":";
+        this.expiryInMillis = expiryInMillis;
+        this.hits = lookups(meterRegistry, name, "hit");
+        this.misses = lookups(meterRegistry, name, "miss");
+        this.getErrors = lookups(meterRegistry, name, "error");
+        this.puts = writes(meterRegistry, name, "success");
+        this.putErrors = writes(meterRegistry, name, "error");
+    }
+
+    /**
+     * Looks up a value.
+     *
+     * @param key The cache key.
+     * @return The value with its fetch time, or null if it is missing, has expired or cannot be read.
+     */
+    public PersistentCacheStore.Entry<V> get(String key) {
+        try {
+            byte[] bytes = sharedCache.get(prefix + key);
+            if (bytes == null || bytes.length < Long.BYTES) {
+                misses.increment();
+                return null;
+            }
+            long writtenAt = ByteBuffer.wrap(bytes).getLong();
+            if (System.currentTimeMillis() - writtenAt >= expiryInMillis) {
+                // The shared cache may keep a key slightly past its expiry.
+                misses.increment();
+                return null;
+            }
+            V value = serializer.deserialize(Arrays.copyOfRange(bytes, Long.BYTES, bytes.length));
+            hits.increment();
+            return new PersistentCacheStore.Entry<>(value, writtenAt);
+        } catch (IOException | RuntimeException e) {
+            getErrors.increment();
+            LOGGER.debug("Shared cache lookup of {} failed: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a value, unless it has already expired.
+     *
+     * @param key The cache key.
+     * @param value The value.
+     * @param writtenAt The epoch millis at which the value was fetched.
+     */
+    public void put(String key, V value, long writtenAt) {
+        long ttlInMillis = expiryInMillis - (System.currentTimeMillis() - writtenAt);
+        if (ttlInMillis <= 0) {
+            return;
+        }
+        try {
+            byte[] serialized = serializer.serialize(value);
+            byte[] bytes = ByteBuffer.allocate(Long.BYTES + serialized.length)
+                .putLong(writtenAt)
+                .put(serialized)
+                .array();
+            sharedCache.put(prefix + key, bytes, ttlInMillis);
+            puts.increment();
+        } catch (IOException | RuntimeException e) {
+            putErrors.increment();
+            LOGGER.debug("Shared cache write of {} failed: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes all values of this cache, for every instance.
+     */
+    public void clear() {
+        try {
+            sharedCache.clear(prefix);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not clear the shared cache {}: {}", prefix, e.getMessage());
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String cache, String result) {
+        return Counter.builder("cache.shared.gets")
+            .description("Lookups in the shared cache")
+            .tag("cache", cache)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private static Counter writes(MeterRegistry meterRegistry, String cache, String result) {
+        return Counter.builder("cache.shared.puts")
+            .description("Writes to the shared cache")
+            .tag("cache", cache)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.weatherapp.cache;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight collapses concurrent calls for the same key into one in-flight call.
+ * The first caller for a key runs the loader, every other caller arriving while it runs
+ * waits for and shares its result. Results and failures are not remembered once the call
+ * completes, so a failure is propagated to all waiters but never cached.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type. Null values are allowed.
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * A call that loads a value and may fail with an IOException.
+     *
+     * @param <V> The value type.
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    // Calls currently in flight, keyed by the key they load.
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the loader for the given key, or joins a call that is already in flight for it.
+     *
+     * @param key The key identifying the call.
+     * @param loader The call to run if no call is in flight for the key.
+     * @return The value loaded by the call.
+     * @throws IOException If the call failed with an IOException.
+     */
+    public V execute(K key, Loader<V> loader) throws IOException {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            // Another caller is already loading this key, wait for its result.
+            return await(existing);
+        }
+
+        try {
+            V value = loader.load();
+            call.complete(value);
+            return value;
+        } catch (IOException | RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Starts the asynchronous loader for the given key, or joins a call that is already in flight for it.
+     * Blocking and asynchronous callers share the same in-flight calls.
+     *
+     * @param key The key identifying the call.
+     * @param loader Starts the call if no call is in flight for the key.
+     * @return A future completing with the value loaded by the call. Cancelling it does not cancel the shared call.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            // Another caller is already loading this key, share its result.
+            return existing.copy();
+        }
+
+        try {
+            loader.get().whenComplete((value, failure) -> {
+                inFlight.remove(key, call);
+                if (failure != null) {
+                    call.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause()
+                        : failure);
+                } else {
+                    call.complete(value);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+        }
+        return call.copy();
+    }
+
+    private V await(CompletableFuture<V> call) throws IOException {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an in-flight call.");
+        } catch (ExecutionException e) {
+            // Rethrow the original failure so that waiters see the same exception type as the caller that loaded.
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -1,9 +1,7 @@
 package com.example.weatherapp.configuration;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 
 import lombok.Getter;
 
@@ -15,6 +13,7 @@ public class AppConfiguration {
      * addressServiceApiKey holds the API key for the address service (e.g., Google Maps Geocoding API).
      * The value is injected from the environment variables in the application.yaml.
      * The property name in the properties file or environment is "address-service.api-key".
+     * Several keys may be given separated by commas, calls are then spread over them.
      *
      * To set this environment variable, use:
      * `export ADDRESS_SERVICE_API_KEY="YOUR_ADDRESS_SERVICE_API_KEY"`
@@ -26,6 +25,7 @@ public class AppConfiguration {
      * weatherServiceApiKey holds the API key for the weather service (e.g., WeatherAPI).
      * The value is injected from the environment variables in the application.yaml.
      * The property name in the properties file or environment is "weather-service.api-key".
+     * Several keys may be given separated by commas, calls are then spread over them.
      *
      * To set this environment variable, use:
      * `export WEATHER_SERVICE_API_KEY="YOUR_WEATHER_SERVICE_API_KEY"`
@@ -33,20 +33,387 @@ public class AppConfiguration {
     @Value("${weather-service.api-key}")
     private String weatherServiceApiKey;
 
+    /**
+     * The URL of the Geocoding API endpoint. Only changed to point the application at a simulator, e.g. for load tests.
+     */
+    @Value("${address-service.base-url:https://maps.googleapis.com/maps/api/geocode/json}")
+    private String addressServiceBaseUrl;
+
+    /**
+     * The URL of the WeatherAPI forecast endpoint. Only changed to point the application at a simulator, e.g. for load tests.
+     */
+    @Value("${weather-service.base-url:https://api.weatherapi.com/v1/forecast.json}")
+    private String weatherServiceBaseUrl;
+
     /**
      * The value is used by the WeatherService cache to expire an entry after the defined number of seconds.
      */
     @Value("${weather-service.cache-expiry-seconds:1800}")
     private int cacheExpiryInSeconds;
 
+    /**
+     * When enabled, the WeatherService cache serves entries past cache-expiry-seconds as stale
+     * while refreshing them in the background, until cache-hard-expiry-seconds.
+     */
+    @Value("${weather-service.stale-while-revalidate:false}")
+    private boolean staleWhileRevalidate;
+
+    /**
+     * The value is used by the WeatherService cache to drop an entry for good after the defined number of seconds.
+     * Only used when stale-while-revalidate is enabled.
+     */
+    @Value("${weather-service.cache-hard-expiry-seconds:3600}")
+    private int cacheHardExpiryInSeconds;
+
+    /**
+     * Entries within this number of seconds of cache-expiry-seconds are refreshed in the background before they expire.
+     * Only used when stale-while-revalidate is enabled.
+     */
+    @Value("${weather-service.refresh-ahead-seconds:60}")
+    private int refreshAheadInSeconds;
+
+    /**
+     * The number of threads used by the WeatherService for background refreshes.
+     */
+    @Value("${weather-service.refresh-threads:2}")
+    private int refreshThreads;
+
+    /**
+     * The maximum number of background refreshes waiting for a thread. Further refreshes are dropped.
+     */
+    @Value("${weather-service.refresh-queue-size:100}")
+    private int refreshQueueSize;
+
+    /**
+     * When enabled, batch lookups fetch uncached forecasts with WeatherAPI bulk requests (requires a plan with bulk access).
+     */
+    @Value("${weather-service.bulk-enabled:false}")
+    private boolean bulkEnabled;
+
+    /**
+     * The maximum number of locations sent in one WeatherAPI bulk request.
+     */
+    @Value("${weather-service.bulk-max-locations:50}")
+    private int bulkMaxLocations;
+
+    /**
+     * The maximum number of items accepted by one batch weather request.
+     */
+    @Value("${weather-service.batch-max-items:500}")
+    private int batchMaxItems;
+
+    /**
+     * The maximum number of geocoding and forecast calls a batch weather request makes concurrently.
+     */
+    @Value("${weather-service.batch-parallelism:16}")
+    private int batchParallelism;
+
+    /**
+     * The length of the geohash used to key the WeatherService cache by coordinates, so that nearby locations
+     * share a forecast. 5 is a cell of about 4.9 km x 4.9 km, 6 of about 1.2 km x 0.6 km.
+     * 0 keys the cache by zip code, and addresses without a zip code are then not looked up.
+     */
+    @Value("${weather-service.geohash-precision:5}")
+    private int geohashPrecision;
+
+    /**
+     * The maximum number of entries kept by the WeatherService cache on the heap.
+     */
+    @Value("${weather-service.cache-maximum-size:100000}")
+    private long weatherCacheMaximumSize;
+
+    /**
+     * The maximum estimated heap size, in megabytes, of the WeatherService cache entries.
+     * When above 0, the cache is bounded by the memory its entries take rather than by cache-maximum-size.
+     */
+    @Value("${weather-service.cache-maximum-megabytes:0}")
+    private long weatherCacheMaximumMegabytes;
+
+    /**
+     * The in-memory backend of the WeatherService cache: "heap" keeps Weather objects in a Caffeine cache,
+     * "off-heap" packs each entry into a fixed-width slot of direct memory (see OffHeapWeatherCache).
+     */
+    @Value("${weather-service.cache-backend:heap}")
+    private String weatherCacheBackend;
+
+    /**
+     * The number of entries held by the off-heap WeatherService cache, each taking 88 bytes of direct memory.
+     * Above a few million entries, raise -XX:MaxDirectMemorySize accordingly.
+     */
+    @Value("${weather-service.off-heap-capacity:100000}")
+    private int offHeapCacheCapacity;
+
+    /**
+     * The number of WeatherAPI calls allowed per second and API key, 0 for no limit.
+     */
+    @Value("${weather-service.rate-limit-per-second:0}")
+    private double weatherRateLimitPerSecond;
+
+    /**
+     * The number of WeatherAPI calls an API key may make at once, above its rate limit.
+     */
+    @Value("${weather-service.rate-limit-burst:10}")
+    private int weatherRateLimitBurst;
+
+    /**
+     * The number of WeatherAPI calls per calendar month (UTC) and API key, 0 for no budget.
+     * A bulk request counts one call per location. The count is kept per instance of the application.
+     */
+    @Value("${weather-service.monthly-quota:0}")
+    private long weatherMonthlyQuota;
+
+    /**
+     * The value is used by the AddressService cache to expire a geocoded location after the defined number of seconds.
+     */
+    @Value("${address-service.cache-expiry-seconds:86400}")
+    private int geocodeCacheExpiryInSeconds;
+
+    /**
+     * The value is used by the AddressService cache to expire an address that could not be geocoded.
+     * It is kept short so that a transient lookup failure does not hide an address for long.
+     */
+    @Value("${address-service.negative-cache-expiry-seconds:300}")
+    private int geocodeNegativeCacheExpiryInSeconds;
+
+    /**
+     * The maximum number of addresses kept by the AddressService cache.
+     */
+    @Value("${address-service.cache-maximum-size:10000}")
+    private long geocodeCacheMaximumSize;
+
+    /**
+     * The maximum number of addresses that could not be geocoded kept by the AddressService.
+     * This cache is always bounded by its number of entries, as its entries are only keys.
+     */
+    @Value("${address-service.negative-cache-maximum-size:1000}")
+    private long geocodeNegativeCacheMaximumSize;
+
+    /**
+     * The maximum estimated heap size, in megabytes, of the AddressService cache entries.
+     * When above 0, the cache is bounded by the memory its entries take rather than by cache-maximum-size.
+     */
+    @Value("${address-service.cache-maximum-megabytes:0}")
+    private long geocodeCacheMaximumMegabytes;
+
+    /**
+     * The number of Geocoding API calls allowed per second and API key, 0 for no limit.
+     */
+    @Value("${address-service.rate-limit-per-second:0}")
+    private double geocodeRateLimitPerSecond;
+
+    /**
+     * The number of Geocoding API calls an API key may make at once, above its rate limit.
+     */
+    @Value("${address-service.rate-limit-burst:10}")
+    private int geocodeRateLimitBurst;
+
+    /**
+     * The number of Geocoding API calls per calendar month (UTC) and API key, 0 for no budget.
+     * The count is kept per instance of the application.
+     */
+    @Value("${address-service.monthly-quota:0}")
+    private long geocodeMonthlyQuota;
+
+    /**
+     * When the budget left this month across the API keys of an upstream falls below this fraction,
+     * optional calls such as background refreshes are skipped and cached or stale data is served instead.
+     */
+    @Value("${api-quota.low-budget-ratio:0.1}")
+    private double lowBudgetRatio;
+
+    /**
+     * The fraction of Geocoding API responses whose payload is logged to the "upstream.payloads" logger,
+     * between 0 (none) and 1 (all).
+     */
+    @Value("${address-service.payload-log-sample-rate:0}")
+    private double geocodePayloadLogSampleRate;
+
+    /**
+     * When enabled, geocoded locations and weather data are also written to files under cache-store.directory,
+     * which are read on a miss of the in-memory caches and used to warm them at startup.
+     */
+    @Value("${cache-store.enabled:false}")
+    private boolean cacheStoreEnabled;
+
+    /**
+     * The directory holding the files of the persistent cache tier.
+     */
+    @Value("${cache-store.directory:cache}")
+    private String cacheStoreDirectory;
+
+    /**
+     * The cache shared by all instances of the application, under their in-memory caches: "none", "redis", or
+     * "local" for an in-process stand-in shared by the services of one JVM. Geocoded locations and weather data
+     * fetched by one instance are then served to the others until they expire.
+     */
+    @Value("${shared-cache.backend:none}")
+    private String sharedCacheBackend;
+
+    /**
+     * The URI of the Redis server of the redis backend.
+     */
+    @Value("${shared-cache.redis-uri:redis://localhost:6379}")
+    private String sharedCacheRedisUri;
+
+    /**
+     * The maximum number of milliseconds a shared cache command may take, after which it counts as a miss.
+     */
+    @Value("${shared-cache.timeout-ms:50}")
+    private long sharedCacheTimeoutInMillis;
+
+    /**
+     * The format of the values in the shared cache: "binary", compact, or "json".
+     */
+    @Value("${shared-cache.serializer:binary}")
+    private String sharedCacheSerializer;
+
+    /**
+     * The prefix of the shared cache keys of the application.
+     */
+    @Value("${shared-cache.key-prefix:weatherapp:}")
+    private String sharedCacheKeyPrefix;
+
+    /**
+     * When enabled, the most requested WeatherService cache keys are tracked, and a background task refreshes
+     * their entries before they expire, so that hot locations are always answered from the cache.
+     */
+    @Value("${prewarm.enabled:false}")
+    private boolean prewarmEnabled;
+
+    /**
+     * The number of most requested cache keys kept warm.
+     */
+    @Value("${prewarm.top-k:1000}")
+    private int prewarmTopK;
+
+    /**
+     * The number of seconds between two pre-warm runs. Each run refreshes the hot entries that would expire
+     * before the next one, so it should be well below weather-service.cache-expiry-seconds.
+     */
+    @Value("${prewarm.interval-seconds:30}")
+    private int prewarmIntervalInSeconds;
+
+    /**
+     * The number of WeatherAPI calls per minute pre-warming may spend. Refreshes beyond it are skipped,
+     * least requested keys first.
+     */
+    @Value("${prewarm.calls-per-minute:60}")
+    private int prewarmCallsPerMinute;
+
+    /**
+     * When enabled, calls to each upstream go through a circuit breaker that rejects them while the upstream
+     * is failing or too slow, so that requests fail fast, or are answered from stale cache entries.
+     */
+    @Value("${circuit-breaker.enabled:false}")
+    private boolean circuitBreakerEnabled;
+
+    /**
+     * The percentage of failed calls within the window at which the circuit opens.
+     */
+    @Value("${circuit-breaker.failure-rate-threshold:50}")
+    private int circuitBreakerFailureRateThreshold;
+
+    /**
+     * The percentage of slow calls within the window at which the circuit opens.
+     */
+    @Value("${circuit-breaker.slow-call-rate-threshold:80}")
+    private int circuitBreakerSlowCallRateThreshold;
+
+    /**
+     * Calls taking at least the defined number of milliseconds count as slow.
+     */
+    @Value("${circuit-breaker.slow-call-duration-ms:3000}")
+    private long circuitBreakerSlowCallDurationInMillis;
+
+    /**
+     * The number of last calls the failure and slow-call rates are computed over.
+     */
+    @Value("${circuit-breaker.window-size:20}")
+    private int circuitBreakerWindowSize;
+
+    /**
+     * The number of calls needed in the window before the circuit may open.
+     */
+    @Value("${circuit-breaker.minimum-calls:10}")
+    private int circuitBreakerMinimumCalls;
+
+    /**
+     * The number of milliseconds an open circuit rejects calls before letting probe calls through.
+     */
+    @Value("${circuit-breaker.open-duration-ms:10000}")
+    private long circuitBreakerOpenDurationInMillis;
+
+    /**
+     * The number of probe calls that must succeed to close the circuit again.
+     */
+    @Value("${circuit-breaker.half-open-calls:3}")
+    private int circuitBreakerHalfOpenCalls;
+
+    /**
+     * When enabled, the number of calls in flight to each upstream is capped by a limit that grows while
+     * the upstream is healthy and shrinks when calls fail or slow down. Calls over the limit are rejected.
+     */
+    @Value("${concurrency-limit.enabled:false}")
+    private boolean concurrencyLimitEnabled;
+
+    /**
+     * The limit of calls in flight per upstream to start with.
+     */
+    @Value("${concurrency-limit.initial:20}")
+    private int concurrencyLimitInitial;
+
+    /**
+     * The lowest limit of calls in flight per upstream.
+     */
+    @Value("${concurrency-limit.min:2}")
+    private int concurrencyLimitMin;
+
+    /**
+     * The highest limit of calls in flight per upstream.
+     */
+    @Value("${concurrency-limit.max:200}")
+    private int concurrencyLimitMax;
+
+    /**
+     * Calls taking longer than the defined number of milliseconds reduce the limit.
+     */
+    @Value("${concurrency-limit.latency-threshold-ms:1000}")
+    private long concurrencyLimitLatencyThresholdInMillis;
+
+    /**
+     * The factor the limit is multiplied by when a call fails or is slow.
+     */
+    @Value("${concurrency-limit.backoff-ratio:0.9}")
+    private double concurrencyLimitBackoffRatio;
+
+    /**
+     * When enabled, an upstream call that has not answered within the hedging delay is sent a second time,
+     * and the first of the two calls to answer is used while the other is cancelled.
+     */
+    @Value("${hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    /**
+     * The percentile of recent call latencies used as the hedging delay, e.g. 0.95 to hedge the slowest 5% of calls.
+     */
+    @Value("${hedging.percentile:0.95}")
+    private double hedgingPercentile;
+
+    /**
+     * The shortest hedging delay in milliseconds, whatever the latency of recent calls.
+     */
+    @Value("${hedging.min-delay-ms:50}")
+    private long hedgingMinDelayInMillis;
+
+    /**
+     * The highest number of hedged calls per upstream call, e.g. 0.05 for at most 5 extra calls per 100.
+     */
+    @Value("${hedging.max-ratio:0.05}")
+    private double hedgingMaxRatio;
+
 
     // @Bean
     // public AppConfiguration appConfiguration() {
     //     return new AppConfiguration();
     // }
-
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
 }
@@ -0,0 +1,401 @@
+package com.example.weatherapp.configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToIntFunction;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import com.example.weatherapp.http.Hedging;
+import com.example.weatherapp.http.InFlightLimitInterceptor;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.netty.channel.ChannelOption;
+import reactor.netty.resources.ConnectionProvider;
+
+import lombok.Getter;
+
+/**
+ * HttpClientConfiguration builds the outbound HTTP client shared by AddressService and WeatherService.
+ * By default it uses a pooled Apache HttpClient with keep-alive connections, one pool per upstream host,
+ * connect, read and total-deadline timeouts, and pool metrics exposed through actuator.
+ * With http-client.http2-enabled it uses the JDK HttpClient instead, which negotiates HTTP/2 where the
+ * upstream supports it and multiplexes requests over its own connections.
+ * The reactive endpoint uses a WebClient on Reactor Netty configured with the same limits.
+ */
+@Configuration
+@Getter
+public class HttpClientConfiguration {
+
+    /**
+     * The maximum number of milliseconds to wait for a connection to an upstream to be established.
+     */
+    @Value("${http-client.connect-timeout-ms:2000}")
+    private int connectTimeoutInMillis;
+
+    /**
+     * The maximum number of milliseconds to wait for data on an open connection.
+     */
+    @Value("${http-client.read-timeout-ms:5000}")
+    private int readTimeoutInMillis;
+
+    /**
+     * The maximum number of milliseconds a whole upstream call may take, after which it is aborted.
+     */
+    @Value("${http-client.deadline-ms:10000}")
+    private int deadlineInMillis;
+
+    /**
+     * The maximum number of milliseconds to wait for a free connection from the pool.
+     */
+    @Value("${http-client.connection-request-timeout-ms:1000}")
+    private int connectionRequestTimeoutInMillis;
+
+    /**
+     * The maximum number of pooled connections per upstream host.
+     */
+    @Value("${http-client.max-connections-per-host:50}")
+    private int maxConnectionsPerHost;
+
+    /**
+     * The maximum number of pooled connections across all upstream hosts.
+     */
+    @Value("${http-client.max-connections-total:200}")
+    private int maxConnectionsTotal;
+
+    /**
+     * Idle pooled connections are closed after the defined number of seconds.
+     */
+    @Value("${http-client.idle-timeout-seconds:30}")
+    private int idleTimeoutInSeconds;
+
+    /**
+     * The upstream hosts for which per-host pool metrics are published.
+     */
+    @Value("${http-client.upstream-hosts:maps.googleapis.com,api.weatherapi.com}")
+    private List<String> upstreamHosts;
+
+    /**
+     * When enabled, the JDK HttpClient is used so that HTTP/2 is negotiated where available.
+     * Pool metrics are not available in this mode.
+     */
+    @Value("${http-client.http2-enabled:false}")
+    private boolean http2Enabled;
+
+    /**
+     * The maximum number of outbound calls in flight at the same time, 0 for no limit.
+     * Mostly useful together with spring.threads.virtual.enabled, where request threads are no longer pooled.
+     */
+    @Value("${http-client.max-in-flight-requests:0}")
+    private int maxInFlightRequests;
+
+    /**
+     * The maximum number of milliseconds a call waits for an in-flight slot before it fails.
+     */
+    @Value("${http-client.in-flight-acquire-timeout-ms:1000}")
+    private int inFlightAcquireTimeoutInMillis;
+
+    @Bean
+    public ClientHttpRequestFactory clientHttpRequestFactory(MeterRegistry meterRegistry) {
+        if (http2Enabled) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutInMillis))
+                .build();
+            JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+            // The JDK client has a single timeout from sending the request to receiving the response headers.
+            requestFactory.setReadTimeout(Duration.ofMillis(deadlineInMillis));
+            return requestFactory;
+        }
+
+        // Connections are pooled per route, so each upstream host gets its own pool of up to maxConnectionsPerHost.
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxConnectionsTotal)
+            .setMaxConnPerRoute(maxConnectionsPerHost)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutInMillis))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutInMillis))
+                .build())
+            .build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutInMillis))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutInMillis))
+                .build())
+            .evictIdleConnections(TimeValue.ofSeconds(idleTimeoutInSeconds))
+            .build();
+
+        bindPoolMetrics(meterRegistry, connectionManager);
+
+        DeadlineHttpComponentsClientHttpRequestFactory requestFactory =
+            new DeadlineHttpComponentsClientHttpRequestFactory(httpClient, deadlineInMillis);
+        Gauge.builder("http.client.deadlines.pending", requestFactory,
+                DeadlineHttpComponentsClientHttpRequestFactory::getPendingDeadlines)
+            .description("Requests in progress whose deadline is scheduled")
+            .register(meterRegistry);
+        return requestFactory;
+    }
+
+    @Bean
+    public RestTemplate restTemplate(ClientHttpRequestFactory clientHttpRequestFactory, MeterRegistry meterRegistry) {
+        RestTemplate restTemplate = new RestTemplate(clientHttpRequestFactory);
+        if (maxInFlightRequests > 0) {
+            InFlightLimitInterceptor inFlightLimit =
+                new InFlightLimitInterceptor(maxInFlightRequests, inFlightAcquireTimeoutInMillis);
+            Gauge.builder("http.client.in.flight", inFlightLimit, InFlightLimitInterceptor::inFlightCount)
+                .register(meterRegistry);
+            restTemplate.getInterceptors().add(inFlightLimit);
+        }
+        return restTemplate;
+    }
+
+    /**
+     * WebClient used by the reactive lookups. It uses a Reactor Netty connection pool per upstream host
+     * with the same connection limits and timeouts as the blocking client.
+     */
+    @Bean
+    public WebClient webClient(WebClient.Builder webClientBuilder) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("upstream")
+            .maxConnections(maxConnectionsPerHost)
+            .pendingAcquireTimeout(Duration.ofMillis(connectionRequestTimeoutInMillis))
+            .maxIdleTime(Duration.ofSeconds(idleTimeoutInSeconds))
+            .metrics(true)
+            .build();
+
+        reactor.netty.http.client.HttpClient httpClient = reactor.netty.http.client.HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutInMillis)
+            .responseTimeout(Duration.ofMillis(readTimeoutInMillis));
+
+        return webClientBuilder
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            // Abort exchanges that run past the deadline, reported like any other request failure.
+            .filter((request, next) -> next.exchange(request)
+                .timeout(Duration.ofMillis(deadlineInMillis))
+                .onErrorMap(TimeoutException.class,
+                    e -> new WebClientRequestException(e, request.method(), request.url(), request.headers())))
+            .build();
+    }
+
+    /**
+     * Publishes the overall pool metrics and leased, pending and idle connection gauges per upstream host.
+     */
+    private void bindPoolMetrics(MeterRegistry meterRegistry, PoolingHttpClientConnectionManager connectionManager) {
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "upstream").bindTo(meterRegistry);
+
+        for (String host : upstreamHosts) {
+            registerPoolGauge(meterRegistry, connectionManager, "http.client.pool.leased", host, PoolStats::getLeased);
+            registerPoolGauge(meterRegistry, connectionManager, "http.client.pool.pending", host, PoolStats::getPending);
+            registerPoolGauge(meterRegistry, connectionManager, "http.client.pool.idle", host, PoolStats::getAvailable);
+        }
+    }
+
+    private static void registerPoolGauge(MeterRegistry meterRegistry, PoolingHttpClientConnectionManager connectionManager,
+                                          String name, String host, ToIntFunction<PoolStats> stat) {
+        Gauge.builder(name, connectionManager, manager -> manager.getRoutes().stream()
+                .filter(route -> route.getTargetHost().getHostName().equalsIgnoreCase(host))
+                .mapToInt(route -> stat.applyAsInt(manager.getStats(route)))
+                .sum())
+            .tag("host", host)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Request factory that aborts a request once it has been running longer than the configured deadline,
+     * regardless of how many individual reads each stayed within the read timeout.
+     * The deadline is cancelled as soon as the response is closed, so that only requests in progress hold
+     * a scheduled task. Requests sent by a hedged call can also be aborted by it, see Hedging.
+     */
+    static class DeadlineHttpComponentsClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+        // Timer thread cancelling requests that ran past their deadline.
+        private final ScheduledThreadPoolExecutor deadlineScheduler = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setNameFormat("http-client-deadline-%d").setDaemon(true).build());
+
+        // Deadline of the request being created, handed from createHttpUriRequest to createRequest on the same thread.
+        private final ThreadLocal<ScheduledFuture<?>> createdDeadline = new ThreadLocal<>();
+
+        private final long deadlineInMillis;
+
+        DeadlineHttpComponentsClientHttpRequestFactory(CloseableHttpClient httpClient, long deadlineInMillis) {
+            super(httpClient);
+            this.deadlineInMillis = deadlineInMillis;
+            // Cancelled deadlines leave the queue right away instead of when they would have fired.
+            deadlineScheduler.setRemoveOnCancelPolicy(true);
+        }
+
+        /**
+         * Returns the number of deadlines still scheduled, one per request in progress.
+         */
+        int getPendingDeadlines() {
+            return deadlineScheduler.getQueue().size();
+        }
+
+        @Override
+        public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+            try {
+                ClientHttpRequest request = super.createRequest(uri, httpMethod);
+                ScheduledFuture<?> deadline = createdDeadline.get();
+                return deadline != null ? new DeadlineClientHttpRequest(request, deadline) : request;
+            } catch (IOException | RuntimeException e) {
+                ScheduledFuture<?> deadline = createdDeadline.get();
+                if (deadline != null) {
+                    deadline.cancel(false);
+                }
+                throw e;
+            } finally {
+                createdDeadline.remove();
+            }
+        }
+
+        @Override
+        protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+            ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+            if (request instanceof Cancellable cancellable) {
+                createdDeadline.set(deadlineScheduler.schedule(cancellable::cancel, deadlineInMillis, TimeUnit.MILLISECONDS));
+                // A hedged call aborts the request of the attempt that did not answer first.
+                Hedging.registerRequest(cancellable::cancel);
+            }
+            return request;
+        }
+
+        @Override
+        public void destroy() throws Exception {
+            deadlineScheduler.shutdownNow();
+            super.destroy();
+        }
+    }
+
+    /**
+     * Request whose deadline is cancelled once its response is closed, or once it fails.
+     */
+    private static final class DeadlineClientHttpRequest implements ClientHttpRequest {
+
+        private final ClientHttpRequest request;
+
+        private final ScheduledFuture<?> deadline;
+
+        DeadlineClientHttpRequest(ClientHttpRequest request, ScheduledFuture<?> deadline) {
+            this.request = request;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            try {
+                return new DeadlineClientHttpResponse(request.execute(), deadline);
+            } catch (IOException | RuntimeException e) {
+                deadline.cancel(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return request.getMethod();
+        }
+
+        @Override
+        public URI getURI() {
+            return request.getURI();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return request.getAttributes();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return request.getHeaders();
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return request.getBody();
+        }
+    }
+
+    /**
+     * Response cancelling the deadline of its request when closed, after its body was read or abandoned.
+     */
+    private static final class DeadlineClientHttpResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+
+        private final ScheduledFuture<?> deadline;
+
+        DeadlineClientHttpResponse(ClientHttpResponse response, ScheduledFuture<?> deadline) {
+            this.response = response;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return response.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                response.close();
+            } finally {
+                deadline.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.weatherapp.controllers;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.models.BatchWeatherRequest;
+import com.example.weatherapp.models.BatchWeatherResult;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.BatchWeatherService;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * BatchWeatherController handles requests for weather information for many locations at once.
+ * Each item is an address, a zip code or lat/lon coordinates, and is answered with the status code,
+ * weather data or error it would have received from /weather.
+ */
+@RestController
+@RequestMapping("/weather/batch")
+public class BatchWeatherController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchWeatherController.class);
+
+    // AppConfiguration to access the batch limits.
+    @Autowired
+    private AppConfiguration appConfiguration;
+
+    // BatchWeatherService to retrieve weather data for many locations.
+    @Autowired
+    private BatchWeatherService batchWeatherService;
+
+    /**
+     * Retrieves weather information for every item of the request.
+     *
+     * @param request The items for which to retrieve weather data.
+     * @return Mono emitting a ResponseEntity containing one result per item, or 400 Bad Request.
+     */
+    @CrossOrigin(origins = "http://localhost:3000") // Adjust as necessary
+    @PostMapping()
+    public Mono<ResponseEntity<List<BatchWeatherResult>>> getWeather(@RequestBody BatchWeatherRequest request) {
+
+        // Validate the number of items.
+        if (request == null || request.getItems() == null || request.getItems().isEmpty()
+                || request.getItems().size() > appConfiguration.getBatchMaxItems()) {
+            return Mono.just(ResponseEntity.badRequest().body(null));
+        }
+
+        // Validate every item as /weather validates the same parameters.
+        List<BatchWeatherRequest.Item> items = request.getItems().stream()
+            .map(BatchWeatherController::validate)
+            .toList();
+
+        return batchWeatherService.getWeather(items)
+            .map(outcomes -> ResponseEntity.ok(outcomes.stream().map(BatchWeatherController::toResult).toList()));
+    }
+
+    /**
+     * Validates the coordinates and zip code of an item with the checks of /weather, and normalizes its zip code
+     * so that the item shares the cache entry of the same zip code requested from /weather.
+     *
+     * @param item The item, may be null.
+     * @return The item with its zip code normalized, or null if it is invalid, which is answered with 400 Bad Request.
+     */
+    private static BatchWeatherRequest.Item validate(BatchWeatherRequest.Item item) {
+        if (item == null) {
+            return null;
+        }
+        String zipCode = null;
+        if (item.getZip() != null && !item.getZip().isBlank()) {
+            Location location = WeatherResponses.forZipCode(item.getZip());
+            if (location == null) {
+                return null;
+            }
+            zipCode = location.getZipCode();
+        }
+        if (item.getLatitude() != null && item.getLongitude() != null
+                && WeatherResponses.forCoordinates(item.getLatitude(), item.getLongitude()) == null) {
+            return null;
+        }
+        return new BatchWeatherRequest.Item(item.getAddress(), zipCode, item.getLatitude(), item.getLongitude());
+    }
+
+    /**
+     * Converts an outcome into a result carrying the status code /weather would have answered with.
+     * Failures are described by a fixed message per status code, their detail is only logged:
+     * upstream errors may carry the request URL, and with it the API key.
+     */
+    private static BatchWeatherResult toResult(BatchWeatherService.Outcome outcome) {
+        if (outcome.error() instanceof IllegalArgumentException) {
+            return new BatchWeatherResult(HttpStatus.BAD_REQUEST.value(), null, errorMessage(HttpStatus.BAD_REQUEST));
+        }
+        if (outcome.error() != null) {
+            HttpStatusCode status = WeatherResponses.forException(outcome.error()).getStatusCode();
+            LOGGER.warn("Batch item failed with status {}", status.value(), outcome.error());
+            return new BatchWeatherResult(status.value(), null, errorMessage(status));
+        }
+        if (outcome.weather() == null) {
+            HttpStatusCode status = WeatherResponses.forUnknownAddress().getStatusCode();
+            return new BatchWeatherResult(status.value(), null, errorMessage(status));
+        }
+        ResponseEntity<Weather> response = WeatherResponses.forWeather(outcome.weather());
+        return new BatchWeatherResult(response.getStatusCode().value(), response.getBody(),
+            response.getStatusCode().is2xxSuccessful() ? null : errorMessage(response.getStatusCode()));
+    }
+
+    /**
+     * Returns the message describing a failed item to the client.
+     */
+    private static String errorMessage(HttpStatusCode status) {
+        return switch (status.value()) {
+            case 400 -> "Item needs an address, a valid zip code, or lat and lon in range.";
+            case 401, 403 -> "The weather provider rejected the request.";
+            case 404 -> "Location not found.";
+            case 429 -> "Too many requests to the weather provider.";
+            case 503 -> "Weather data is temporarily unavailable.";
+            default -> "Weather data could not be retrieved.";
+        };
+    }
+}
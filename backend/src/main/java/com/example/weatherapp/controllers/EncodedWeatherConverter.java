@@ -0,0 +1,69 @@
+package com.example.weatherapp.controllers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import com.example.weatherapp.models.EncodedWeather;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * EncodedWeatherConverter writes JSON responses of weather data served from the cache. It copies the encoding
+ * of the current conditions and forecast held by the cache entry, and only encodes the location and the cache
+ * flags of the request, producing the same JSON object as Jackson would for the whole Weather object.
+ * Spring Boot registers it ahead of the Jackson converter; other weather data and the binary formats are
+ * still written by Jackson.
+ */
+@Component
+public class EncodedWeatherConverter extends AbstractHttpMessageConverter<EncodedWeather> {
+
+    private static final byte[] LOCATION_FIELD = "{\"location\":".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+
+    public EncodedWeatherConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return EncodedWeather.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected EncodedWeather readInternal(Class<? extends EncodedWeather> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Weather data is not read from requests", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(EncodedWeather weather, HttpOutputMessage outputMessage) throws IOException {
+        byte[] encodedData = weather.getEncodedData();
+        byte[] location = objectMapper.writeValueAsBytes(weather.getLocation());
+        byte[] flags = (",\"from_cache\":" + weather.isFromCache()
+            + ",\"cache_age_seconds\":" + weather.getCacheAgeSeconds()
+            + ",\"stale\":" + weather.isStale() + "}").getBytes(StandardCharsets.UTF_8);
+
+        // The length is known from the parts, which are written without copying the shared encoding.
+        outputMessage.getHeaders().setContentLength(
+            LOCATION_FIELD.length + location.length + 1 + encodedData.length + flags.length);
+        OutputStream body = outputMessage.getBody();
+        body.write(LOCATION_FIELD);
+        body.write(location);
+        body.write(',');
+        body.write(encodedData);
+        body.write(flags);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.weatherapp.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.AddressService;
+import com.example.weatherapp.services.WeatherService;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * ReactiveWeatherController is the non-blocking variant of WeatherController.
+ * It geocodes the address and retrieves the weather data with WebClient, so no request thread
+ * is held while the upstream calls are in flight. It shares the caches, the parsing and the
+ * status code mapping with the blocking endpoint, including its variants for coordinates and zip codes.
+ */
+@RestController
+@RequestMapping("/reactive/weather")
+public class ReactiveWeatherController {
+
+    // AddressService to geocode addresses.
+    @Autowired
+    private AddressService addressService;
+
+    // WeatherService to retrieve weather data.
+    @Autowired
+    private WeatherService weatherService;
+
+    /**
+     * Retrieves weather information for the given address.
+     *
+     * @param address The address for which to retrieve weather data.
+     * @return Mono emitting a ResponseEntity containing the Weather object or an error response.
+     */
+    @CrossOrigin(origins = "http://localhost:3000") // Adjust as necessary
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                            WeatherResponses.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<Weather>> getWeather(@RequestParam(value = "address") String address,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        // Validate the input address.
+        if (WeatherResponses.isInvalidAddress(address)) {
+            // Return 400 Bad Request if the address is null or empty.
+            return Mono.just(ResponseEntity.badRequest().body(null));
+        }
+
+        return addressService.getLocationAsync(address)
+            .flatMap(location -> lookupWeather(location, ifNoneMatch))
+            // Return 404 Not Found if the address was not found.
+            .defaultIfEmpty(WeatherResponses.forUnknownAddress())
+            // Map upstream and internal failures to 4xx, 503 or 500.
+            .onErrorResume(e -> Mono.just(WeatherResponses.forException(e)));
+    }
+
+    /**
+     * Retrieves weather information for the given coordinates, without geocoding.
+     *
+     * @param latitude The latitude, between -90 and 90.
+     * @param longitude The longitude, between -180 and 180.
+     * @return Mono emitting a ResponseEntity containing the Weather object or an error response.
+     */
+    @CrossOrigin(origins = "http://localhost:3000") // Adjust as necessary
+    @GetMapping(params = {"lat", "lon"},
+                produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                            WeatherResponses.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<Weather>> getWeatherForCoordinates(@RequestParam(value = "lat") double latitude,
+                                                                  @RequestParam(value = "lon") double longitude,
+                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return lookup(WeatherResponses.forCoordinates(latitude, longitude), ifNoneMatch);
+    }
+
+    /**
+     * Retrieves weather information for the given zip code, without geocoding.
+     *
+     * @param zipCode The zip code, or a UK or Canadian postal code.
+     * @return Mono emitting a ResponseEntity containing the Weather object or an error response.
+     */
+    @CrossOrigin(origins = "http://localhost:3000") // Adjust as necessary
+    @GetMapping(params = "zip",
+                produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                            WeatherResponses.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<Weather>> getWeatherForZipCode(@RequestParam(value = "zip") String zipCode,
+                                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return lookup(WeatherResponses.forZipCode(zipCode), ifNoneMatch);
+    }
+
+    /**
+     * Retrieves the weather for a location given by the caller.
+     *
+     * @param location The location, or null if the parameters were invalid.
+     * @param ifNoneMatch The If-None-Match header of the request, may be null.
+     * @return Mono emitting a ResponseEntity containing the Weather object or an error response.
+     */
+    private Mono<ResponseEntity<Weather>> lookup(Location location, String ifNoneMatch) {
+        if (location == null) {
+            // Return 400 Bad Request if the coordinates or the zip code are invalid.
+            return Mono.just(ResponseEntity.badRequest().body(null));
+        }
+        return lookupWeather(location, ifNoneMatch)
+            // Map upstream and internal failures to 4xx, 503 or 500.
+            .onErrorResume(e -> Mono.just(WeatherResponses.forException(e)));
+    }
+
+    /**
+     * Retrieves the weather for a location.
+     *
+     * @param location The location.
+     * @param ifNoneMatch The If-None-Match header of the request, may be null.
+     * @return Mono emitting 200 OK with the weather data, 304 Not Modified if the client already has it,
+     *         or 503 Service Unavailable if it is incomplete.
+     */
+    private Mono<ResponseEntity<Weather>> lookupWeather(Location location, String ifNoneMatch) {
+        return weatherService.getWeatherAsync(location)
+            .map(weather -> WeatherResponses.forWeather(weather, ifNoneMatch,
+                weatherService.getRemainingCacheSeconds(weather)))
+            .defaultIfEmpty(WeatherResponses.forWeather(null));
+    }
+}
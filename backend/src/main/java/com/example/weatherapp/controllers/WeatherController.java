@@ -3,14 +3,15 @@ package com.example.weatherapp.controllers;
 import java.io.IOException;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 
 import com.example.weatherapp.models.Location;
@@ -18,11 +19,17 @@ import com.example.weatherapp.models.Weather;
 import com.example.weatherapp.services.AddressService;
 import com.example.weatherapp.services.WeatherService;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 
 /**
  * WeatherController is a REST controller that handles requests for weather information.
  * It uses AddressService to geocode addresses and WeatherService to retrieve weather data.
- * It provides an endpoint to get weather information based on a given address.
+ * It provides an endpoint to get weather information based on a given address, and variants for callers
+ * that already know the coordinates (lat and lon) or the zip code of the location, which skip geocoding.
+ * The response is negotiated from the Accept header: JSON by default, or the same schema encoded as
+ * CBOR or Smile for clients that prefer a compact binary format.
  */
 @RestController
 @RequestMapping("/weather")
@@ -36,6 +43,10 @@ public class WeatherController {
     @Autowired
     private WeatherService weatherService;
 
+    // MeterRegistry to count responses.
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /**
      * Retrieves weather information for the given address.
      *
@@ -43,11 +54,70 @@ public class WeatherController {
      * @return ResponseEntity containing the Weather object or an error response.
      */
     @CrossOrigin(origins = "http://localhost:3000") // Adjust as necessary
-    @GetMapping()
-    public ResponseEntity<Weather> getWeather(@RequestParam(value = "address") String address) {
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                            WeatherResponses.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Weather> getWeather(@RequestParam(value = "address") String address,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return count(lookup(address, ifNoneMatch));
+    }
+
+    /**
+     * Retrieves weather information for the given coordinates, without geocoding.
+     *
+     * @param latitude The latitude, between -90 and 90.
+     * @param longitude The longitude, between -180 and 180.
+     * @return ResponseEntity containing the Weather object or an error response.
+     */
+    @CrossOrigin(origins = "http://localhost:3000") // Adjust as necessary
+    @GetMapping(params = {"lat", "lon"},
+                produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                            WeatherResponses.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Weather> getWeatherForCoordinates(@RequestParam(value = "lat") double latitude,
+                                                            @RequestParam(value = "lon") double longitude,
+                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return count(lookup(WeatherResponses.forCoordinates(latitude, longitude), ifNoneMatch));
+    }
+
+    /**
+     * Retrieves weather information for the given zip code, without geocoding.
+     *
+     * @param zipCode The zip code, or a UK or Canadian postal code.
+     * @return ResponseEntity containing the Weather object or an error response.
+     */
+    @CrossOrigin(origins = "http://localhost:3000") // Adjust as necessary
+    @GetMapping(params = "zip",
+                produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                            WeatherResponses.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Weather> getWeatherForZipCode(@RequestParam(value = "zip") String zipCode,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return count(lookup(WeatherResponses.forZipCode(zipCode), ifNoneMatch));
+    }
+
+    /**
+     * Counts the response by status code.
+     *
+     * @param response The response.
+     * @return The response.
+     */
+    private ResponseEntity<Weather> count(ResponseEntity<Weather> response) {
+        Counter.builder("weather.responses")
+            .description("Responses of the weather endpoint by status code")
+            .tag("status", String.valueOf(response.getStatusCode().value()))
+            .register(meterRegistry)
+            .increment();
+        return response;
+    }
 
+    /**
+     * Geocodes the address and retrieves the weather for it.
+     *
+     * @param address The address for which to retrieve weather data.
+     * @param ifNoneMatch The If-None-Match header of the request, may be null.
+     * @return ResponseEntity containing the Weather object or an error response.
+     */
+    private ResponseEntity<Weather> lookup(String address, String ifNoneMatch) {
         // Validate the input address.
-        if (address == null || address.trim().isEmpty()) {
+        if (WeatherResponses.isInvalidAddress(address)) {
             // Return 400 Bad Request if the address is null or empty.
             return ResponseEntity.badRequest().body(null);
         }
@@ -59,33 +129,49 @@ public class WeatherController {
             // Check if the address was found.
             if (location == null) {
                 // Return 404 Not Found if the address was not found.
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                                 .body(null);
+                return WeatherResponses.forUnknownAddress();
             }
 
-            // Retrieve weather data for the location using WeatherService.
-            Weather weather = weatherService.getWeather(location);
-            // Check if weather data was retrieved successfully.
-            if (weather == null || weather.getCurrent() == null || weather.getForecast() == null) {
-                // Return 503 Service Unavailable if weather data is unavailable.
-                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                                     .body(null);
-            }
-            // Return 200 OK with the weather data.
-            return ResponseEntity.ok(weather);
-        } catch (HttpClientErrorException e) {
-            // Handle specific HTTP client errors (e.g., 401 Unauthorized, 403 Forbidden, 404 Not Found)
-            // that might occur when calling external APIs.
-            return ResponseEntity.status(e.getStatusCode()).body(null);
-        } catch (RestClientException e) {
-            // Handle general REST client errors (e.g., connection issues, API failures)
-            // that might occur when calling external APIs.
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                                 .body(null);
-        } catch (IOException e) {
-            // Handle any other unexpected exceptions (e.g., internal server errors).
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                                 .body(null);
+            return lookupWeather(location, ifNoneMatch);
+        } catch (RestClientException | IOException e) {
+            // Map upstream and internal failures to 4xx, 503 or 500.
+            return WeatherResponses.forException(e);
+        }
+    }
+
+    /**
+     * Retrieves the weather for a location given by the caller.
+     *
+     * @param location The location, or null if the parameters were invalid.
+     * @param ifNoneMatch The If-None-Match header of the request, may be null.
+     * @return ResponseEntity containing the Weather object or an error response.
+     */
+    private ResponseEntity<Weather> lookup(Location location, String ifNoneMatch) {
+        if (location == null) {
+            // Return 400 Bad Request if the coordinates or the zip code are invalid.
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        try {
+            return lookupWeather(location, ifNoneMatch);
+        } catch (RestClientException | IOException e) {
+            // Map upstream and internal failures to 4xx, 503 or 500.
+            return WeatherResponses.forException(e);
         }
     }
+
+    /**
+     * Retrieves the weather for a location.
+     *
+     * @param location The location.
+     * @param ifNoneMatch The If-None-Match header of the request, may be null.
+     * @return 200 OK with the weather data, 304 Not Modified if the client already has it,
+     *         or 503 Service Unavailable if it is incomplete.
+     * @throws IOException If an error occurs during API request or JSON parsing.
+     */
+    private ResponseEntity<Weather> lookupWeather(Location location, String ifNoneMatch) throws IOException {
+        // Retrieve weather data for the location using WeatherService.
+        Weather weather = weatherService.getWeather(location);
+        return WeatherResponses.forWeather(weather, ifNoneMatch, weatherService.getRemainingCacheSeconds(weather));
+    }
 }
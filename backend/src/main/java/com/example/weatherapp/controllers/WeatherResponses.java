@@ -0,0 +1,213 @@
+package com.example.weatherapp.controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import com.example.weatherapp.http.CallNotPermittedException;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.WeatherService;
+import com.google.common.hash.Hashing;
+
+/**
+ * WeatherResponses maps weather lookups and their failures to HTTP responses.
+ * It is shared by the blocking and the reactive weather endpoints so both report the same status codes.
+ */
+final class WeatherResponses {
+
+    /**
+     * The media type of the Smile binary JSON format, as written by Jackson's Smile converter.
+     */
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    // Postal codes accepted by the WeatherAPI, upper-cased: US zip codes with an optional ZIP+4 suffix,
+    // UK postcodes and Canadian postal codes, the last two with or without the space before the inward part.
+    private static final Pattern ZIP_CODE = Pattern.compile(
+        "\\d{5}(-\\d{4})?"
+        + "|([A-Z]{1,2}\\d[A-Z\\d]?|GIR) ?\\d[A-Z]{2}"
+        + "|[ABCEGHJ-NPRSTVXY]\\d[ABCEGHJ-NPRSTV-Z] ?\\d[ABCEGHJ-NPRSTV-Z]\\d");
+
+    private WeatherResponses() {
+    }
+
+    /**
+     * Checks whether the address is null or empty, which is answered with 400 Bad Request.
+     */
+    static boolean isInvalidAddress(String address) {
+        return address == null || address.trim().isEmpty();
+    }
+
+    /**
+     * Builds the Location of coordinates given by the caller, which needs no geocoding.
+     *
+     * @param latitude The latitude, between -90 and 90.
+     * @param longitude The longitude, between -180 and 180.
+     * @return The Location, or null if the coordinates are out of range, which is answered with 400 Bad Request.
+     */
+    static Location forCoordinates(double latitude, double longitude) {
+        // Written so that NaN is out of range too.
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            return null;
+        }
+        return new Location(null, null, latitude, longitude);
+    }
+
+    /**
+     * Builds the Location of a zip code given by the caller, which needs no geocoding.
+     * The zip code is trimmed and upper-cased, so that spellings of the same code share a cache entry.
+     *
+     * @param zipCode The zip code.
+     * @return The Location, or null if the zip code is malformed, which is answered with 400 Bad Request.
+     */
+    static Location forZipCode(String zipCode) {
+        String normalized = zipCode == null ? "" : zipCode.trim().toUpperCase(Locale.ROOT);
+        if (!ZIP_CODE.matcher(normalized).matches()) {
+            return null;
+        }
+        return new Location(null, normalized, null, null);
+    }
+
+    /**
+     * Builds the response for the retrieved weather data.
+     *
+     * @param weather The weather data, may be null.
+     * @return 200 OK with the weather data, or 503 Service Unavailable if the weather data is unavailable.
+     */
+    static ResponseEntity<Weather> forWeather(Weather weather) {
+        // Check if weather data was retrieved successfully.
+        if (weather == null || weather.getCurrent() == null || weather.getForecast() == null) {
+            // Return 503 Service Unavailable if weather data is unavailable.
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                 .body(null);
+        }
+        // Return 200 OK with the weather data.
+        return ResponseEntity.ok(weather);
+    }
+
+    /**
+     * Builds the response for the retrieved weather data with HTTP caching headers, so that browsers and CDNs
+     * can reuse it. The response carries a weak ETag computed from the location and weather data, and a
+     * Cache-Control max-age of the time the data is still fresh in the cache. A request whose If-None-Match
+     * holds that ETag is answered with 304 Not Modified without a body.
+     * The ETag is weak because the same data is served as JSON, CBOR or Smile, optionally compressed,
+     * and those representations differ byte for byte; caches are told to key them by Accept.
+     * The cache flags of the body (from_cache, cache_age_seconds, stale) are not part of the ETag, as they
+     * describe how the data was served rather than the data itself.
+     *
+     * @param weather The weather data, may be null.
+     * @param ifNoneMatch The If-None-Match header of the request, may be null.
+     * @param maxAgeInSeconds The number of seconds the data may be reused.
+     * @return 200 OK with the weather data, 304 Not Modified, or 503 Service Unavailable if the weather data is unavailable.
+     */
+    static ResponseEntity<Weather> forWeather(Weather weather, String ifNoneMatch, long maxAgeInSeconds) {
+        ResponseEntity<Weather> response = forWeather(weather);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return response;
+        }
+
+        String etag = etag(weather);
+        CacheControl cacheControl = CacheControl.maxAge(Math.max(0, maxAgeInSeconds), TimeUnit.SECONDS).cachePublic();
+        if (matches(ifNoneMatch, etag)) {
+            // The client already has this data, skip serializing it.
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                 .eTag(etag)
+                                 .cacheControl(cacheControl)
+                                 .varyBy(HttpHeaders.ACCEPT)
+                                 .build();
+        }
+        return ResponseEntity.ok()
+                             .eTag(etag)
+                             .cacheControl(cacheControl)
+                             .varyBy(HttpHeaders.ACCEPT)
+                             .body(weather);
+    }
+
+    /**
+     * Computes the weak ETag of weather data from its location, current conditions and forecast.
+     *
+     * @param weather The weather data.
+     * @return The ETag, W/ followed by the quoted hash.
+     */
+    static String etag(Weather weather) {
+        String content = weather.getLocation() + "|" + weather.getCurrent() + "|" + weather.getForecast();
+        return "W/\"" + Hashing.murmur3_128().hashString(content, StandardCharsets.UTF_8) + "\"";
+    }
+
+    /**
+     * Checks whether an If-None-Match header matches the ETag. As required for If-None-Match,
+     * the comparison is weak: a W/ prefix on either ETag is ignored.
+     *
+     * @param ifNoneMatch The If-None-Match header, may be null.
+     * @param etag The ETag of the response.
+     * @return true if the header is "*" or lists the ETag.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaqueTag = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = stripWeak(candidate.trim());
+            if (tag.equals("*") || tag.equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Builds the response for an address that could not be geocoded.
+     *
+     * @return 404 Not Found.
+     */
+    static ResponseEntity<Weather> forUnknownAddress() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                             .body(null);
+    }
+
+    /**
+     * Builds the response for a failed lookup.
+     *
+     * @param e The failure.
+     * @return The error response, 404 Not Found if the WeatherAPI found no location matching the query.
+     */
+    static ResponseEntity<Weather> forException(Throwable e) {
+        if (e instanceof CallNotPermittedException || e.getCause() instanceof CallNotPermittedException) {
+            // The upstream call was rejected by its circuit breaker or concurrency limit.
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                 .body(null);
+        }
+        if (WeatherService.isUnknownLocation(e)) {
+            // The WeatherAPI knows no location matching the zip code or coordinates, as for an address
+            // that could not be geocoded.
+            return forUnknownAddress();
+        }
+        if (e instanceof HttpClientErrorException clientError) {
+            // Handle specific HTTP client errors (e.g., 401 Unauthorized, 403 Forbidden, 404 Not Found)
+            // that might occur when calling external APIs.
+            return ResponseEntity.status(clientError.getStatusCode()).body(null);
+        }
+        if (e instanceof RestClientException) {
+            // Handle general REST client errors (e.g., connection issues, API failures)
+            // that might occur when calling external APIs.
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                 .body(null);
+        }
+        // Handle any other unexpected exceptions (e.g., IOException, internal server errors).
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                             .body(null);
+    }
+}
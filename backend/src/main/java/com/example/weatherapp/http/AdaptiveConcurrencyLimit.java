@@ -0,0 +1,113 @@
+package com.example.weatherapp.http;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * AdaptiveConcurrencyLimit caps the number of calls in flight to an upstream with a limit that follows
+ * its health, using additive increase / multiplicative decrease (AIMD).
+ * Every call that succeeds within the latency threshold while the limit is in use raises the limit by one;
+ * every call that fails or exceeds the latency threshold multiplies it by the backoff ratio.
+ * When an upstream slows down, the limit shrinks and excess calls are rejected right away
+ * instead of holding a request thread while they queue behind the slow ones.
+ * The limit and the number of calls in flight are published as "upstream.concurrency.limit"
+ * and "upstream.concurrency.in.flight".
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    // Calls taking longer than this reduce the limit.
+    private final long latencyThresholdInNanos;
+
+    // Factor applied to the limit on a failed or slow call, below 1.
+    private final double backoffRatio;
+
+    private double limit;
+
+    private int inFlight;
+
+    /**
+     * Creates a limit.
+     *
+     * @param upstream The upstream tag, e.g. "forecast".
+     * @param meterRegistry The registry to publish the limit to.
+     * @param initialLimit The limit to start with.
+     * @param minLimit The lowest limit.
+     * @param maxLimit The highest limit.
+     * @param latencyThresholdInMillis The duration above which a call reduces the limit.
+     * @param backoffRatio The factor applied to the limit on a failed or slow call.
+     */
+    public AdaptiveConcurrencyLimit(String upstream, MeterRegistry meterRegistry, int initialLimit, int minLimit,
+                                    int maxLimit, long latencyThresholdInMillis, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+        this.latencyThresholdInNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdInMillis);
+        this.backoffRatio = backoffRatio;
+
+        Gauge.builder("upstream.concurrency.limit", this, AdaptiveConcurrencyLimit::getLimit)
+            .description("Current adaptive limit of calls in flight to the upstream")
+            .tag("upstream", upstream)
+            .register(meterRegistry);
+        Gauge.builder("upstream.concurrency.in.flight", this, AdaptiveConcurrencyLimit::getInFlight)
+            .description("Calls in flight to the upstream")
+            .tag("upstream", upstream)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns the current limit.
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the number of calls in flight.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Asks to make a call.
+     *
+     * @return true if the call may be made, in which case onComplete or cancel must be called once it completes.
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Records the outcome of a call and adjusts the limit.
+     *
+     * @param durationInNanos The duration of the call.
+     * @param failed Whether the call failed in a way that counts against the upstream.
+     */
+    public synchronized void onComplete(long durationInNanos, boolean failed) {
+        int inFlightDuringCall = inFlight;
+        inFlight--;
+        if (failed || durationInNanos > latencyThresholdInNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlightDuringCall * 2 >= limit) {
+            // Only grow while the limit is in use, an idle upstream says nothing about how much it can take.
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    /**
+     * Releases a call that was not made, without adjusting the limit.
+     */
+    public synchronized void cancel() {
+        inFlight--;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.weatherapp.http;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * ApiKeyPool holds the API keys of an upstream, each with its own rate limit and monthly quota.
+ * Calls are spread over the keys: each call starts at a random key and takes the first one with
+ * a token and budget left, so no shared counter is touched on the request path.
+ * The remaining budget of each key is published as "upstream.quota.remaining", tagged with the index
+ * of the key rather than the key itself.
+ */
+public class ApiKeyPool {
+
+    /**
+     * An API key with its limits.
+     *
+     * @param value The key.
+     * @param rateLimit The rate limit of the key, or null for none.
+     * @param quota The monthly quota of the key.
+     */
+    public record ApiKey(String value, TokenBucket rateLimit, MonthlyQuota quota) {
+    }
+
+    private final List<ApiKey> keys;
+
+    // Remaining budget ratio below which callers should prefer cached data over calls.
+    private final double lowBudgetRatio;
+
+    /**
+     * Creates the pool of an upstream.
+     *
+     * @param upstream The upstream tag, e.g. "forecast".
+     * @param apiKeys The API keys, separated by commas. A single null key is used if none is configured.
+     * @param ratePerSecond The rate of calls allowed per key and second, 0 for no limit.
+     * @param burst The number of calls a key may make at once.
+     * @param monthlyQuota The number of calls per key and month, 0 for no budget.
+     * @param lowBudgetRatio The remaining budget ratio below which the budget is low.
+     * @param meterRegistry The registry to publish the remaining budgets to.
+     */
+    public ApiKeyPool(String upstream, String apiKeys, double ratePerSecond, int burst, long monthlyQuota,
+                      double lowBudgetRatio, MeterRegistry meterRegistry) {
+        List<String> values = apiKeys == null ? Collections.singletonList(null) : Arrays.stream(apiKeys.split(","))
+            .map(String::trim)
+            .filter(value -> !value.isEmpty())
+            .toList();
+        if (values.isEmpty()) {
+            values = Collections.singletonList(null);
+        }
+
+        List<ApiKey> pool = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            ApiKey key = new ApiKey(values.get(i),
+                ratePerSecond > 0 ? new TokenBucket(ratePerSecond, burst) : null,
+                new MonthlyQuota(monthlyQuota, Clock.systemUTC()));
+            pool.add(key);
+            if (monthlyQuota > 0) {
+                Gauge.builder("upstream.quota.remaining", key.quota(), MonthlyQuota::remaining)
+                    .description("Calls left this month with the API key")
+                    .tag("upstream", upstream)
+                    .tag("key", String.valueOf(i))
+                    .register(meterRegistry);
+            }
+        }
+        this.keys = List.copyOf(pool);
+        this.lowBudgetRatio = lowBudgetRatio;
+    }
+
+    /**
+     * Takes a key with a token and budget left for the calls.
+     *
+     * @param calls The number of calls counted against the quota, e.g. the locations of a bulk request.
+     * @return The key, or null if every key is rate limited or out of budget.
+     */
+    public ApiKey acquire(int calls) {
+        int start = keys.size() == 1 ? 0 : ThreadLocalRandom.current().nextInt(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            ApiKey key = keys.get((start + i) % keys.size());
+            if (key.rateLimit() != null && !key.rateLimit().tryAcquire()) {
+                continue;
+            }
+            if (!key.quota().tryConsume(calls)) {
+                if (key.rateLimit() != null) {
+                    key.rateLimit().refund();
+                }
+                continue;
+            }
+            return key;
+        }
+        return null;
+    }
+
+    /**
+     * Marks a key as over quota until the end of the month, after the upstream reported it.
+     *
+     * @param value The key.
+     */
+    public void exhaust(String value) {
+        for (ApiKey key : keys) {
+            if (key.value() != null && key.value().equals(value)) {
+                key.quota().exhaust();
+            }
+        }
+    }
+
+    /**
+     * Checks whether every key is out of budget for this month.
+     */
+    public boolean isExhausted() {
+        return keys.stream().allMatch(key -> key.quota().remainingRatio() <= 0);
+    }
+
+    /**
+     * Checks whether the budget left this month, across all keys, is below the low budget ratio.
+     * Callers should then prefer cached or stale data over optional calls.
+     */
+    public boolean isBudgetLow() {
+        if (lowBudgetRatio <= 0) {
+            return false;
+        }
+        double remaining = keys.stream().mapToDouble(key -> key.quota().remainingRatio()).average().orElse(1);
+        return remaining < lowBudgetRatio;
+    }
+}
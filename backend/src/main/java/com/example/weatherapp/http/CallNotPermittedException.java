@@ -0,0 +1,14 @@
+package com.example.weatherapp.http;
+
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * CallNotPermittedException is thrown when an upstream call is rejected before being made,
+ * because the circuit breaker of the upstream is open or its concurrency limit is reached.
+ */
+public class CallNotPermittedException extends ResourceAccessException {
+
+    public CallNotPermittedException(String message) {
+        super(message);
+    }
+}
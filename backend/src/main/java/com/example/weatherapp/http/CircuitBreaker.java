@@ -0,0 +1,241 @@
+package com.example.weatherapp.http;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * CircuitBreaker stops calls to an upstream that is failing or too slow, so that requests fail fast
+ * instead of piling up behind it.
+ * While CLOSED, the outcomes of the last window-size calls are kept; once at least minimum-calls outcomes
+ * are known and the failure rate or the slow-call rate reaches its threshold, the circuit OPENs and calls
+ * are rejected. After the open duration it turns HALF_OPEN and lets a few probe calls through:
+ * the circuit CLOSEs again if they all succeed, and OPENs again as soon as one of them fails or is slow.
+ * The current state and the transitions are published as "upstream.circuit.state" and "upstream.circuit.transitions".
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * The state of a circuit.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // Outcome flags kept in the window.
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String upstream;
+
+    private final MeterRegistry meterRegistry;
+
+    // Failure rate, in percent, at which the circuit opens.
+    private final int failureRateThreshold;
+
+    // Slow-call rate, in percent, at which the circuit opens.
+    private final int slowCallRateThreshold;
+
+    // Calls taking at least this long are slow.
+    private final long slowCallDurationInNanos;
+
+    // Number of outcomes needed before the rates are evaluated.
+    private final int minimumCalls;
+
+    // How long the circuit stays open before probe calls are let through.
+    private final long openDurationInNanos;
+
+    // Number of probe calls in the half-open state.
+    private final int halfOpenCalls;
+
+    // Outcomes of the last calls, a ring buffer of flags.
+    private final byte[] window;
+
+    private int windowIndex;
+
+    private int windowCount;
+
+    private int failedCalls;
+
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+
+    // System.nanoTime() of the last transition. Calls started before it do not count towards the current state.
+    private long stateChangedAt = System.nanoTime();
+
+    private int probesInFlight;
+
+    private int probesSucceeded;
+
+    /**
+     * Creates a closed circuit.
+     *
+     * @param upstream The upstream tag, e.g. "forecast".
+     * @param meterRegistry The registry to publish the state to.
+     * @param failureRateThreshold The failure rate, in percent, at which the circuit opens.
+     * @param slowCallRateThreshold The slow-call rate, in percent, at which the circuit opens.
+     * @param slowCallDurationInMillis The duration from which a call is slow.
+     * @param windowSize The number of last calls the rates are computed over.
+     * @param minimumCalls The number of outcomes needed before the rates are evaluated.
+     * @param openDurationInMillis How long the circuit stays open.
+     * @param halfOpenCalls The number of probe calls that must succeed to close the circuit again.
+     */
+    public CircuitBreaker(String upstream, MeterRegistry meterRegistry, int failureRateThreshold,
+                          int slowCallRateThreshold, long slowCallDurationInMillis, int windowSize, int minimumCalls,
+                          long openDurationInMillis, int halfOpenCalls) {
+        this.upstream = upstream;
+        this.meterRegistry = meterRegistry;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationInNanos = TimeUnit.MILLISECONDS.toNanos(slowCallDurationInMillis);
+        this.window = new byte[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.openDurationInNanos = TimeUnit.MILLISECONDS.toNanos(openDurationInMillis);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+
+        for (State gaugeState : State.values()) {
+            Gauge.builder("upstream.circuit.state", this, breaker -> breaker.getState() == gaugeState ? 1 : 0)
+                .description("1 for the current state of the upstream circuit breaker, 0 for the others")
+                .tag("upstream", upstream)
+                .tag("state", gaugeState.name().toLowerCase())
+                .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Returns the current state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Checks whether calls are currently rejected, without changing the state.
+     *
+     * @return true if the circuit is open and its open duration has not elapsed yet.
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.nanoTime() - stateChangedAt < openDurationInNanos;
+    }
+
+    /**
+     * Asks to make a call. An open circuit turns half-open once its open duration has elapsed.
+     *
+     * @return true if the call may be made, in which case onComplete must be called once it completes.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - stateChangedAt < openDurationInNanos) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenCalls - probesSucceeded) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Records the outcome of a call allowed by tryAcquire.
+     *
+     * @param startNanos The System.nanoTime() at which the call was allowed.
+     * @param durationInNanos The duration of the call.
+     * @param failed Whether the call failed in a way that counts against the upstream.
+     */
+    public synchronized void onComplete(long startNanos, long durationInNanos, boolean failed) {
+        if (startNanos - stateChangedAt < 0) {
+            // The call started in an earlier state, its outcome has already been acted upon.
+            return;
+        }
+        boolean slow = durationInNanos >= slowCallDurationInNanos;
+
+        switch (state) {
+            case CLOSED -> {
+                record((byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0)));
+                if (windowCount >= minimumCalls
+                        && (failedCalls * 100 >= failureRateThreshold * windowCount
+                            || slowCalls * 100 >= slowCallRateThreshold * windowCount)) {
+                    transition(State.OPEN);
+                }
+            }
+            case HALF_OPEN -> {
+                probesInFlight--;
+                if (failed || slow) {
+                    transition(State.OPEN);
+                } else if (++probesSucceeded >= halfOpenCalls) {
+                    transition(State.CLOSED);
+                }
+            }
+            case OPEN -> {
+                // Calls are not counted while the circuit is open.
+            }
+        }
+    }
+
+    /**
+     * Releases a call allowed by tryAcquire that was not made after all.
+     *
+     * @param startNanos The System.nanoTime() at which the call was allowed.
+     */
+    public synchronized void cancel(long startNanos) {
+        if (state == State.HALF_OPEN && startNanos - stateChangedAt >= 0) {
+            probesInFlight--;
+        }
+    }
+
+    private void record(byte outcome) {
+        if (windowCount == window.length) {
+            byte evicted = window[windowIndex];
+            failedCalls -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = outcome;
+        failedCalls += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transition(State next) {
+        State previous = state;
+        state = next;
+        stateChangedAt = System.nanoTime();
+        probesInFlight = 0;
+        probesSucceeded = 0;
+        if (next == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            failedCalls = 0;
+            slowCalls = 0;
+        }
+
+        if (next == State.OPEN && previous == State.HALF_OPEN) {
+            LOGGER.warn("Circuit breaker for {} opened again, a probe call failed or was slow", upstream);
+        } else if (next == State.OPEN) {
+            LOGGER.warn("Circuit breaker for {} opened after {} of the last {} calls failed and {} were slow",
+                upstream, failedCalls, windowCount, slowCalls);
+        } else {
+            LOGGER.info("Circuit breaker for {} is now {}", upstream, next);
+        }
+        Counter.builder("upstream.circuit.transitions")
+            .description("State transitions of the upstream circuit breaker")
+            .tag("upstream", upstream)
+            .tag("from", previous.name().toLowerCase())
+            .tag("to", next.name().toLowerCase())
+            .register(meterRegistry)
+            .increment();
+    }
+}
@@ -0,0 +1,478 @@
+package com.example.weatherapp.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.example.weatherapp.configuration.AppConfiguration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Hedging sends a second, identical call to an upstream when the first one has not answered within a delay,
+ * uses whichever call succeeds first and cancels the other. A call that fails does not win: the outcome is then
+ * the other call's, and the failure is only reported when both failed. The delay is a percentile of the latency of recent
+ * calls, so that only the slowest calls are hedged, and no shorter than the configured minimum.
+ * Hedged calls are capped by a budget: every call earns the configured ratio of a hedge, and a hedge is only
+ * sent while a whole one has been earned. Calls are not hedged until enough latencies have been recorded.
+ * The attempts of a call are made separately and each acquires its own permit, so hedges count against
+ * the rate limits and quota like any other call.
+ * Hedges are counted by "upstream.hedges", tagged with the upstream and the outcome: "won" when the hedge
+ * succeeded first, "lost" when the first call did, "failed" when the hedge failed, and "skipped" when the delay
+ * passed without budget left.
+ */
+public class Hedging {
+
+    // Latencies recorded before calls are hedged.
+    private static final int MIN_SAMPLES = 100;
+
+    // Number of latest latencies the delay is computed over.
+    private static final int WINDOW_SIZE = 1000;
+
+    // The delay is computed again every time this many latencies have been recorded.
+    private static final int RECOMPUTE_INTERVAL = 100;
+
+    // Hedges that can be saved up, so that a run of fast calls does not allow a burst of hedges.
+    private static final double MAX_BUDGET = 10;
+
+    // The blocking attempt running on the current thread, to which the HTTP request factory hands its request.
+    private static final ThreadLocal<Attempt<?>> CURRENT_ATTEMPT = new ThreadLocal<>();
+
+    private final boolean enabled;
+
+    private final double percentile;
+
+    private final long minDelayInNanos;
+
+    // Fraction of a hedge earned per call.
+    private final double maxRatio;
+
+    // Threads of the hedges of blocking calls, one per hedge.
+    private final ThreadFactory threadFactory;
+
+    // Ring buffer of the latest latencies, guarded by this.
+    private final long[] latencies = new long[WINDOW_SIZE];
+
+    // Number of latencies recorded so far, guarded by this.
+    private long recorded;
+
+    // Hedges that may currently be sent, guarded by this.
+    private double budget;
+
+    // The current delay, or -1 while too few latencies have been recorded.
+    private volatile long delayInNanos = -1;
+
+    private final Counter hedgesWon;
+
+    private final Counter hedgesLost;
+
+    private final Counter hedgesFailed;
+
+    private final Counter hedgesSkipped;
+
+    /**
+     * Creates the hedging of an upstream.
+     *
+     * @param upstream The upstream tag, e.g. "geocode" or "forecast".
+     * @param appConfiguration The configuration holding the hedging settings.
+     * @param meterRegistry The registry to publish the hedges to.
+     */
+    public Hedging(String upstream, AppConfiguration appConfiguration, MeterRegistry meterRegistry) {
+        this.enabled = appConfiguration.isHedgingEnabled();
+        this.percentile = Math.max(0, Math.min(1, appConfiguration.getHedgingPercentile()));
+        this.minDelayInNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, appConfiguration.getHedgingMinDelayInMillis()));
+        this.maxRatio = Math.max(0, appConfiguration.getHedgingMaxRatio());
+        this.threadFactory = Thread.ofVirtual().name("hedged-" + upstream + "-", 0).factory();
+
+        this.hedgesWon = hedgeCounter(meterRegistry, upstream, "won");
+        this.hedgesLost = hedgeCounter(meterRegistry, upstream, "lost");
+        this.hedgesFailed = hedgeCounter(meterRegistry, upstream, "failed");
+        this.hedgesSkipped = hedgeCounter(meterRegistry, upstream, "skipped");
+        Gauge.builder("upstream.hedging.delay", this, Hedging::getDelayInMillis)
+            .description("Time after which a call to the upstream is hedged, or -1 while too few calls were made")
+            .tag("upstream", upstream)
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+    }
+
+    private static Counter hedgeCounter(MeterRegistry meterRegistry, String upstream, String outcome) {
+        return Counter.builder("upstream.hedges")
+            .description("Hedged calls to the upstream, by which call succeeded first")
+            .tag("upstream", upstream)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns the current delay in milliseconds, or -1 while too few latencies have been recorded.
+     */
+    public double getDelayInMillis() {
+        long delay = delayInNanos;
+        return delay < 0 ? -1 : delay / 1e6;
+    }
+
+    /**
+     * Makes a blocking call, hedged once it has not answered within the delay.
+     * The first attempt runs on the calling thread. Once the delay has passed without an answer, the hedge is
+     * started on a virtual thread of its own, and the calling thread takes the outcome of the first attempt to
+     * succeed, or the error of its own attempt when both failed. The attempt that did not succeed first is aborted
+     * through the request registered with registerRequest, and interrupted; a hedge whose request cannot be aborted
+     * is left to finish in the background.
+     *
+     * @param call The call, made once per attempt. It must complete its own permit and metrics.
+     * @return The result of the attempt that succeeded first.
+     * @throws IOException If the first attempt failed and the hedge, if one was sent, failed too.
+     */
+    public <T> T call(Call<T> call) throws IOException {
+        if (!enabled) {
+            return call.call();
+        }
+        earn();
+        long delay = delayInNanos;
+        if (delay < 0) {
+            long start = System.nanoTime();
+            try {
+                return call.call();
+            } finally {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        Attempt<T> primary = new Attempt<>(Thread.currentThread());
+        AtomicReference<Attempt<T>> sent = new AtomicReference<>();
+        Disposable timer = Schedulers.parallel()
+            .schedule(() -> hedge(call, primary, sent), delay, TimeUnit.NANOSECONDS);
+        T result = null;
+        Exception failure = null;
+        try {
+            result = primary.run(call);
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            timer.dispose();
+        }
+
+        // No hedge is sent once the first attempt returned.
+        Attempt<T> hedge = sent.get();
+        if (hedge == null) {
+            if (failure != null) {
+                throw rethrow(failure);
+            }
+            return result;
+        }
+        if (failure == null && !primary.abandoned) {
+            if (hedge.isCompletedExceptionally()) {
+                hedgesFailed.increment();
+            } else {
+                hedgesLost.increment();
+                hedge.abort();
+            }
+            return result;
+        }
+
+        // The first attempt failed, or was aborted because the hedge succeeded.
+        try {
+            T hedgeResult = hedge.get();
+            hedgesWon.increment();
+            return hedgeResult;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            hedge.abort();
+            throw new InterruptedIOException("Interrupted while waiting for the upstream");
+        } catch (ExecutionException e) {
+            hedgesFailed.increment();
+            throw rethrow(failure);
+        }
+    }
+
+    /**
+     * Makes a non-blocking call, hedged once it has not answered within the delay.
+     * The attempt that does not succeed first is cancelled. When the first attempt fails before the delay,
+     * no hedge is sent.
+     *
+     * @param call Supplies the call, subscribed to once per attempt. It must complete its own permit and metrics,
+     *             including on cancellation.
+     * @return Mono emitting the result of the attempt that succeeded first, or the error of the first attempt
+     *         if no attempt succeeded.
+     */
+    public <T> Mono<T> callAsync(Supplier<Mono<T>> call) {
+        if (!enabled) {
+            return Mono.defer(call);
+        }
+        return Mono.defer(() -> {
+            earn();
+            long delay = delayInNanos;
+            if (delay < 0) {
+                return timed(call);
+            }
+            // The error of the first attempt, reported when no attempt succeeded.
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            Sinks.One<Boolean> primaryFailed = Sinks.one();
+            Mono<T> primary = timed(call)
+                .doOnError(e -> {
+                    primaryError.set(e);
+                    primaryFailed.tryEmitValue(Boolean.TRUE);
+                });
+            Mono<T> hedge = Mono.delay(Duration.ofNanos(delay))
+                // A first attempt failing within the delay is not hedged.
+                .takeUntilOther(primaryFailed.asMono())
+                .flatMap(tick -> {
+                    if (!tryHedge()) {
+                        hedgesSkipped.increment();
+                        return Mono.empty();
+                    }
+                    // The attempt succeeding first cancels the other one, a failed attempt leaves it running.
+                    return timed(call)
+                        .doOnSuccess(result -> hedgesWon.increment())
+                        .doOnError(e -> hedgesFailed.increment())
+                        .doOnCancel(hedgesLost::increment);
+                });
+            return Mono.firstWithValue(primary, hedge)
+                // Fails with NoSuchElementException, the attempts' errors suppressed, when no attempt succeeded.
+                .onErrorMap(NoSuchElementException.class, e -> {
+                    Throwable error = primaryError.get();
+                    return error != null ? error : e;
+                });
+        });
+    }
+
+    /**
+     * Lets the blocking attempt running on the current thread, if any, abort the request it is about to send.
+     * Called by the HTTP request factory for every request it creates.
+     *
+     * @param abort Aborts the request; running it once the request completed must be harmless.
+     */
+    public static void registerRequest(Runnable abort) {
+        Attempt<?> attempt = CURRENT_ATTEMPT.get();
+        if (attempt != null) {
+            attempt.register(abort);
+        }
+    }
+
+    /**
+     * Checks whether the current thread runs a blocking attempt that was aborted because the other attempt
+     * succeeded first. Its failure then tells nothing about the upstream and is not to be counted against it.
+     */
+    public static boolean isAbandoned() {
+        Attempt<?> attempt = CURRENT_ATTEMPT.get();
+        return attempt != null && attempt.abandoned;
+    }
+
+    /**
+     * Sends the hedge of a blocking call once the delay has passed, unless its first attempt already returned.
+     * A hedge that succeeds aborts the first attempt, a hedge that fails leaves it running.
+     */
+    private <T> void hedge(Call<T> call, Attempt<T> primary, AtomicReference<Attempt<T>> sent) {
+        // Holding the lock of the first attempt, which cannot return meanwhile.
+        synchronized (primary) {
+            if (primary.returned) {
+                return;
+            }
+            if (!tryHedge()) {
+                hedgesSkipped.increment();
+                return;
+            }
+            Attempt<T> hedge = start(call);
+            sent.set(hedge);
+            hedge.thenAccept(result -> primary.abort());
+        }
+    }
+
+    /**
+     * Starts a blocking attempt on its own thread.
+     */
+    private <T> Attempt<T> start(Call<T> call) {
+        Attempt<T> attempt = new Attempt<>();
+        Thread thread = threadFactory.newThread(() -> {
+            try {
+                attempt.complete(attempt.run(call));
+            } catch (Throwable e) {
+                attempt.completeExceptionally(e);
+            }
+        });
+        attempt.thread = thread;
+        thread.start();
+        return attempt;
+    }
+
+    /**
+     * Records the latency of a non-blocking attempt, up to its outcome or cancellation.
+     */
+    private <T> Mono<T> timed(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean();
+            Runnable record = () -> {
+                if (recorded.compareAndSet(false, true)) {
+                    record(System.nanoTime() - start);
+                }
+            };
+            return call.get()
+                .doOnSuccess(result -> record.run())
+                .doOnError(e -> record.run())
+                .doOnCancel(record);
+        });
+    }
+
+    /**
+     * Records the latency of an attempt, and computes the delay again every RECOMPUTE_INTERVAL latencies.
+     * Attempts aborted after losing are recorded up to the abort, a lower bound of their latency.
+     */
+    private void record(long latencyInNanos) {
+        long[] window = null;
+        synchronized (this) {
+            latencies[(int) (recorded % WINDOW_SIZE)] = latencyInNanos;
+            recorded++;
+            if (recorded >= MIN_SAMPLES && recorded % RECOMPUTE_INTERVAL == 0) {
+                window = Arrays.copyOf(latencies, (int) Math.min(recorded, WINDOW_SIZE));
+            }
+        }
+        if (window != null) {
+            // Sorted outside the lock, the delay may lag behind by a few calls.
+            Arrays.sort(window);
+            int rank = (int) Math.ceil(percentile * window.length) - 1;
+            delayInNanos = Math.max(minDelayInNanos, window[Math.max(0, Math.min(window.length - 1, rank))]);
+        }
+    }
+
+    /**
+     * Earns the fraction of a hedge allowed per call.
+     */
+    private synchronized void earn() {
+        budget = Math.min(MAX_BUDGET, budget + maxRatio);
+    }
+
+    /**
+     * Spends a hedge if one was earned.
+     *
+     * @return true if a hedge may be sent.
+     */
+    private synchronized boolean tryHedge() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    private static IOException rethrow(Throwable e) {
+        if (e instanceof IOException ioException) {
+            return ioException;
+        }
+        if (e instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return new IOException(e);
+    }
+
+    /**
+     * A blocking upstream call.
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+
+        T call() throws IOException;
+    }
+
+    /**
+     * A blocking attempt. A hedge is completed with the outcome of its call, the first attempt is not completed.
+     */
+    private class Attempt<T> extends CompletableFuture<T> {
+
+        private final long start = System.nanoTime();
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        // The thread making the call.
+        private volatile Thread thread;
+
+        // Whether the call returned, after which its thread is no longer interrupted, guarded by this.
+        private boolean returned;
+
+        // Aborts the request of the attempt once sent.
+        private volatile Runnable abortRequest;
+
+        private volatile boolean abandoned;
+
+        Attempt() {
+        }
+
+        Attempt(Thread thread) {
+            this.thread = thread;
+        }
+
+        /**
+         * Makes the call of the attempt on the current thread.
+         */
+        T run(Call<T> call) throws IOException {
+            CURRENT_ATTEMPT.set(this);
+            try {
+                return call.call();
+            } finally {
+                CURRENT_ATTEMPT.remove();
+                synchronized (this) {
+                    returned = true;
+                    if (abandoned) {
+                        // Clears the interrupt of abort, so that it does not reach what the thread runs next.
+                        Thread.interrupted();
+                    }
+                }
+                finish();
+            }
+        }
+
+        void register(Runnable abort) {
+            abortRequest = abort;
+            if (abandoned) {
+                abort.run();
+            }
+        }
+
+        /**
+         * Gives up on the attempt while its call runs: aborts its request and interrupts its thread.
+         */
+        synchronized void abort() {
+            if (returned) {
+                return;
+            }
+            abandoned = true;
+            finish();
+            Runnable abort = abortRequest;
+            if (abort != null) {
+                abort.run();
+            }
+            // The first attempt runs on the calling thread, which is only interrupted until the call returned.
+            Thread attemptThread = thread;
+            if (attemptThread != null) {
+                attemptThread.interrupt();
+            }
+        }
+
+        /**
+         * Records the latency of the attempt, once, when it returns or is aborted.
+         */
+        void finish() {
+            if (finished.compareAndSet(false, true)) {
+                record(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.weatherapp.http;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * InFlightLimitInterceptor caps the number of outbound calls in flight at the same time.
+ * With virtual threads the number of concurrent requests is no longer bounded by the servlet
+ * thread pool, so this cap is what keeps a burst from opening an unbounded number of upstream calls.
+ * Callers wait up to the acquire timeout for a permit and fail with a ResourceAccessException otherwise.
+ * A permit is held until the response headers have been received.
+ */
+public class InFlightLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    // Permits for calls allowed to be in flight.
+    private final Semaphore permits;
+
+    // Maximum number of milliseconds to wait for a permit.
+    private final long acquireTimeoutInMillis;
+
+    private final int maxInFlight;
+
+    public InFlightLimitInterceptor(int maxInFlight, long acquireTimeoutInMillis) {
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.acquireTimeoutInMillis = acquireTimeoutInMillis;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutInMillis, TimeUnit.MILLISECONDS)) {
+                throw new ResourceAccessException("Too many in-flight calls to " + request.getURI().getHost());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting to call " + request.getURI().getHost());
+        }
+
+        try {
+            return execution.execute(request, body);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Returns the number of calls currently in flight.
+     */
+    public int inFlightCount() {
+        return maxInFlight - permits.availablePermits();
+    }
+}
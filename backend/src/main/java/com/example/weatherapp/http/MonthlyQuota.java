@@ -0,0 +1,113 @@
+package com.example.weatherapp.http;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MonthlyQuota tracks the calls made with an API key against its budget for the calendar month,
+ * in the time zone of its clock, and starts over when the month changes.
+ * The count is kept in memory by each instance of the application, so with several instances
+ * each should be given its share of the provider's quota.
+ * A key the provider reported as over quota is marked exhausted until the end of the month.
+ */
+public class MonthlyQuota {
+
+    private final Clock clock;
+
+    // Calls per month, 0 for no budget.
+    private final long budget;
+
+    private final AtomicLong used = new AtomicLong();
+
+    // Month the count belongs to, as year * 12 + month.
+    private final AtomicInteger month;
+
+    // Month during which the provider reported the key as over quota, or -1.
+    private final AtomicInteger exhaustedMonth = new AtomicInteger(-1);
+
+    /**
+     * Creates the quota of a key.
+     *
+     * @param budget The number of calls per month, 0 for no budget.
+     * @param clock The clock deciding the current month.
+     */
+    public MonthlyQuota(long budget, Clock clock) {
+        this.budget = budget;
+        this.clock = clock;
+        this.month = new AtomicInteger(currentMonth());
+    }
+
+    /**
+     * Counts calls against the budget if it allows them.
+     *
+     * @param calls The number of calls.
+     * @return true if the calls fit in the budget and were counted.
+     */
+    public boolean tryConsume(int calls) {
+        int current = rollOver();
+        if (exhaustedMonth.get() == current) {
+            return false;
+        }
+        long total = used.addAndGet(calls);
+        if (budget > 0 && total > budget) {
+            used.addAndGet(-calls);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Marks the key as over quota until the end of the month.
+     */
+    public void exhaust() {
+        exhaustedMonth.set(rollOver());
+    }
+
+    /**
+     * Returns the fraction of the budget left this month, 1 without a budget and 0 once exhausted.
+     */
+    public double remainingRatio() {
+        int current = rollOver();
+        if (exhaustedMonth.get() == current) {
+            return 0;
+        }
+        if (budget <= 0) {
+            return 1;
+        }
+        return Math.max(0, budget - used.get()) / (double) budget;
+    }
+
+    /**
+     * Returns the number of calls left this month, or -1 without a budget.
+     */
+    public long remaining() {
+        if (budget <= 0) {
+            return -1;
+        }
+        if (exhaustedMonth.get() == rollOver()) {
+            return 0;
+        }
+        return Math.max(0, budget - used.get());
+    }
+
+    /**
+     * Starts the count over if the month changed since the last call.
+     *
+     * @return The current month.
+     */
+    private int rollOver() {
+        int current = currentMonth();
+        int counted = month.get();
+        if (counted != current && month.compareAndSet(counted, current)) {
+            used.set(0);
+        }
+        return current;
+    }
+
+    private int currentMonth() {
+        YearMonth now = YearMonth.now(clock);
+        return now.getYear() * 12 + now.getMonthValue() - 1;
+    }
+}
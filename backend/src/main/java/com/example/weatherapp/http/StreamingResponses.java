@@ -0,0 +1,109 @@
+package com.example.weatherapp.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * StreamingResponses makes upstream calls whose response body is parsed as it arrives, instead of being
+ * buffered into a String first. Failures to send the request or to read the body are thrown as
+ * RestClientException, as getForObject throws them, so that they are told apart from a body that was read
+ * but could not be parsed, which fails with the IOException of the parser.
+ */
+public final class StreamingResponses {
+
+    private StreamingResponses() {
+    }
+
+    /**
+     * Reads a response body.
+     *
+     * @param <T> The type read from the body.
+     */
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /**
+     * Sends a GET request and reads the response body with the given reader. Error statuses are handled by the
+     * error handler of the RestTemplate before the body is read.
+     *
+     * @param restTemplate The RestTemplate to send the request with.
+     * @param url The request URL.
+     * @param reader The reader of the body. The body is closed with the response.
+     * @return The value read from the body.
+     * @throws IOException If the reader failed.
+     * @throws RestClientException If the request failed, its response has an error status or its body could not be read.
+     */
+    public static <T> T get(RestTemplate restTemplate, String url, BodyReader<T> reader) throws IOException {
+        try {
+            return restTemplate.execute(url, HttpMethod.GET, null, response -> {
+                try {
+                    return reader.read(new ReadFailureInputStream(response.getBody()));
+                } catch (IOException e) {
+                    // Passed through the RestTemplate unwrapped, which turns IOExceptions into ResourceAccessExceptions.
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Body stream throwing read failures as ResourceAccessException, as the RestTemplate reports I/O errors.
+     */
+    private static final class ReadFailureInputStream extends FilterInputStream {
+
+        ReadFailureInputStream(InputStream body) {
+            super(body);
+        }
+
+        @Override
+        public int read() {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            try {
+                return super.read(buffer, offset, length);
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
+
+        @Override
+        public long skip(long n) {
+            try {
+                return super.skip(n);
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
+
+        @Override
+        public int available() {
+            try {
+                return super.available();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
+
+        private static ResourceAccessException readFailure(IOException e) {
+            return new ResourceAccessException("I/O error reading the response body: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.weatherapp.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TokenBucket limits the rate of calls made with an API key, allowing short bursts.
+ * It is the lock-free form of a token bucket known as the generic cell rate algorithm: instead of a token count
+ * refilled by a timer, it keeps the time at which the bucket will be full again in a single AtomicLong.
+ * Taking a token moves that time forward by the interval between tokens, and is refused if it would then
+ * be more than one burst ahead of now. A call costs one compare-and-set, so the limiter does not become
+ * a point of contention between request threads.
+ */
+public class TokenBucket {
+
+    // Time between two tokens.
+    private final long intervalInNanos;
+
+    // How far ahead of now the bucket may be drawn, the burst size in time.
+    private final long burstInNanos;
+
+    // Theoretical arrival time: the System.nanoTime() at which all tokens taken so far are paid back.
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param tokensPerSecond The sustained rate, above 0.
+     * @param burst The number of tokens that can be taken at once.
+     */
+    public TokenBucket(double tokensPerSecond, int burst) {
+        this.intervalInNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond));
+        this.burstInNanos = intervalInNanos * Math.max(1, burst);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return true if a token was taken.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + intervalInNanos;
+            if (next - now > burstInNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken for a call that was not made.
+     */
+    public void refund() {
+        theoreticalArrival.addAndGet(-intervalInNanos);
+    }
+}
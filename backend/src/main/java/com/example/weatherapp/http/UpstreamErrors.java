@@ -0,0 +1,60 @@
+package com.example.weatherapp.http;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * UpstreamErrors translates WebClient failures into the RestTemplate exceptions the blocking path throws,
+ * so that the blocking and reactive endpoints map upstream failures to the same status codes.
+ */
+public final class UpstreamErrors {
+
+    private UpstreamErrors() {
+    }
+
+    /**
+     * Converts a WebClient failure into the equivalent RestClientException.
+     *
+     * @param e The WebClient failure.
+     * @return HttpClientErrorException or HttpServerErrorException for error responses, RestClientException otherwise.
+     */
+    public static RestClientException toRestClientException(WebClientException e) {
+        if (e instanceof WebClientResponseException response) {
+            if (response.getStatusCode().is4xxClientError()) {
+                return HttpClientErrorException.create(response.getMessage(), response.getStatusCode(),
+                    response.getStatusText(), response.getHeaders(), response.getResponseBodyAsByteArray(), null);
+            }
+            if (response.getStatusCode().is5xxServerError()) {
+                return HttpServerErrorException.create(response.getMessage(), response.getStatusCode(),
+                    response.getStatusText(), response.getHeaders(), response.getResponseBodyAsByteArray(), null);
+            }
+        }
+        return new RestClientException(e.getMessage(), e);
+    }
+
+    /**
+     * Checks whether a failed call counts against the health of the upstream, for its circuit breaker
+     * and concurrency limit. Client errors mean the request was rejected on its own merits and do not count,
+     * except 429 Too Many Requests. Network failures, server errors and unreadable responses do.
+     *
+     * @param e The failure, possibly wrapped in a CompletionException or an IOException.
+     * @return true if the failure counts against the upstream.
+     */
+    public static boolean isUpstreamFailure(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof IOException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof HttpClientErrorException clientError) {
+            return clientError.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.weatherapp.http;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.example.weatherapp.configuration.AppConfiguration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * UpstreamGuard lets calls to one upstream through its circuit breaker and adaptive concurrency limit,
+ * and picks the API key of each call from the pool of the upstream, within the rate limit and monthly quota of the key.
+ * The circuit breaker and concurrency limit are enabled separately in the configuration; with neither enabled
+ * and no limits on the keys every call is let through.
+ * Rejected calls are counted by "upstream.calls.rejected", tagged with the upstream and the reason.
+ */
+public class UpstreamGuard {
+
+    private final String upstream;
+
+    // The API keys of the upstream.
+    private final ApiKeyPool apiKeys;
+
+    // The circuit breaker, or null if disabled.
+    private final CircuitBreaker circuitBreaker;
+
+    // The concurrency limit, or null if disabled.
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final Counter circuitOpenRejections;
+
+    private final Counter concurrencyLimitRejections;
+
+    private final Counter rateLimitRejections;
+
+    private final Counter quotaRejections;
+
+    /**
+     * Creates the guard of an upstream.
+     *
+     * @param upstream The upstream tag, e.g. "geocode" or "forecast".
+     * @param apiKeys The API keys of the upstream.
+     * @param appConfiguration The configuration holding the circuit breaker and concurrency limit settings.
+     * @param meterRegistry The registry to publish the state to.
+     */
+    public UpstreamGuard(String upstream, ApiKeyPool apiKeys, AppConfiguration appConfiguration, MeterRegistry meterRegistry) {
+        this.upstream = upstream;
+        this.apiKeys = apiKeys;
+        this.circuitBreaker = appConfiguration.isCircuitBreakerEnabled()
+            ? new CircuitBreaker(upstream, meterRegistry,
+                appConfiguration.getCircuitBreakerFailureRateThreshold(),
+                appConfiguration.getCircuitBreakerSlowCallRateThreshold(),
+                appConfiguration.getCircuitBreakerSlowCallDurationInMillis(),
+                appConfiguration.getCircuitBreakerWindowSize(),
+                appConfiguration.getCircuitBreakerMinimumCalls(),
+                appConfiguration.getCircuitBreakerOpenDurationInMillis(),
+                appConfiguration.getCircuitBreakerHalfOpenCalls())
+            : null;
+        this.concurrencyLimit = appConfiguration.isConcurrencyLimitEnabled()
+            ? new AdaptiveConcurrencyLimit(upstream, meterRegistry,
+                appConfiguration.getConcurrencyLimitInitial(),
+                appConfiguration.getConcurrencyLimitMin(),
+                appConfiguration.getConcurrencyLimitMax(),
+                appConfiguration.getConcurrencyLimitLatencyThresholdInMillis(),
+                appConfiguration.getConcurrencyLimitBackoffRatio())
+            : null;
+        this.circuitOpenRejections = rejectionCounter(meterRegistry, upstream, "circuit_open");
+        this.concurrencyLimitRejections = rejectionCounter(meterRegistry, upstream, "concurrency_limit");
+        this.rateLimitRejections = rejectionCounter(meterRegistry, upstream, "rate_limit");
+        this.quotaRejections = rejectionCounter(meterRegistry, upstream, "quota");
+    }
+
+    /**
+     * Checks whether calls are currently rejected by an open circuit.
+     * Used to skip optional calls, such as background refreshes, without counting them as rejected.
+     */
+    public boolean isOpen() {
+        return circuitBreaker != null && circuitBreaker.isOpen();
+    }
+
+    /**
+     * Checks whether the monthly budget of the API keys is running low.
+     * Optional calls, such as background refreshes, should then be skipped in favor of cached data.
+     */
+    public boolean isBudgetLow() {
+        return apiKeys.isBudgetLow();
+    }
+
+    /**
+     * Marks the API key of a call as over quota until the end of the month, after the upstream reported it.
+     *
+     * @param apiKey The API key.
+     */
+    public void exhaust(String apiKey) {
+        apiKeys.exhaust(apiKey);
+    }
+
+    /**
+     * Asks to make a call.
+     *
+     * @return The permit of the call, to complete once the call is done.
+     * @throws CallNotPermittedException If the call is rejected.
+     */
+    public Permit acquire() {
+        return acquire(1);
+    }
+
+    /**
+     * Asks to make a call that counts as several calls against the quota, such as a bulk request.
+     *
+     * @param calls The number of calls counted against the quota.
+     * @return The permit of the call, to complete once the call is done.
+     * @throws CallNotPermittedException If the circuit is open, the concurrency limit is reached,
+     *                                   or every API key is rate limited or out of budget.
+     */
+    public Permit acquire(int calls) {
+        if (concurrencyLimit != null && !concurrencyLimit.tryAcquire()) {
+            concurrencyLimitRejections.increment();
+            throw new CallNotPermittedException("Too many calls in flight to " + upstream);
+        }
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            if (concurrencyLimit != null) {
+                concurrencyLimit.cancel();
+            }
+            circuitOpenRejections.increment();
+            throw new CallNotPermittedException("Circuit breaker for " + upstream + " is open");
+        }
+
+        long startNanos = System.nanoTime();
+        ApiKeyPool.ApiKey apiKey = apiKeys.acquire(calls);
+        if (apiKey == null) {
+            if (concurrencyLimit != null) {
+                concurrencyLimit.cancel();
+            }
+            if (circuitBreaker != null) {
+                circuitBreaker.cancel(startNanos);
+            }
+            if (apiKeys.isExhausted()) {
+                quotaRejections.increment();
+                throw new CallNotPermittedException("Monthly quota of " + upstream + " is exhausted");
+            }
+            rateLimitRejections.increment();
+            throw new CallNotPermittedException("Rate limit of " + upstream + " reached");
+        }
+        return new Permit(startNanos, apiKey.value());
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String upstream, String reason) {
+        return Counter.builder("upstream.calls.rejected")
+            .description("Upstream calls rejected before being made")
+            .tag("upstream", upstream)
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Permit of a call let through. Completing it feeds the outcome and duration of the call
+     * to the circuit breaker and the concurrency limit; only the first completion counts.
+     */
+    public final class Permit {
+
+        private final long startNanos;
+
+        // The API key to make the call with.
+        private final String apiKey;
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Permit(long startNanos, String apiKey) {
+            this.startNanos = startNanos;
+            this.apiKey = apiKey;
+        }
+
+        /**
+         * Returns the API key to make the call with.
+         */
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        /**
+         * Completes the call.
+         *
+         * @param failed Whether the call failed in a way that counts against the upstream:
+         *               a network failure, a server error or an error such as an exceeded quota,
+         *               but not a request the upstream rightly rejected.
+         */
+        public void complete(boolean failed) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            long durationInNanos = System.nanoTime() - startNanos;
+            if (circuitBreaker != null) {
+                circuitBreaker.onComplete(startNanos, durationInNanos, failed);
+            }
+            if (concurrencyLimit != null) {
+                concurrencyLimit.onComplete(durationInNanos, failed);
+            }
+        }
+    }
+}
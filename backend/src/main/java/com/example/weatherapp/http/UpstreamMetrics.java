@@ -0,0 +1,128 @@
+package com.example.weatherapp.http;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * UpstreamMetrics records the calls made to one upstream API.
+ * The network time of every call goes to the "upstream.requests" timer, tagged with the upstream,
+ * the outcome and the error code reported by the upstream. Parsing the response is timed separately
+ * by the "upstream.parse" timer, so that a slow upstream can be told apart from a slow parse. Responses are
+ * parsed as their body is read, so the parse time includes receiving the body once the headers arrived.
+ * Both timers publish percentile histograms.
+ */
+public class UpstreamMetrics {
+
+    // The response was received and parsed.
+    public static final String SUCCESS = "success";
+
+    // The upstream answered with an error in the response body, e.g. WeatherAPI code 1006 or Google ZERO_RESULTS.
+    public static final String API_ERROR = "api_error";
+
+    // The upstream answered with a 4xx status code.
+    public static final String CLIENT_ERROR = "client_error";
+
+    // The upstream answered with a 5xx status code.
+    public static final String SERVER_ERROR = "server_error";
+
+    // The call failed without a response: connection failure, timeout, rejected by the in-flight limit.
+    public static final String IO_ERROR = "io_error";
+
+    // The response could not be parsed.
+    public static final String PARSE_ERROR = "parse_error";
+
+    // Error code tag of calls without an error code.
+    public static final String NO_ERROR_CODE = "none";
+
+    /**
+     * A parse that may fail with an IOException.
+     *
+     * @param <T> The parsed type.
+     */
+    @FunctionalInterface
+    public interface Parse<T> {
+        T parse() throws IOException;
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final String upstream;
+
+    private final Timer parseTimer;
+
+    /**
+     * Creates the metrics of an upstream.
+     *
+     * @param meterRegistry The registry to record to.
+     * @param upstream The upstream tag, e.g. "geocode" or "forecast".
+     */
+    public UpstreamMetrics(MeterRegistry meterRegistry, String upstream) {
+        this.meterRegistry = meterRegistry;
+        this.upstream = upstream;
+        this.parseTimer = Timer.builder("upstream.parse")
+            .description("Time spent parsing upstream responses")
+            .tag("upstream", upstream)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    /**
+     * Records the network time of a call.
+     *
+     * @param durationInNanos The time from sending the request to receiving the whole response.
+     * @param outcome The outcome, one of the constants of this class.
+     * @param errorCode The error code reported by the upstream, or NO_ERROR_CODE.
+     */
+    public void recordRequest(long durationInNanos, String outcome, String errorCode) {
+        Timer.builder("upstream.requests")
+            .description("Network time of upstream calls")
+            .tag("upstream", upstream)
+            .tag("outcome", outcome)
+            .tag("error_code", errorCode != null ? errorCode : NO_ERROR_CODE)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(durationInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a call that failed without a parseable response.
+     *
+     * @param startNanos The System.nanoTime() at which the call was started.
+     * @param e The failure, a RestClientException or the exception wrapping it.
+     * @param errorCode The error code reported by the upstream, or null to use the HTTP status code.
+     */
+    public void recordFailure(long startNanos, Throwable e, String errorCode) {
+        Throwable cause = e instanceof HttpStatusCodeException || e.getCause() == null ? e : e.getCause();
+        String outcome = IO_ERROR;
+        String code = NO_ERROR_CODE;
+        if (cause instanceof HttpStatusCodeException status) {
+            outcome = cause instanceof HttpClientErrorException ? CLIENT_ERROR
+                : cause instanceof HttpServerErrorException ? SERVER_ERROR : IO_ERROR;
+            code = errorCode != null ? errorCode : String.valueOf(status.getStatusCode().value());
+        }
+        recordRequest(System.nanoTime() - startNanos, outcome, code);
+    }
+
+    /**
+     * Runs and times a parse.
+     *
+     * @param parse The parse.
+     * @return The parsed value.
+     * @throws IOException If the parse failed.
+     */
+    public <T> T timeParse(Parse<T> parse) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return parse.parse();
+        } finally {
+            parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
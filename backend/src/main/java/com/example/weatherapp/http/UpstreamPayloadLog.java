@@ -0,0 +1,98 @@
+package com.example.weatherapp.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * UpstreamPayloadLog captures a sample of the responses of an upstream API for troubleshooting.
+ * Only a configurable fraction of the calls is logged, so capturing payloads of kilobytes does not cost
+ * throughput under load. Entries go to the "upstream.payloads" logger with key-value fields for the upstream,
+ * a hash of the address (so addresses are not written to the logs), the zip code, the status and the latency.
+ * The logger is routed to an asynchronous appender in logback-spring.xml.
+ */
+public class UpstreamPayloadLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("upstream.payloads");
+
+    // Number of hex characters of the address hash, enough to correlate entries of the same address.
+    private static final int ADDRESS_HASH_LENGTH = 16;
+
+    private final String upstream;
+
+    // Fraction of the calls that are logged, between 0 (none) and 1 (all).
+    private final double sampleRate;
+
+    /**
+     * Creates the payload log of an upstream.
+     *
+     * @param upstream The upstream field, e.g. "geocode".
+     * @param sampleRate The fraction of the calls that are logged, between 0 and 1.
+     */
+    public UpstreamPayloadLog(String upstream, double sampleRate) {
+        this.upstream = upstream;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Logs the response of a call if the call is sampled.
+     *
+     * @param address The address that was requested.
+     * @param zipCode The zip code of the result, or null.
+     * @param status The status of the response, or null.
+     * @param latencyInNanos The network time of the call.
+     * @param payload The response body.
+     */
+    public void log(String address, String zipCode, String status, long latencyInNanos, String payload) {
+        if (sample()) {
+            write(address, zipCode, status, latencyInNanos, payload);
+        }
+    }
+
+    /**
+     * Decides whether the current call is logged. Nothing is computed for calls that are not sampled.
+     * Callers parsing the response as it arrives decide before reading it, and only keep the body of sampled calls.
+     *
+     * @return true if the response of the call is to be written to the log.
+     */
+    public boolean sample() {
+        if (sampleRate <= 0 || !LOGGER.isInfoEnabled()) {
+            return false;
+        }
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Logs the response of a call that was sampled.
+     *
+     * @param address The address that was requested.
+     * @param zipCode The zip code of the result, or null.
+     * @param status The status of the response, or null.
+     * @param latencyInNanos The network time of the call.
+     * @param payload The response body.
+     */
+    public void write(String address, String zipCode, String status, long latencyInNanos, String payload) {
+        LOGGER.atInfo()
+            .addKeyValue("upstream", upstream)
+            .addKeyValue("address_hash", addressHash(address))
+            .addKeyValue("zip", zipCode)
+            .addKeyValue("status", status)
+            .addKeyValue("latency_ms", TimeUnit.NANOSECONDS.toMillis(latencyInNanos))
+            .setMessage("Upstream response: {}")
+            .addArgument(payload)
+            .log();
+    }
+
+    private static String addressHash(String address) {
+        if (address == null) {
+            return null;
+        }
+        return Hashing.sha256().hashString(address, StandardCharsets.UTF_8).toString()
+            .substring(0, ADDRESS_HASH_LENGTH);
+    }
+}
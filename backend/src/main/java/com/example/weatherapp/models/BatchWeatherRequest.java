@@ -0,0 +1,38 @@
+package com.example.weatherapp.models;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchWeatherRequest {
+
+    // Locations to retrieve weather data for, answered in the same order.
+    public List<Item> items;
+
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Item {
+        // Free-text address to geocode.
+        public String address;
+
+        // Zip code, used on its own or as the cache key for coordinates.
+        public String zip;
+
+        // Latitude coordinate, used together with lon instead of an address.
+        @JsonProperty("lat")
+        public Double latitude;
+
+        // Longitude coordinate, used together with lat instead of an address.
+        @JsonProperty("lon")
+        public Double longitude;
+    }
+}
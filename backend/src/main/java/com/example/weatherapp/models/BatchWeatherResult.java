@@ -0,0 +1,20 @@
+package com.example.weatherapp.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchWeatherResult {
+
+    // HTTP status the item would have received from /weather.
+    public int status;
+
+    // Weather data, or null if the lookup failed.
+    public Weather weather;
+
+    // Description of the failure, or null if the lookup succeeded.
+    public String error;
+}
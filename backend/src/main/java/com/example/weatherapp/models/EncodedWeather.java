@@ -0,0 +1,74 @@
+package com.example.weatherapp.models;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * EncodedWeather is weather data served from the WeatherService cache, together with the JSON encoding of its
+ * current conditions and forecast. The encoding is produced once, when the entry is cached, and shared by every
+ * request served from that entry, so that a cache hit only encodes what differs per request: the location and
+ * the cache flags. The current conditions and forecast are immutable and shared with the cache entry as well;
+ * they cannot be replaced, so that they always match the encoding.
+ */
+public class EncodedWeather extends Weather {
+
+    private static final byte[] CURRENT_FIELD = "\"current\":".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] FORECAST_FIELD = ",\"forecast\":".getBytes(StandardCharsets.UTF_8);
+
+    // The "current" and "forecast" members of the JSON object, as written by Jackson.
+    private final byte[] encodedData;
+
+    public EncodedWeather(Location location, Current current, Forecast forecast, long cacheAgeSeconds, boolean stale,
+                          byte[] encodedData) {
+        super(location, current, forecast, true, cacheAgeSeconds, stale);
+        this.encodedData = encodedData;
+    }
+
+    /**
+     * Rejected: the encoding holds the current conditions given when this object was created.
+     */
+    @Override
+    public void setCurrent(Current current) {
+        throw new UnsupportedOperationException("The current conditions of cached weather data cannot be replaced");
+    }
+
+    /**
+     * Rejected: the encoding holds the forecast given when this object was created.
+     */
+    @Override
+    public void setForecast(Forecast forecast) {
+        throw new UnsupportedOperationException("The forecast of cached weather data cannot be replaced");
+    }
+
+    /**
+     * Returns the "current" and "forecast" members of the JSON object, without the enclosing braces.
+     * The array is shared and must not be modified.
+     */
+    @JsonIgnore
+    public byte[] getEncodedData() {
+        return encodedData;
+    }
+
+    /**
+     * Encodes the "current" and "forecast" members of the JSON object of weather data, with the ObjectMapper
+     * that encodes the rest of the response, so that both parts follow the same Jackson configuration.
+     *
+     * @param objectMapper The ObjectMapper of the application.
+     * @param weather The weather data.
+     * @return The members, separated by a comma.
+     * @throws IOException If the data cannot be encoded.
+     */
+    public static byte[] encodeData(ObjectMapper objectMapper, Weather weather) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(CURRENT_FIELD);
+        out.write(objectMapper.writeValueAsBytes(weather.getCurrent()));
+        out.write(FORECAST_FIELD);
+        out.write(objectMapper.writeValueAsBytes(weather.getForecast()));
+        return out.toByteArray();
+    }
+}
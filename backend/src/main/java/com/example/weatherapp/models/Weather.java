@@ -1,10 +1,12 @@
 package com.example.weatherapp.models;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Value;
 
 @Data
 @AllArgsConstructor
@@ -12,77 +14,86 @@ import lombok.NoArgsConstructor;
 public class Weather {
 
     // Location information associated with the weather data.
-    public Location location;
+    private Location location;
 
-    // Current weather conditions.
-    public Current current;
+    // Current weather conditions, immutable so that cached conditions can be shared.
+    private Current current;
 
-    // Forecasted weather conditions.
-    public Forecast forecast;
+    // Forecasted weather conditions, immutable so that a cached forecast can be shared.
+    private Forecast forecast;
 
     // Flag for cache.
     @JsonProperty("from_cache")
-    public boolean fromCache = false;
+    private boolean fromCache = false;
 
+    // Seconds since the weather data was fetched from the WeatherAPI, set when served from cache.
+    @JsonProperty("cache_age_seconds")
+    private long cacheAgeSeconds = 0;
 
-    @Data
-    @AllArgsConstructor
-    @NoArgsConstructor
+    // Flag for data served past its cache expiry while a refresh is in progress.
+    @JsonProperty("stale")
+    private boolean stale = false;
+
+    public Weather(Location location, Current current, Forecast forecast, boolean fromCache) {
+        this(location, current, forecast, fromCache, 0, false);
+    }
+
+
+    @Value
+    @AllArgsConstructor(onConstructor_ = @JsonCreator)
     public static class Current {
         // Epoch time of the last weather update.
         @JsonProperty("last_updated_epoch")
-        private int lastUpdated;
+        int lastUpdated;
 
         // Temperature in Celsius.
         @JsonProperty("temp_c")
-        private double temperatureC;
+        double temperatureC;
 
         // Temperature in Fahrenheit.
         @JsonProperty("temp_f")
-        private double temperatureF;
+        double temperatureF;
 
         // Current weather condition details.
-        private Condition condition;
+        Condition condition;
     }
 
 
-    @Data
-    @AllArgsConstructor
-    @NoArgsConstructor
+    @Value
+    @AllArgsConstructor(onConstructor_ = @JsonCreator)
     public static class Forecast {
         // Minimum temperature in Celsius for the forecast period.
         @JsonProperty("mintemp_c")
-        private double minTempC;
+        double minTempC;
 
         // Minimum temperature in Fahrenheit for the forecast period.
         @JsonProperty("mintemp_f")
-        private double minTempF;
+        double minTempF;
 
         // Maximum temperature in Celsius for the forecast period.
         @JsonProperty("maxtemp_c")
-        private double maxTempC;
+        double maxTempC;
 
         // Maximum temperature in Fahrenheit for the forecast period.
         @JsonProperty("maxtemp_f")
-        private double maxTempF;
+        double maxTempF;
 
         // Forecasted weather condition details.
-        private Condition condition;
+        Condition condition;
     }
 
 
-    @Data
-    @AllArgsConstructor
-    @NoArgsConstructor
+    @Value
+    @AllArgsConstructor(onConstructor_ = @JsonCreator)
     public static class Condition {
         // Text description of the weather condition (e.g., "Sunny", "Cloudy").
-        public String text;
+        String text;
 
         // URL or path to the weather condition icon.
-        public String icon;
+        String icon;
 
         // Weather condition code.
-        public int code;
+        int code;
     }
 
 }
@@ -0,0 +1,189 @@
+package com.example.weatherapp.parsers;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+
+/**
+ * GeocodeParser reads Google Geocoding API responses with a streaming parser.
+ * Only the status and the formatted address, coordinates and postal code of the first result are read;
+ * all other results and address components are skipped without building a tree.
+ * The parser is stateless and safe to share between threads.
+ */
+public final class GeocodeParser {
+
+    // Shared, thread-safe factory for streaming parsers. Response streams are left to their owner to close.
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+        .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+        .build();
+
+    private GeocodeParser() {
+    }
+
+    /**
+     * The fields of a geocoding response.
+     *
+     * @param status The response status, e.g. "OK" or "ZERO_RESULTS", or null if missing.
+     * @param hasResult Whether the response holds at least one result.
+     * @param formattedAddress The formatted address of the first result.
+     * @param latitude The latitude of the first result.
+     * @param longitude The longitude of the first result.
+     * @param zipCode The postal code of the first result, or null if it has none.
+     */
+    public record ParsedGeocode(String status, boolean hasResult, String formattedAddress,
+                                double latitude, double longitude, String zipCode) {
+    }
+
+    /**
+     * Parses a geocoding response.
+     *
+     * @param response The JSON response.
+     * @return The parsed fields.
+     * @throws IOException If the response is not valid JSON.
+     */
+    public static ParsedGeocode parse(String response) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(response)) {
+            return readRoot(parser);
+        }
+    }
+
+    /**
+     * Parses a geocoding response directly from the response stream.
+     *
+     * @param response The JSON response stream. It is not closed.
+     * @return The parsed fields.
+     * @throws IOException If the response is not valid JSON or cannot be read.
+     */
+    public static ParsedGeocode parse(InputStream response) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(response)) {
+            return readRoot(parser);
+        }
+    }
+
+    private static ParsedGeocode readRoot(JsonParser parser) throws IOException {
+        ResultFields first = null;
+        String status = null;
+
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("status")) {
+                    status = WeatherApiParser.readScalar(parser);
+                } else if (field.equals("results") && value == JsonToken.START_ARRAY) {
+                    JsonToken element;
+                    while ((element = parser.nextToken()) != JsonToken.END_ARRAY && element != null) {
+                        if (first == null && element == JsonToken.START_OBJECT) {
+                            first = readResult(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (first == null) {
+            return new ParsedGeocode(status, false, null, 0, 0, null);
+        }
+        return new ParsedGeocode(status, true, first.formattedAddress, first.latitude, first.longitude, first.zipCode);
+    }
+
+    private static ResultFields readResult(JsonParser parser) throws IOException {
+        ResultFields result = new ResultFields();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "formatted_address" -> result.formattedAddress = parser.getValueAsString("");
+                case "geometry" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readGeometry(parser, result);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "address_components" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        readAddressComponents(parser, result);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return result;
+    }
+
+    private static void readGeometry(JsonParser parser, ResultFields result) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("location") && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String coordinate = parser.currentName();
+                    parser.nextToken();
+                    switch (coordinate) {
+                        case "lat" -> result.latitude = parser.getValueAsDouble();
+                        case "lng" -> result.longitude = parser.getValueAsDouble();
+                        default -> parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads the address components and keeps the long name of the first one typed "postal_code".
+     */
+    private static void readAddressComponents(JsonParser parser, ResultFields result) throws IOException {
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY && element != null) {
+            if (result.zipCode != null || element != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            String longName = null;
+            boolean postalCode = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("long_name")) {
+                    longName = parser.getValueAsString("");
+                } else if (field.equals("types") && value == JsonToken.START_ARRAY) {
+                    JsonToken type;
+                    while ((type = parser.nextToken()) != JsonToken.END_ARRAY && type != null) {
+                        if (type == JsonToken.VALUE_STRING && "postal_code".equals(parser.getText())) {
+                            postalCode = true;
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (postalCode) {
+                result.zipCode = longName != null ? longName : "";
+            }
+        }
+    }
+
+    // Mutable holder for the fields of the first result while it is being read.
+    private static final class ResultFields {
+        private String formattedAddress = "";
+        private double latitude;
+        private double longitude;
+        private String zipCode;
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.weatherapp.parsers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.weatherapp.models.Weather;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+
+/**
+ * WeatherApiParser reads WeatherAPI forecast responses with a streaming parser.
+ * Only the fields that end up in a Weather object are read; everything else (hourly data, astro,
+ * location details, ...) is skipped token by token without building a tree or binding objects.
+ * The parser is stateless and safe to share between threads.
+ */
+public final class WeatherApiParser {
+
+    // Shared, thread-safe factory for streaming parsers. Response streams are left to their owner to close.
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+        .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+        .build();
+
+    private WeatherApiParser() {
+    }
+
+    /**
+     * Error reported by the WeatherAPI.
+     *
+     * @param code The error code, e.g. "1006".
+     * @param message The error message.
+     */
+    public record ApiError(String code, String message) {
+    }
+
+    /**
+     * The fields of a forecast response, or of one entry of a bulk response.
+     *
+     * @param error The error reported for this response or entry, or null.
+     * @param customId The custom_id of a bulk entry, or null.
+     * @param current The current weather conditions, or null if the response has none.
+     * @param forecast The forecast of the first forecast day, or null if the response has none.
+     */
+    public record ParsedForecast(ApiError error, String customId, Weather.Current current, Weather.Forecast forecast) {
+    }
+
+    /**
+     * The fields of a bulk response.
+     *
+     * @param error The error reported for the whole request, or null.
+     * @param entries The entry for every location of the request.
+     */
+    public record ParsedBulk(ApiError error, List<ParsedForecast> entries) {
+    }
+
+    /**
+     * Parses a forecast response.
+     *
+     * @param response The JSON response.
+     * @return The parsed fields.
+     * @throws IOException If the response is not valid JSON.
+     */
+    public static ParsedForecast parseForecast(String response) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(response)) {
+            return readRootForecast(parser);
+        }
+    }
+
+    /**
+     * Parses a forecast response directly from the response stream.
+     *
+     * @param response The JSON response stream. It is not closed.
+     * @return The parsed fields.
+     * @throws IOException If the response is not valid JSON or cannot be read.
+     */
+    public static ParsedForecast parseForecast(InputStream response) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(response)) {
+            return readRootForecast(parser);
+        }
+    }
+
+    /**
+     * Parses a bulk response directly from the response stream.
+     *
+     * @param response The JSON response stream. It is not closed.
+     * @return The parsed fields.
+     * @throws IOException If the response is not valid JSON or cannot be read.
+     */
+    public static ParsedBulk parseBulk(InputStream response) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(response)) {
+            return readRootBulk(parser);
+        }
+    }
+
+    private static ParsedBulk readRootBulk(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return new ParsedBulk(null, List.of());
+        }
+
+        String code = null;
+        String message = null;
+        ApiError error = null;
+        List<ParsedForecast> entries = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "code" -> code = readScalar(parser);
+                case "message" -> message = readScalar(parser);
+                case "error" -> error = readError(parser);
+                case "bulk" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            ParsedForecast entry = readBulkEntry(parser);
+                            if (entry != null) {
+                                entries.add(entry);
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new ParsedBulk(code != null && message != null ? new ApiError(code, message) : error, entries);
+    }
+
+    private static ParsedForecast readRootForecast(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return new ParsedForecast(null, null, null, null);
+        }
+        return readForecastObject(parser);
+    }
+
+    /**
+     * Reads a bulk entry, {"query": {...}}. The parser is positioned on its START_OBJECT.
+     */
+    private static ParsedForecast readBulkEntry(JsonParser parser) throws IOException {
+        ParsedForecast entry = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("query") && value == JsonToken.START_OBJECT) {
+                entry = readForecastObject(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Reads a forecast object: a whole response or the query of a bulk entry.
+     * The parser is positioned on its START_OBJECT.
+     */
+    private static ParsedForecast readForecastObject(JsonParser parser) throws IOException {
+        String code = null;
+        String message = null;
+        ApiError error = null;
+        String customId = null;
+        Weather.Current current = null;
+        Weather.Forecast forecast = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "code" -> code = readScalar(parser);
+                case "message" -> message = readScalar(parser);
+                case "error" -> error = readError(parser);
+                case "custom_id" -> customId = readScalar(parser);
+                case "current" -> current = value == JsonToken.START_OBJECT ? readCurrent(parser) : skip(parser);
+                case "forecast" -> forecast = value == JsonToken.START_OBJECT ? readForecastDays(parser) : skip(parser);
+                default -> parser.skipChildren();
+            }
+        }
+
+        // A top-level code and message is the API's error format, a nested error object is used by bulk entries.
+        ApiError apiError = code != null && message != null ? new ApiError(code, message) : error;
+        return new ParsedForecast(apiError, customId, current, forecast);
+    }
+
+    private static Weather.Current readCurrent(JsonParser parser) throws IOException {
+        int lastUpdated = 0;
+        double temperatureC = 0;
+        double temperatureF = 0;
+        Weather.Condition condition = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "last_updated_epoch" -> lastUpdated = parser.getValueAsInt();
+                case "temp_c" -> temperatureC = parser.getValueAsDouble();
+                case "temp_f" -> temperatureF = parser.getValueAsDouble();
+                case "condition" -> condition = value == JsonToken.START_OBJECT ? readCondition(parser) : skip(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new Weather.Current(lastUpdated, temperatureC, temperatureF,
+            condition != null ? condition : new Weather.Condition("", "", 0));
+    }
+
+    /**
+     * Reads the "forecast" object and returns the "day" of its first "forecastday", skipping all other days.
+     */
+    private static Weather.Forecast readForecastDays(JsonParser parser) throws IOException {
+        Weather.Forecast forecast = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("forecastday") && value == JsonToken.START_ARRAY) {
+                JsonToken element;
+                while ((element = parser.nextToken()) != JsonToken.END_ARRAY && element != null) {
+                    if (forecast == null && element == JsonToken.START_OBJECT) {
+                        forecast = readForecastDay(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return forecast;
+    }
+
+    private static Weather.Forecast readForecastDay(JsonParser parser) throws IOException {
+        Weather.Forecast forecast = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("day") && value == JsonToken.START_OBJECT) {
+                forecast = readDay(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        // A forecast day without a "day" object still counts, like a missing node in a tree read.
+        return forecast != null ? forecast : new Weather.Forecast(0, 0, 0, 0, new Weather.Condition("", "", 0));
+    }
+
+    private static Weather.Forecast readDay(JsonParser parser) throws IOException {
+        double minTempC = 0;
+        double minTempF = 0;
+        double maxTempC = 0;
+        double maxTempF = 0;
+        Weather.Condition condition = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "mintemp_c" -> minTempC = parser.getValueAsDouble();
+                case "mintemp_f" -> minTempF = parser.getValueAsDouble();
+                case "maxtemp_c" -> maxTempC = parser.getValueAsDouble();
+                case "maxtemp_f" -> maxTempF = parser.getValueAsDouble();
+                case "condition" -> condition = value == JsonToken.START_OBJECT ? readCondition(parser) : skip(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new Weather.Forecast(minTempC, minTempF, maxTempC, maxTempF,
+            condition != null ? condition : new Weather.Condition("", "", 0));
+    }
+
+    private static Weather.Condition readCondition(JsonParser parser) throws IOException {
+        String text = "";
+        String icon = "";
+        int code = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "text" -> text = parser.getValueAsString("");
+                case "icon" -> icon = parser.getValueAsString("");
+                case "code" -> code = parser.getValueAsInt();
+                default -> parser.skipChildren();
+            }
+        }
+        return new Weather.Condition(text, icon, code);
+    }
+
+    private static ApiError readError(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String code = null;
+        String message = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "code" -> code = readScalar(parser);
+                case "message" -> message = readScalar(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return code != null && message != null ? new ApiError(code, message) : null;
+    }
+
+    /**
+     * Returns the current scalar value as text, or skips a structured value and returns null.
+     */
+    static String readScalar(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    /**
+     * Skips the current value and returns null.
+     */
+    private static <T> T skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+}
@@ -1,34 +1,217 @@
 package com.example.weatherapp.services;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientException;
 
+import com.example.weatherapp.cache.CacheSerializer;
+import com.example.weatherapp.cache.Caches;
+import com.example.weatherapp.cache.ModelCodecs;
+import com.example.weatherapp.cache.PersistentCacheStore;
+import com.example.weatherapp.cache.SharedCache;
+import com.example.weatherapp.cache.SharedCacheTier;
+import com.example.weatherapp.cache.SingleFlight;
 import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.http.ApiKeyPool;
+import com.example.weatherapp.http.CallNotPermittedException;
+import com.example.weatherapp.http.Hedging;
+import com.example.weatherapp.http.StreamingResponses;
+import com.example.weatherapp.http.UpstreamErrors;
+import com.example.weatherapp.http.UpstreamGuard;
+import com.example.weatherapp.http.UpstreamMetrics;
+import com.example.weatherapp.http.UpstreamPayloadLog;
 import com.example.weatherapp.models.Location;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.weatherapp.parsers.GeocodeParser;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * AddressService is responsible for geocoding addresses using the Google Maps Geocoding API.
  * It takes an address string as input and returns a Location object containing
  * formatted address, latitude, longitude, and zip code.
+ * Results are cached by normalized address, including addresses that could not be geocoded.
  */
 @Service
 public class AddressService {
 
-    // Base URL for the Google Maps Geocoding API.
-    private static final String BASE_URL = "https://maps.googleapis.com/maps/api/geocode/json";
+    private static final Logger LOGGER = LoggerFactory.getLogger(AddressService.class);
 
-    // Autowired AppConfiguration to access API key.
-    @Autowired
-    private AppConfiguration appConfiguration;
+    // Geocoding statuses that describe the address itself rather than a transient failure, so they are safe to cache.
+    private static final Set<String> CACHEABLE_FAILURE_STATUSES = Set.of("ZERO_RESULTS", "INVALID_REQUEST");
+
+    // Geocoding statuses that count against the health of the Geocoding API for its circuit breaker.
+    private static final Set<String> UPSTREAM_FAILURE_STATUSES = Set.of("OVER_QUERY_LIMIT", "OVER_DAILY_LIMIT", "UNKNOWN_ERROR");
+
+    // Matches punctuation that does not change which address is meant (e.g. "Pkwy." vs "Pkwy").
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\p{Punct}]+");
+
+    // Matches runs of whitespace to be collapsed into a single space.
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // AppConfiguration to access API key.
+    private final AppConfiguration appConfiguration;
 
     // RestTemplate to call weather APIs
+    private final RestTemplate restTemplate;
+
+    // WebClient to call the Geocoding API without blocking.
+    private final WebClient webClient;
+
+    // Base URL for the Google Maps Geocoding API.
+    private final String baseUrl;
+
+    // Cache with normalized address as key and the geocoded Location with its geocoding time as value.
+    private final Cache<String, CachedLocation> locationCache;
+
+    // Cache of normalized addresses that are known not to geocode to a usable Location.
+    private final Cache<String, Boolean> negativeCache;
+
+    // Collapses concurrent cache misses for the same normalized address into one geocoding call.
+    private final SingleFlight<String, Location> inFlightRequests = new SingleFlight<>();
+
+    // Network and parse timers of geocoding calls.
+    private final UpstreamMetrics geocodeMetrics;
+
+    // Sampled capture of Geocoding API responses.
+    private final UpstreamPayloadLog payloadLog;
+
+    // Circuit breaker, concurrency limit and API keys of geocoding calls.
+    private final UpstreamGuard geocodeGuard;
+
+    // Hedging of Geocoding API calls.
+    private final Hedging geocodeHedging;
+
+    // Disk-backed tier under locationCache, or null if the persistent cache store is disabled.
+    private final PersistentCacheStore<Location> locationStore;
+
+    // Connection to the cache shared by all instances, or null if the shared cache is disabled.
+    private final SharedCache sharedCache;
+
+    // Tier of locationCache in the shared cache, or null if the shared cache is disabled.
+    private final SharedCacheTier<Location> sharedTier;
+
+    // How long a geocoded location is kept, in memory, on disk and in the shared cache.
+    private final long expiryInMillis;
+
     @Autowired
-    private RestTemplate restTemplate;
+    public AddressService(AppConfiguration appConfiguration, RestTemplate restTemplate, WebClient webClient,
+                          MeterRegistry meterRegistry) {
+        this.appConfiguration = appConfiguration;
+        this.restTemplate = restTemplate;
+        this.webClient = webClient;
+        this.baseUrl = appConfiguration.getAddressServiceBaseUrl();
+        this.geocodeMetrics = new UpstreamMetrics(meterRegistry, "geocode");
+        this.payloadLog = new UpstreamPayloadLog("geocode", appConfiguration.getGeocodePayloadLogSampleRate());
+        this.geocodeGuard = new UpstreamGuard("geocode",
+            new ApiKeyPool("geocode", appConfiguration.getAddressServiceApiKey(),
+                appConfiguration.getGeocodeRateLimitPerSecond(), appConfiguration.getGeocodeRateLimitBurst(),
+                appConfiguration.getGeocodeMonthlyQuota(), appConfiguration.getLowBudgetRatio(), meterRegistry),
+            appConfiguration, meterRegistry);
+        this.geocodeHedging = new Hedging("geocode", appConfiguration, meterRegistry);
+
+        // Create a cache to store geocoded locations.
+        locationCache = Caches.build(appConfiguration.getGeocodeCacheExpiryInSeconds(),
+            appConfiguration.getGeocodeCacheMaximumSize(), appConfiguration.getGeocodeCacheMaximumMegabytes(),
+            (String key, CachedLocation cached) -> Caches.weigh(key, cached.location()));
+
+        // Create a smaller, shorter lived cache for addresses that did not geocode.
+        negativeCache = Caches.build(appConfiguration.getGeocodeNegativeCacheExpiryInSeconds(),
+            appConfiguration.getGeocodeNegativeCacheMaximumSize(), 0, (String key, Boolean negative) -> Caches.weigh(key));
+
+        // Expose hit, miss, eviction and size metrics through actuator.
+        CaffeineCacheMetrics.monitor(meterRegistry, locationCache, "geocodeCache");
+        CaffeineCacheMetrics.monitor(meterRegistry, negativeCache, "geocodeNegativeCache");
+
+        // Open the persistent tier and warm the cache with the newest locations that have not expired.
+        // Addresses that did not geocode are only cached in memory.
+        expiryInMillis = TimeUnit.SECONDS.toMillis(appConfiguration.getGeocodeCacheExpiryInSeconds());
+        locationStore = openStore(appConfiguration, expiryInMillis);
+        if (locationStore != null) {
+            int limit = (int) Math.min(Integer.MAX_VALUE, appConfiguration.getGeocodeCacheMaximumSize());
+            for (Map.Entry<String, PersistentCacheStore.Entry<Location>> entry : locationStore.newest(limit)) {
+                locationCache.put(entry.getKey(), new CachedLocation(entry.getValue().value(), entry.getValue().writtenAt()));
+            }
+        }
+
+        // Connect to the cache shared with the other instances. Addresses that did not geocode are not shared.
+        sharedCache = openSharedCache(appConfiguration);
+        sharedTier = sharedCache != null
+            ? new SharedCacheTier<>(sharedCache,
+                CacheSerializer.of(appConfiguration.getSharedCacheSerializer(), ModelCodecs.LOCATION, Location.class),
+                appConfiguration.getSharedCacheKeyPrefix(), "geocode", expiryInMillis, meterRegistry)
+            : null;
+    }
+
+    /**
+     * Closes the persistent tier and the shared cache.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (locationStore != null) {
+            try {
+                locationStore.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close the geocode cache store: {}", e.getMessage());
+            }
+        }
+        if (sharedCache != null) {
+            try {
+                sharedCache.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close the shared cache: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Invalidates all cache entries.
+     */
+    public void clearCache() {
+        locationCache.invalidateAll();
+        negativeCache.invalidateAll();
+        if (locationStore != null) {
+            locationStore.clear();
+        }
+        if (sharedTier != null) {
+            sharedTier.clear();
+        }
+    }
+
+    /**
+     * Normalizes an address so that trivially different spellings share a cache entry.
+     * Case, punctuation and whitespace are ignored.
+     *
+     * @param address The address string to normalize.
+     * @return The normalized address.
+     */
+    public static String normalizeAddress(String address) {
+        String normalized = PUNCTUATION.matcher(address.toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
 
     /**
      * Retrieves the Location object for the given address.
@@ -37,70 +220,439 @@ public class AddressService {
      * @return Location object containing geocoded information, or null if geocoding fails.
      */
     public Location getLocation(String address) throws IOException {
-        // Constructs the URL for the Geocoding API request, including the API key and address.
-        String url = BASE_URL +
-            "?key=" + appConfiguration.getAddressServiceApiKey() +
-            "&address=" + address.replace(" ", "+"); // Replace spaces with '+' for URL encoding.
+        String key = normalizeAddress(address);
 
-        // Sends a GET request to the Geocoding API and retrieves the response as a JSON string.
-        String response = restTemplate.getForObject(url, String.class);
-        System.out.println(response);
+        // Check if the address was already geocoded, successfully or not.
+        Location cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (negativeCache.getIfPresent(key) != null) {
+            return null;
+        }
 
-        // Create ObjectMapper instance to parse JSON
-        ObjectMapper objectMapper = new ObjectMapper();
+        // Join the geocoding call if one is already in flight for this address, otherwise make it.
+        return inFlightRequests.execute(key, () -> {
+            GeocodeResult result = geocode(address);
+            if (result.location() != null) {
+                cache(key, result.location());
+            } else if (result.cacheable()) {
+                negativeCache.put(key, Boolean.TRUE);
+            }
+            return result.location();
+        });
+    }
 
-        // Parse the response into a JsonNode
-        JsonNode rootNode = objectMapper.readTree(response);
+    /**
+     * Retrieves the Location object for the given address without blocking the calling thread.
+     * Uses the same cache and in-flight calls as getLocation.
+     *
+     * @param address The address string to geocode.
+     * @return Mono emitting the geocoded Location, or completing empty if geocoding fails.
+     */
+    public Mono<Location> getLocationAsync(String address) {
+        String key = normalizeAddress(address);
 
-        // Checks the status of the Geocoding API response.
-        if (!rootNode.path("status").asText().equals("OK")) {
-            return null;  // If the status is not "OK", geocoding failed, return null.
+        // Check if the address was already geocoded, successfully or not.
+        Location cached = lookupInMemory(key);
+        if (cached != null) {
+            return Mono.just(cached);
         }
-
-        // Extracts the "results" array from the JSON response.
-        JsonNode resultsArray = rootNode.path("results");
-        if (resultsArray.isEmpty()) {
-            return null;  // If the array is empty, no results were found, return null.
+        if (negativeCache.getIfPresent(key) != null) {
+            return Mono.empty();
         }
 
-        // Gets the first result object from the results array.
-        JsonNode firstObject = resultsArray.get(0);
+        // Look in the persistent tier and the shared cache, then join the geocoding call if one is already
+        // in flight for this address, otherwise make it. A future completing with null becomes an empty Mono.
+        return lookupInTiersAsync(key).switchIfEmpty(Mono.defer(() ->
+            Mono.fromFuture(() -> inFlightRequests.executeAsync(key, () -> geocodeHedging
+                .callAsync(() -> geocodeAsync(address))
+                .toFuture()
+                .thenApply(result -> {
+                    // This runs on the event loop of the response.
+                    if (result.location() != null) {
+                        cacheAsync(key, result.location());
+                    } else if (result.cacheable()) {
+                        negativeCache.put(key, Boolean.TRUE);
+                    }
+                    return result.location();
+                })))));
+    }
 
-        // Extracts the latitude and longitude from the "location" object within the "geometry" object.
-        JsonNode locationNode = firstObject.path("geometry").path("location");
-        double latitude = locationNode.path("lat").asDouble();
-        double longitude = locationNode.path("lng").asDouble();
+    /**
+     * Looks up a geocoded location in memory, and on a miss in the persistent tier, then in the shared cache.
+     * Locations read from disk or from the shared cache are put back in memory with their original geocoding time.
+     *
+     * @param key The normalized address.
+     * @return The cached Location, or null if it is not cached or has expired.
+     */
+    private Location lookup(String key) {
+        Location cached = lookupInMemory(key);
+        return cached != null ? cached : lookupInTiers(key);
+    }
+
+    /**
+     * Looks up a geocoded location in memory.
+     *
+     * @param key The normalized address.
+     * @return The cached Location, or null if it is not in memory or has expired.
+     */
+    private Location lookupInMemory(String key) {
+        CachedLocation cached = locationCache.getIfPresent(key);
 
-        // Extracts the address components array from the first result object.
-        JsonNode addressComponents = firstObject.path("address_components");
+        // Entries restored from disk are younger than their in-memory TTL suggests, expire them by geocoding time.
+        if (cached != null && System.currentTimeMillis() - cached.geocodedAt() >= expiryInMillis) {
+            locationCache.invalidate(key);
+            cached = null;
+        }
+        return cached != null ? cached.location() : null;
+    }
 
-        // Initializes zipCode to null.
-        String zipCode = null;
-        // Iterates through the address components to find the postal code.
-        for (JsonNode component : addressComponents) {
-            JsonNode types = component.path("types");
-            for (JsonNode type : types) {
-                if (type.asText().equals("postal_code")) {
-                    zipCode = component.path("long_name").asText();
-                    break;
-                }
+    /**
+     * Looks up a geocoded location in the persistent tier, then in the shared cache, and puts it back in memory
+     * with its original geocoding time. Both do blocking I/O, see lookupInTiersAsync for reactive callers.
+     *
+     * @param key The normalized address.
+     * @return The cached Location, or null if it is not cached or has expired.
+     */
+    private Location lookupInTiers(String key) {
+        if (locationStore != null) {
+            PersistentCacheStore.Entry<Location> stored = locationStore.get(key);
+            if (stored != null) {
+                locationCache.put(key, new CachedLocation(stored.value(), stored.writtenAt()));
+                return stored.value();
             }
-            if (zipCode != null) {
-                break;  // Exit the loop if postal_code is found.
+        }
+
+        if (sharedTier != null) {
+            PersistentCacheStore.Entry<Location> shared = sharedTier.get(key);
+            if (shared != null) {
+                locationCache.put(key, new CachedLocation(shared.value(), shared.writtenAt()));
+                return shared.value();
             }
         }
-        if (zipCode == null) {
+        return null;
+    }
+
+    /**
+     * Runs lookupInTiers on a worker thread, so that the calling event loop is not blocked on its I/O.
+     *
+     * @param key The normalized address.
+     * @return Mono emitting the cached Location, or completing empty if it is not cached.
+     */
+    private Mono<Location> lookupInTiersAsync(String key) {
+        if (locationStore == null && sharedTier == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> lookupInTiers(key)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Stores a freshly geocoded location in memory, in the persistent tier and in the shared cache.
+     *
+     * @param key The normalized address.
+     * @param location The geocoded Location.
+     */
+    private void cache(String key, Location location) {
+        CachedLocation cached = new CachedLocation(location, System.currentTimeMillis());
+        locationCache.put(key, cached);
+        writeTiers(key, location, cached.geocodedAt());
+    }
+
+    /**
+     * Stores a freshly geocoded location like cache, but writes the persistent tier and the shared cache
+     * on a worker thread, so that the event loop completing a reactive call is not blocked on their I/O.
+     *
+     * @param key The normalized address.
+     * @param location The geocoded Location.
+     */
+    private void cacheAsync(String key, Location location) {
+        CachedLocation cached = new CachedLocation(location, System.currentTimeMillis());
+        locationCache.put(key, cached);
+        if (locationStore == null && sharedTier == null) {
+            return;
+        }
+        try {
+            Schedulers.boundedElastic().schedule(() -> writeTiers(key, location, cached.geocodedAt()));
+        } catch (RejectedExecutionException e) {
+            // The tiers are best-effort, the location is still cached in memory.
+            LOGGER.debug("Skipped writing {} to the cache tiers: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a geocoded location to the persistent tier and to the shared cache.
+     */
+    private void writeTiers(String key, Location location, long geocodedAt) {
+        if (locationStore != null) {
+            locationStore.put(key, location, geocodedAt);
+        }
+        if (sharedTier != null) {
+            sharedTier.put(key, location, geocodedAt);
+        }
+    }
+
+    /**
+     * Opens the persistent tier if it is enabled. A store that cannot be opened is logged and skipped,
+     * the service then runs with the in-memory cache only.
+     *
+     * @param appConfiguration The configuration holding the cache store settings.
+     * @param expiryInMillis How long entries are kept.
+     * @return The store, or null.
+     */
+    private static PersistentCacheStore<Location> openStore(AppConfiguration appConfiguration, long expiryInMillis) {
+        if (!appConfiguration.isCacheStoreEnabled()) {
+            return null;
+        }
+        Path file = Path.of(appConfiguration.getCacheStoreDirectory(), "geocode.cache");
+        try {
+            return new PersistentCacheStore<>(file, ModelCodecs.LOCATION, expiryInMillis);
+        } catch (IOException e) {
+            LOGGER.warn("Could not open the geocode cache store {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Connects to the shared cache if it is enabled. A shared cache that cannot be reached is logged and skipped,
+     * the service then runs with its own caches only.
+     *
+     * @param appConfiguration The configuration holding the shared cache settings.
+     * @return The shared cache, or null.
+     */
+    private static SharedCache openSharedCache(AppConfiguration appConfiguration) {
+        String backend = appConfiguration.getSharedCacheBackend();
+        if (backend == null || "none".equals(backend)) {
+            return null;
+        }
+        try {
+            return SharedCache.open(backend, appConfiguration.getSharedCacheRedisUri(),
+                Duration.ofMillis(appConfiguration.getSharedCacheTimeoutInMillis()));
+        } catch (IOException e) {
+            LOGGER.warn("Could not connect to the shared cache: {}", e.getMessage());
             return null;
         }
+    }
+
+    /**
+     * Calls the Geocoding API for the given address, hedged when hedging is enabled.
+     *
+     * @param address The address string to geocode.
+     * @return GeocodeResult holding the Location, or null with a flag telling whether the failure may be cached.
+     */
+    private GeocodeResult geocode(String address) throws IOException {
+        return geocodeHedging.call(() -> geocodeAttempt(address));
+    }
+
+    /**
+     * Makes one attempt of a Geocoding API call, with its own permit.
+     *
+     * @param address The address string to geocode.
+     * @return GeocodeResult holding the Location, or null with a flag telling whether the failure may be cached.
+     */
+    private GeocodeResult geocodeAttempt(String address) throws IOException {
+        // Fails fast with a CallNotPermittedException while the Geocoding API is failing or overloaded.
+        UpstreamGuard.Permit permit = geocodeGuard.acquire();
+        long start = System.nanoTime();
+        GeocodeResult result;
+        try {
+            // Sends a GET request to the Geocoding API and parses the JSON response as it arrives.
+            result = StreamingResponses.get(restTemplate, geocodeUrl(address, permit.getApiKey()),
+                body -> parseAndRecord(address, body, start));
+        } catch (RestClientException e) {
+            // An attempt aborted by hedging did not fail.
+            boolean abandoned = Hedging.isAbandoned();
+            if (!abandoned) {
+                geocodeMetrics.recordFailure(start, e, null);
+            }
+            permit.complete(!abandoned && UpstreamErrors.isUpstreamFailure(e));
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            // A response that could not be read or parsed counts against the Geocoding API, unless aborted by hedging.
+            permit.complete(!Hedging.isAbandoned());
+            throw e;
+        }
+
+        complete(permit, result);
+        return result;
+    }
+
+    /**
+     * Makes one attempt of a Geocoding API call without blocking the calling thread, with its own permit.
+     * The call is only made once subscribed to, and an attempt cancelled by hedging completes its permit as successful.
+     *
+     * @param address The address string to geocode.
+     * @return Mono emitting the GeocodeResult, or an error if the request or parsing fails.
+     */
+    private Mono<GeocodeResult> geocodeAsync(String address) {
+        return Mono.defer(() -> {
+            UpstreamGuard.Permit permit;
+            try {
+                permit = geocodeGuard.acquire();
+            } catch (CallNotPermittedException e) {
+                return Mono.<GeocodeResult>error(e);
+            }
+            long start = System.nanoTime();
+            return webClient.get()
+                .uri(geocodeUrl(address, permit.getApiKey()))
+                .retrieve()
+                // The body is parsed from the buffer it was received in, without decoding it into a String.
+                .bodyToMono(DataBuffer.class)
+                .map(buffer -> buffer.asInputStream(true))
+                // An empty body is reported by the parser like a missing one.
+                .defaultIfEmpty(InputStream.nullInputStream())
+                .onErrorMap(WebClientException.class, e -> {
+                    RestClientException cause = UpstreamErrors.toRestClientException(e);
+                    geocodeMetrics.recordFailure(start, cause, null);
+                    return cause;
+                })
+                .<GeocodeResult>handle((body, sink) -> {
+                    // Closing the stream releases the buffer.
+                    try (body) {
+                        sink.next(parseAndRecord(address, body, start));
+                    } catch (IOException e) {
+                        sink.error(e);
+                    }
+                })
+                // Successful calls are completed with the status of their response.
+                .doOnSuccess(result -> complete(permit, result))
+                .doOnError(e -> permit.complete(UpstreamErrors.isUpstreamFailure(e)))
+                .doOnCancel(() -> permit.complete(false));
+        });
+    }
+
+    /**
+     * Completes a geocoding call with the status of its response. A status counting against the health of
+     * the Geocoding API is reported as a failure, and a key over its daily limit is not used again this month.
+     *
+     * @param permit The permit of the call.
+     * @param result The outcome of the call.
+     */
+    private void complete(UpstreamGuard.Permit permit, GeocodeResult result) {
+        if ("OVER_DAILY_LIMIT".equals(result.status())) {
+            geocodeGuard.exhaust(permit.getApiKey());
+        }
+        permit.complete(result.status() != null && UPSTREAM_FAILURE_STATUSES.contains(result.status()));
+    }
+
+    /**
+     * Parses a Geocoding API response and records the call with its outcome and network time.
+     * Statuses other than "OK" are recorded as API errors with the status as error code.
+     * A sample of the responses is logged to the payload log: only those are read into a String,
+     * the others are parsed as they are read.
+     *
+     * @param address The address that was geocoded.
+     * @param body The JSON response body of the Geocoding API.
+     * @param start The System.nanoTime() at which the call was started. As the body is read while it is parsed,
+     *              the call is recorded with the time until its response was parsed.
+     * @return GeocodeResult holding the Location, or null with a flag telling whether the failure may be cached.
+     * @throws IOException If the response cannot be parsed.
+     */
+    private GeocodeResult parseAndRecord(String address, InputStream body, long start) throws IOException {
+        String payload = null;
+        InputStream response = body;
+        if (payloadLog.sample()) {
+            byte[] bytes = body.readAllBytes();
+            payload = new String(bytes, StandardCharsets.UTF_8);
+            response = new ByteArrayInputStream(bytes);
+        }
+
+        InputStream parsed = response;
+        GeocodeResult result;
+        try {
+            result = geocodeMetrics.timeParse(() -> parseGeocodeResponse(parsed));
+        } catch (IOException e) {
+            long networkNanos = System.nanoTime() - start;
+            geocodeMetrics.recordRequest(networkNanos, UpstreamMetrics.PARSE_ERROR, UpstreamMetrics.NO_ERROR_CODE);
+            if (payload != null) {
+                payloadLog.write(address, null, null, networkNanos, payload);
+            }
+            throw e;
+        }
+        long networkNanos = System.nanoTime() - start;
+        if (payload != null) {
+            payloadLog.write(address, result.location() != null ? result.location().getZipCode() : null,
+                result.status(), networkNanos, payload);
+        }
+
+        if ("OK".equals(result.status())) {
+            geocodeMetrics.recordRequest(networkNanos, UpstreamMetrics.SUCCESS, UpstreamMetrics.NO_ERROR_CODE);
+        } else if (result.status() == null) {
+            geocodeMetrics.recordRequest(networkNanos, UpstreamMetrics.PARSE_ERROR, UpstreamMetrics.NO_ERROR_CODE);
+        } else {
+            geocodeMetrics.recordRequest(networkNanos, UpstreamMetrics.API_ERROR, result.status());
+        }
+        return result;
+    }
+
+    /**
+     * Constructs the URL for the Geocoding API request, including the API key and address.
+     *
+     * @param address The address string to geocode.
+     * @param apiKey The API key to make the call with.
+     * @return The request URL.
+     */
+    private String geocodeUrl(String address, String apiKey) {
+        return baseUrl +
+            "?key=" + apiKey +
+            "&address=" + address.replace(" ", "+"); // Replace spaces with '+' for URL encoding.
+    }
+
+    /**
+     * Parses a Geocoding API response. Shared by the blocking and the reactive lookups.
+     *
+     * @param response The JSON response body of the Geocoding API.
+     * @return GeocodeResult holding the Location, or null with a flag telling whether the failure may be cached.
+     */
+    private GeocodeResult parseGeocodeResponse(InputStream response) throws IOException {
+        // Reads only the status and the first result from the response, without building a JSON tree.
+        // An empty response carries no status, so it is treated like any other uncacheable failure.
+        GeocodeParser.ParsedGeocode parsed = GeocodeParser.parse(response);
+
+        // Checks the status of the Geocoding API response.
+        String status = parsed.status();
+        if (!"OK".equals(status)) {
+            // If the status is not "OK", geocoding failed. Only cache it if the address itself is the problem.
+            return new GeocodeResult(null, status != null && CACHEABLE_FAILURE_STATUSES.contains(status), status);
+        }
+
+        // If the results array is empty, no results were found.
+        if (!parsed.hasResult()) {
+            return new GeocodeResult(null, true, status);
+        }
+
+        // A result without a postal code can only be used when the weather cache is keyed by coordinates.
+        if (parsed.zipCode() == null && appConfiguration.getGeohashPrecision() <= 0) {
+            return new GeocodeResult(null, true, status);
+        }
 
         // Creates a new Location object and sets its properties.
         Location location = new Location();
-        location.setFormattedAddress(firstObject.path("formatted_address").asText());
-        location.setLatitude(latitude);
-        location.setLongitude(longitude);
-        location.setZipCode(zipCode);
+        location.setFormattedAddress(parsed.formattedAddress());
+        location.setLatitude(parsed.latitude());
+        location.setLongitude(parsed.longitude());
+        location.setZipCode(parsed.zipCode());
 
         // Returns the Location object.
-        return location;
+        return new GeocodeResult(location, true, status);
+    }
+
+    /**
+     * Outcome of a single geocoding call.
+     *
+     * @param location The geocoded Location, or null if the address could not be geocoded.
+     * @param cacheable Whether the outcome may be cached.
+     * @param status The status of the response, or null if it had none.
+     */
+    private record GeocodeResult(Location location, boolean cacheable, String status) {
+    }
+
+    /**
+     * A geocoded Location together with the time it was geocoded.
+     *
+     * @param location The geocoded Location.
+     * @param geocodedAt The time of the geocoding call, in epoch milliseconds.
+     */
+    private record CachedLocation(Location location, long geocodedAt) {
     }
 }
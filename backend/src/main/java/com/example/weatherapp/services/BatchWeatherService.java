@@ -0,0 +1,189 @@
+package com.example.weatherapp.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.models.BatchWeatherRequest;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * BatchWeatherService retrieves weather data for many locations in one go.
+ * Items are deduplicated, first by address or coordinates and then by weather cache key, and
+ * whatever is cached is answered straight from the caches. The remaining geocoding and forecast
+ * calls are made concurrently, up to weather-service.batch-parallelism at a time, and forecasts
+ * use WeatherAPI bulk requests when weather-service.bulk-enabled is set.
+ */
+@Service
+public class BatchWeatherService {
+
+    // AppConfiguration to access the batch settings.
+    private final AppConfiguration appConfiguration;
+
+    // AddressService to geocode addresses.
+    private final AddressService addressService;
+
+    // WeatherService to retrieve weather data.
+    private final WeatherService weatherService;
+
+    @Autowired
+    public BatchWeatherService(AppConfiguration appConfiguration, AddressService addressService,
+                               WeatherService weatherService) {
+        this.appConfiguration = appConfiguration;
+        this.addressService = addressService;
+        this.weatherService = weatherService;
+    }
+
+    /**
+     * Retrieves weather data for every item.
+     *
+     * @param items The items to look up.
+     * @return Mono emitting one Outcome per item, in the order of the items.
+     */
+    public Mono<List<Outcome>> getWeather(List<BatchWeatherRequest.Item> items) {
+        int parallelism = Math.max(1, appConfiguration.getBatchParallelism());
+
+        // Deduplicate the items by what they ask for.
+        Map<String, BatchWeatherRequest.Item> distinctItems = new LinkedHashMap<>();
+        for (BatchWeatherRequest.Item item : items) {
+            String key = itemKey(item);
+            if (key != null) {
+                distinctItems.putIfAbsent(key, item);
+            }
+        }
+
+        // Resolve the location of every distinct item, geocoding addresses concurrently.
+        return Flux.fromIterable(distinctItems.entrySet())
+            .flatMap(entry -> resolveLocation(entry.getValue())
+                .map(location -> Map.entry(entry.getKey(), new Resolved(location, null)))
+                .defaultIfEmpty(Map.entry(entry.getKey(), new Resolved(null, null)))
+                .onErrorResume(e -> Mono.just(Map.entry(entry.getKey(), new Resolved(null, e)))), parallelism)
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+            .flatMap(resolved -> fetchWeather(resolved, parallelism)
+                .map(weatherByKey -> assemble(items, resolved, weatherByKey, appConfiguration.getGeohashPrecision())));
+    }
+
+    /**
+     * Retrieves weather data for every resolved location, once per weather cache key.
+     *
+     * @return Mono emitting the outcome per weather cache key.
+     */
+    private Mono<Map<String, Outcome>> fetchWeather(Map<String, Resolved> resolved, int parallelism) {
+        Map<String, Location> locations = new LinkedHashMap<>();
+        for (Resolved location : resolved.values()) {
+            if (location.location() != null) {
+                locations.putIfAbsent(WeatherService.cacheKey(location.location(), appConfiguration.getGeohashPrecision()),
+                    location.location());
+            }
+        }
+
+        // Answer what we can from the cache, whose lower tiers are read off the event loop.
+        return Flux.fromIterable(locations.entrySet())
+            .flatMap(entry -> weatherService.getCachedWeatherAsync(entry.getValue())
+                .map(cached -> Map.entry(entry.getKey(), new Outcome(cached, null))), parallelism)
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap<String, Outcome>::new)
+            .flatMap(outcomes -> {
+                Map<String, Location> misses = new LinkedHashMap<>(locations);
+                misses.keySet().removeAll(outcomes.keySet());
+
+                Map<String, Mono<Weather>> calls;
+                if (appConfiguration.isBulkEnabled() && misses.size() > 1) {
+                    calls = weatherService.getWeatherBulkAsync(new ArrayList<>(misses.values()));
+                } else {
+                    calls = new LinkedHashMap<>();
+                    misses.forEach((key, location) -> calls.put(key, weatherService.getWeatherAsync(location)));
+                }
+
+                return Flux.fromIterable(calls.entrySet())
+                    .flatMap(call -> call.getValue()
+                        .map(weather -> Map.entry(call.getKey(), new Outcome(weather, null)))
+                        .defaultIfEmpty(Map.entry(call.getKey(), new Outcome(null, null)))
+                        .onErrorResume(e -> Mono.just(Map.entry(call.getKey(), new Outcome(null, e)))), parallelism)
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue, () -> outcomes);
+            });
+    }
+
+    /**
+     * Builds the outcome of every item, in the order of the items.
+     */
+    private static List<Outcome> assemble(List<BatchWeatherRequest.Item> items, Map<String, Resolved> resolved,
+                                          Map<String, Outcome> weatherByKey, int geohashPrecision) {
+        List<Outcome> results = new ArrayList<>(items.size());
+        for (BatchWeatherRequest.Item item : items) {
+            String key = itemKey(item);
+            if (key == null) {
+                results.add(new Outcome(null, new IllegalArgumentException("Item needs an address, a zip or lat and lon.")));
+                continue;
+            }
+            Resolved location = resolved.get(key);
+            if (location.error() != null || location.location() == null) {
+                // The address failed to geocode, or was not found.
+                results.add(new Outcome(null, location.error()));
+                continue;
+            }
+            // Items sharing a cache key share the forecast, each with its own location.
+            Outcome outcome = weatherByKey.get(WeatherService.cacheKey(location.location(), geohashPrecision));
+            results.add(new Outcome(WeatherService.forLocation(outcome.weather(), location.location()), outcome.error()));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the location of the item, geocoding its address if it has no coordinates or zip code.
+     */
+    private Mono<Location> resolveLocation(BatchWeatherRequest.Item item) {
+        if (item.getLatitude() != null && item.getLongitude() != null) {
+            return Mono.just(new Location(null, item.getZip(), item.getLatitude(), item.getLongitude()));
+        }
+        if (item.getZip() != null && !item.getZip().isBlank()) {
+            return Mono.just(new Location(null, item.getZip(), null, null));
+        }
+        return addressService.getLocationAsync(item.getAddress());
+    }
+
+    /**
+     * Returns the key identifying what the item asks for, or null if the item is invalid.
+     */
+    private static String itemKey(BatchWeatherRequest.Item item) {
+        if (item == null) {
+            return null;
+        }
+        if (item.getLatitude() != null && item.getLongitude() != null) {
+            return "coordinates:" + item.getLatitude() + "," + item.getLongitude() + ":" + item.getZip();
+        }
+        if (item.getZip() != null && !item.getZip().isBlank()) {
+            return "zip:" + item.getZip().trim();
+        }
+        if (item.getAddress() != null && !item.getAddress().isBlank()) {
+            return "address:" + AddressService.normalizeAddress(item.getAddress());
+        }
+        return null;
+    }
+
+    /**
+     * Outcome of a lookup.
+     *
+     * @param weather The Weather object, or null if the lookup did not return weather data.
+     * @param error The failure, or null. Both null means the address was not found.
+     */
+    public record Outcome(Weather weather, Throwable error) {
+    }
+
+    /**
+     * Location resolved for an item.
+     *
+     * @param location The Location, or null if the address was not found or failed.
+     * @param error The geocoding failure, or null.
+     */
+    private record Resolved(Location location, Throwable error) {
+    }
+}
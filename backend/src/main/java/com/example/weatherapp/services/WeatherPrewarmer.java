@@ -0,0 +1,161 @@
+package com.example.weatherapp.services;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.http.TokenBucket;
+import com.example.weatherapp.models.Location;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * WeatherPrewarmer keeps the WeatherService cache entries of the most requested locations fresh, so that
+ * requests for them never wait for the WeatherAPI. When pre-warming is enabled, WeatherService tracks the
+ * hottest cache keys, and every prewarm.interval-seconds this service queues a background refresh for each
+ * of them whose entry is missing or would expire before the next run.
+ * Refreshes are paced by a token bucket holding prewarm.calls-per-minute; once it is empty, the remaining,
+ * least requested keys are skipped until the next run.
+ *
+ * The work is published as "weather.prewarm.runs" (time per run), "weather.prewarm.refreshes" (queued refreshes),
+ * "weather.prewarm.skipped" (tagged with the reason: budget, upstream_unavailable or queue_full) and
+ * "weather.prewarm.hot.keys" (number of keys tracked).
+ */
+@Service
+public class WeatherPrewarmer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WeatherPrewarmer.class);
+
+    private final AppConfiguration appConfiguration;
+
+    private final WeatherService weatherService;
+
+    private final MeterRegistry meterRegistry;
+
+    // Budget of WeatherAPI calls for refreshes, or null if pre-warming is disabled.
+    private final TokenBucket budget;
+
+    // Runs the pre-warm task, or null if pre-warming is disabled.
+    private final ScheduledExecutorService scheduler;
+
+    private final Timer runs;
+
+    private final Counter refreshes;
+
+    @Autowired
+    public WeatherPrewarmer(AppConfiguration appConfiguration, WeatherService weatherService, MeterRegistry meterRegistry) {
+        this.appConfiguration = appConfiguration;
+        this.weatherService = weatherService;
+        this.meterRegistry = meterRegistry;
+        this.runs = Timer.builder("weather.prewarm.runs")
+            .description("Time to select and queue the refreshes of hot cache entries")
+            .register(meterRegistry);
+        this.refreshes = Counter.builder("weather.prewarm.refreshes")
+            .description("Refreshes of hot cache entries queued before they expire")
+            .register(meterRegistry);
+
+        if (!appConfiguration.isPrewarmEnabled()) {
+            this.budget = null;
+            this.scheduler = null;
+            return;
+        }
+
+        int intervalInSeconds = Math.max(1, appConfiguration.getPrewarmIntervalInSeconds());
+        int callsPerMinute = Math.max(1, appConfiguration.getPrewarmCallsPerMinute());
+        // The bucket holds one run's worth of calls, so a run may use what the interval earned.
+        this.budget = new TokenBucket(callsPerMinute / 60.0, Math.max(1, callsPerMinute * intervalInSeconds / 60));
+
+        Gauge.builder("weather.prewarm.hot.keys", weatherService, service -> service.getHotLocations().size())
+            .description("Most requested cache keys kept warm")
+            .register(meterRegistry);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("weather-prewarm").setDaemon(true).build());
+        scheduler.scheduleWithFixedDelay(this::run, intervalInSeconds, intervalInSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the pre-warm task.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs one pre-warm pass: queues a refresh for every hot entry that is missing or would expire before
+     * the next run, hottest first, within the call budget. Called by the scheduler.
+     */
+    public void run() {
+        if (budget == null) {
+            return;
+        }
+        runs.record(() -> {
+            try {
+                prewarm();
+            } catch (RuntimeException e) {
+                // A failed run must not cancel the schedule, the next run starts over.
+                LOGGER.warn("Pre-warm run failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void prewarm() {
+        long freshUntil = appConfiguration.getCacheExpiryInSeconds()
+            - Math.max(1, appConfiguration.getPrewarmIntervalInSeconds());
+        List<Location> hotLocations = weatherService.getHotLocations();
+
+        int queued = 0;
+        int skipped = 0;
+        boolean outOfBudget = false;
+        for (Location location : hotLocations) {
+            long age = weatherService.getCacheAgeSeconds(location);
+            if (age >= 0 && age < freshUntil) {
+                // Still fresh at the next run.
+                continue;
+            }
+            if (outOfBudget || !budget.tryAcquire()) {
+                // Out of budget for this run, the colder keys left wait for the next one.
+                outOfBudget = true;
+                skipped("budget").increment();
+                skipped++;
+                continue;
+            }
+            WeatherService.Refresh refresh = weatherService.refreshAhead(location);
+            switch (refresh) {
+                case SCHEDULED -> {
+                    refreshes.increment();
+                    queued++;
+                }
+                case PENDING -> budget.refund();
+                case UPSTREAM_UNAVAILABLE, QUEUE_FULL -> {
+                    budget.refund();
+                    skipped(refresh.name().toLowerCase()).increment();
+                    skipped++;
+                }
+            }
+        }
+        LOGGER.debug("Pre-warm run over {} hot keys: {} refreshes queued, {} skipped", hotLocations.size(), queued, skipped);
+    }
+
+    private Counter skipped(String reason) {
+        return Counter.builder("weather.prewarm.skipped")
+            .description("Refreshes of hot cache entries skipped")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+}
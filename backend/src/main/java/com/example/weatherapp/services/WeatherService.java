@@ -1,32 +1,116 @@
 package com.example.weatherapp.services;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientException;
 
+import com.example.weatherapp.cache.CacheSerializer;
+import com.example.weatherapp.cache.Caches;
+import com.example.weatherapp.cache.Geohash;
+import com.example.weatherapp.cache.HotKeys;
+import com.example.weatherapp.cache.ModelCodecs;
+import com.example.weatherapp.cache.OffHeapWeatherCache;
+import com.example.weatherapp.cache.PersistentCacheStore;
+import com.example.weatherapp.cache.SharedCache;
+import com.example.weatherapp.cache.SharedCacheTier;
+import com.example.weatherapp.cache.SingleFlight;
 import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.http.ApiKeyPool;
+import com.example.weatherapp.http.CallNotPermittedException;
+import com.example.weatherapp.http.Hedging;
+import com.example.weatherapp.http.StreamingResponses;
+import com.example.weatherapp.http.UpstreamErrors;
+import com.example.weatherapp.http.UpstreamGuard;
+import com.example.weatherapp.http.UpstreamMetrics;
+import com.example.weatherapp.models.EncodedWeather;
 import com.example.weatherapp.models.Location;
 import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.parsers.WeatherApiParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * WeatherService is responsible for retrieving weather data from the WeatherAPI.
  * It takes a Location object as input and returns a Weather object containing
  * current and forecasted weather information.
+ * When stale-while-revalidate is enabled, entries older than the soft TTL are still served
+ * (marked as stale) while a background refresh fetches a new forecast, and entries close to
+ * the soft TTL are refreshed ahead of time.
  */
 @Service
 public class WeatherService {
 
-    // Base URL for the WeatherAPI forecast endpoint.
-    private static final String BASE_URL = "https://api.weatherapi.com/v1/forecast.json";
+    private static final Logger LOGGER = LoggerFactory.getLogger(WeatherService.class);
+
+    // WeatherAPI error codes that count against its health for the circuit breaker: internal application error
+    // and exceeded quota.
+    private static final Set<String> UPSTREAM_FAILURE_CODES = Set.of("9999", "2007");
+
+    // Value of weather-service.cache-backend selecting the off-heap cache.
+    private static final String OFF_HEAP_BACKEND = "off-heap";
+
+    // WeatherAPI error code of an API key over its monthly quota.
+    private static final String QUOTA_EXCEEDED_CODE = "2007";
+
+    // WeatherAPI error code of a query matching no location.
+    private static final String NO_LOCATION_CODE = "1006";
+
+    // Largest share of a bulk response accepted per location, which is held in memory while it is parsed.
+    // A forecast with the hourly data of three days takes about 100 KB.
+    private static final int MAX_BULK_BYTES_PER_LOCATION = 1024 * 1024;
+
+    /**
+     * Outcome of a request for a background refresh.
+     */
+    public enum Refresh {
+        // The refresh was queued.
+        SCHEDULED,
+        // A refresh of the same cache key is already queued or running.
+        PENDING,
+        // The WeatherAPI circuit is open or its monthly budget runs low.
+        UPSTREAM_UNAVAILABLE,
+        // The refresh queue is full.
+        QUEUE_FULL
+    }
 
     // AppConfiguration to access API key.
     private final AppConfiguration appConfiguration;
@@ -34,26 +118,170 @@ public class WeatherService {
     // RestTemplate to call weather APIs
     private final RestTemplate restTemplate;
 
-    // Cache with zip code as key and Weather object as value.
-    private final Cache<String, Weather> weatherCache;
-            
+    // WebClient to call the WeatherAPI without blocking.
+    private final WebClient webClient;
+
+    // ObjectMapper of the application, encoding the cached weather data as the responses are encoded.
+    private final ObjectMapper objectMapper;
+
+    // Base URL for the WeatherAPI forecast endpoint.
+    private final String baseUrl;
+
+    // Cache with the cache key (geohash cell or zip code) as key and the Weather object with its fetch time and JSON
+    // encoding as value, or null if the off-heap backend is used.
+    private final Cache<String, CachedWeather> weatherCache;
+
+    // Off-heap cache used instead of weatherCache when weather-service.cache-backend is "off-heap", otherwise null.
+    private final OffHeapWeatherCache offHeapCache;
+
+    // Collapses concurrent cache misses for the same cache key into one upstream call.
+    private final SingleFlight<String, Weather> inFlightRequests = new SingleFlight<>();
+
+    // Bounded executor running background refreshes of stale or nearly expired entries.
+    private final ThreadPoolExecutor refreshExecutor;
+
+    // Cache keys with a background refresh queued or running, so each is refreshed only once at a time.
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+
+    // Most requested cache keys with a location to refresh them, or null if pre-warming is disabled.
+    private final HotKeys<Location> hotLocations;
+
+    // Disk-backed tier under weatherCache, or null if the persistent cache store is disabled.
+    private final PersistentCacheStore<Weather> weatherStore;
+
+    // Connection to the cache shared by all instances, or null if the shared cache is disabled.
+    private final SharedCache sharedCache;
+
+    // Tier of weatherCache in the shared cache, or null if the shared cache is disabled.
+    private final SharedCacheTier<Weather> sharedTier;
+
+    // How long an entry is kept after it was fetched, in memory, on disk and in the shared cache.
+    private final long expiryInMillis;
+
+    // Registry for the cache load timers.
+    private final MeterRegistry meterRegistry;
+
+    // Network and parse timers of forecast calls.
+    private final UpstreamMetrics forecastMetrics;
+
+    // Network and parse timers of bulk forecast calls.
+    private final UpstreamMetrics bulkMetrics;
+
+    // Circuit breaker, concurrency limit and API keys of WeatherAPI calls, single and bulk.
+    private final UpstreamGuard forecastGuard;
+
+    // Hedging of single WeatherAPI calls; bulk calls are not hedged.
+    private final Hedging forecastHedging;
+
     @Autowired
-    public WeatherService(AppConfiguration appConfiguration, RestTemplate restTemplate) {
+    public WeatherService(AppConfiguration appConfiguration, RestTemplate restTemplate, WebClient webClient,
+                          ObjectMapper objectMapper, MeterRegistry meterRegistry) {
         this.appConfiguration = appConfiguration;
         this.restTemplate = restTemplate;
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+        this.baseUrl = appConfiguration.getWeatherServiceBaseUrl();
+        this.meterRegistry = meterRegistry;
+        this.forecastMetrics = new UpstreamMetrics(meterRegistry, "forecast");
+        this.bulkMetrics = new UpstreamMetrics(meterRegistry, "forecast_bulk");
+        this.forecastGuard = new UpstreamGuard("forecast",
+            new ApiKeyPool("forecast", appConfiguration.getWeatherServiceApiKey(),
+                appConfiguration.getWeatherRateLimitPerSecond(), appConfiguration.getWeatherRateLimitBurst(),
+                appConfiguration.getWeatherMonthlyQuota(), appConfiguration.getLowBudgetRatio(), meterRegistry),
+            appConfiguration, meterRegistry);
+        this.forecastHedging = new Hedging("forecast", appConfiguration, meterRegistry);
+
+        // Entries are kept until the hard TTL when stale entries may be served, otherwise until the soft TTL.
+        long expiryInSeconds = appConfiguration.isStaleWhileRevalidate()
+            ? Math.max(appConfiguration.getCacheExpiryInSeconds(), appConfiguration.getCacheHardExpiryInSeconds())
+            : appConfiguration.getCacheExpiryInSeconds();
+
+        expiryInMillis = TimeUnit.SECONDS.toMillis(expiryInSeconds);
+
+        // Create a cache to store weather data, on the heap or in direct memory,
+        // and expose its hit, miss, eviction and size metrics through actuator.
+        if (OFF_HEAP_BACKEND.equals(appConfiguration.getWeatherCacheBackend())) {
+            weatherCache = null;
+            offHeapCache = new OffHeapWeatherCache(appConfiguration.getOffHeapCacheCapacity(), expiryInMillis);
+            OffHeapWeatherCache.monitor(meterRegistry, offHeapCache, "weatherCache");
+        } else {
+            weatherCache = Caches.build(expiryInSeconds, appConfiguration.getWeatherCacheMaximumSize(),
+                appConfiguration.getWeatherCacheMaximumMegabytes(),
+                (String key, CachedWeather cached) -> Caches.weigh(key, cached.weather(), cached.encodedData()));
+            offHeapCache = null;
+            CaffeineCacheMetrics.monitor(meterRegistry, weatherCache, "weatherCache");
+        }
+
+        hotLocations = appConfiguration.isPrewarmEnabled() ? new HotKeys<>(appConfiguration.getPrewarmTopK()) : null;
+
+        // Open the persistent tier and warm the cache with the newest entries that have not expired.
+        weatherStore = openStore(appConfiguration, expiryInMillis);
+        if (weatherStore != null) {
+            int limit = offHeapCache != null
+                ? (int) Math.min(Integer.MAX_VALUE, offHeapCache.capacity())
+                : (int) Math.min(Integer.MAX_VALUE, appConfiguration.getWeatherCacheMaximumSize());
+            for (Map.Entry<String, PersistentCacheStore.Entry<Weather>> entry : weatherStore.newest(limit)) {
+                remember(entry.getKey(), entry.getValue().value(), entry.getValue().writtenAt());
+            }
+        }
+
+        // Connect to the cache shared with the other instances. Its entries expire with the in-memory ones.
+        sharedCache = openSharedCache(appConfiguration);
+        sharedTier = sharedCache != null
+            ? new SharedCacheTier<>(sharedCache,
+                CacheSerializer.of(appConfiguration.getSharedCacheSerializer(), ModelCodecs.WEATHER, Weather.class),
+                appConfiguration.getSharedCacheKeyPrefix(), "weather", expiryInMillis, meterRegistry)
+            : null;
 
-        // Create a cache to store weather data.
-        weatherCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(appConfiguration.getCacheExpiryInSeconds(), TimeUnit.SECONDS)  // Auto-evicts after 30 mins
-            .maximumSize(1000)  // Limit to prevent memory overuse (adjust as needed)
-            .build();
+        // Create a small executor for background refreshes. Refreshes that do not fit in the queue are dropped,
+        // the entry is then simply refreshed by a later request.
+        int refreshThreads = Math.max(1, appConfiguration.getRefreshThreads());
+        refreshExecutor = new ThreadPoolExecutor(
+            refreshThreads, refreshThreads,
+            60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, appConfiguration.getRefreshQueueSize())),
+            new ThreadFactoryBuilder().setNameFormat("weather-refresh-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.AbortPolicy());
+        refreshExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops the background refresh executor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+        if (weatherStore != null) {
+            try {
+                weatherStore.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close the weather cache store: {}", e.getMessage());
+            }
+        }
+        if (sharedCache != null) {
+            try {
+                sharedCache.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close the shared cache: {}", e.getMessage());
+            }
+        }
     }
 
     /**
      * Invalidates all cache entries.
      */
     public void clearCache() {
-        weatherCache.invalidateAll();
+        if (offHeapCache != null) {
+            offHeapCache.invalidateAll();
+        } else {
+            weatherCache.invalidateAll();
+        }
+        if (weatherStore != null) {
+            weatherStore.clear();
+        }
+        if (sharedTier != null) {
+            sharedTier.clear();
+        }
     }
 
     /**
@@ -64,124 +292,948 @@ public class WeatherService {
      * @throws Exception If an error occurs during API request or JSON parsing.
      */
     public Weather getWeather(Location location) throws IOException {
-        // Check if cache has the weather data for the provided zip code.
-        var weatheObejct = weatherCache.getIfPresent(location.getZipCode());
-        if (weatheObejct != null) {
-            weatheObejct.setFromCache(true);
-            return weatheObejct;
+        // Check if cache has the weather data for the provided location.
+        Weather cached = getCachedWeather(location);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Join the upstream call if one is already in flight for this cache key, otherwise make it.
+        Weather weather = inFlightRequests.execute(cacheKey(location), () -> {
+            // The entry may have been loaded by a call that completed after the cache check above.
+            CachedWeather loaded = lookup(cacheKey(location));
+            if (loaded != null) {
+                return serveFromCache(location, loaded);
+            }
+            return load(location);
+        });
+
+        // A joined call may have been made for another location in the same cell.
+        return forLocation(weather, location);
+    }
+
+    /**
+     * Returns the cache key for a location, using the configured geohash precision.
+     *
+     * @param location The Location to key.
+     * @return The cache key.
+     */
+    private String cacheKey(Location location) {
+        return cacheKey(location, appConfiguration.getGeohashPrecision());
+    }
+
+    /**
+     * Returns the cache key for a location. With a geohash precision, locations with coordinates are keyed
+     * by the geohash cell containing them, so that nearby locations share a forecast whatever their zip code.
+     * Otherwise, or without coordinates, they are keyed by zip code, or by their exact coordinates if they have none.
+     *
+     * @param location The Location to key.
+     * @param geohashPrecision The geohash length, or 0 to key by zip code.
+     * @return The cache key.
+     */
+    public static String cacheKey(Location location, int geohashPrecision) {
+        if (geohashPrecision > 0 && location.getLatitude() != null && location.getLongitude() != null) {
+            int precision = Math.min(geohashPrecision, Geohash.MAX_PRECISION);
+            return "geo:" + Geohash.encode(location.getLatitude(), location.getLongitude(), precision);
+        }
+        if (location.getZipCode() != null && !location.getZipCode().isBlank()) {
+            return location.getZipCode();
+        }
+        return location.getLatitude() + "," + location.getLongitude();
+    }
+
+    /**
+     * Returns the weather data for the requested location. Weather data shared through the cache or a joined call
+     * may have been fetched for another location with the same cache key, it is then copied with the requested one.
+     *
+     * @param weather The Weather object.
+     * @param location The requested Location.
+     * @return The Weather object, or a copy of it for the requested Location.
+     */
+    public static Weather forLocation(Weather weather, Location location) {
+        if (weather == null || Objects.equals(weather.getLocation(), location)) {
+            return weather;
+        }
+        if (weather instanceof EncodedWeather encoded) {
+            // The encoding does not include the location.
+            return new EncodedWeather(location, weather.getCurrent(), weather.getForecast(), weather.getCacheAgeSeconds(),
+                weather.isStale(), encoded.getEncodedData());
+        }
+        return new Weather(location, weather.getCurrent(), weather.getForecast(), weather.isFromCache(),
+            weather.getCacheAgeSeconds(), weather.isStale());
+    }
+
+    /**
+     * Returns the number of seconds weather data returned by this service stays fresh in the cache,
+     * which is how long clients may reuse it. Stale data may not be reused.
+     *
+     * @param weather The Weather object.
+     * @return The remaining seconds until the cache expiry, 0 if the data is stale.
+     */
+    public long getRemainingCacheSeconds(Weather weather) {
+        if (weather.isStale()) {
+            return 0;
+        }
+        return Math.max(0, appConfiguration.getCacheExpiryInSeconds() - weather.getCacheAgeSeconds());
+    }
+
+    /**
+     * Returns the most requested locations, one per cache key, most requested first.
+     * Requests are only tracked when pre-warming is enabled.
+     *
+     * @return The hot locations, empty if requests are not tracked.
+     */
+    public List<Location> getHotLocations() {
+        return hotLocations != null ? hotLocations.top() : List.of();
+    }
+
+    /**
+     * Returns the age of the in-memory cache entry of a location, without counting a cache hit or miss.
+     *
+     * @param location The Location.
+     * @return The age in seconds, or -1 if the location is not cached in memory.
+     */
+    public long getCacheAgeSeconds(Location location) {
+        String key = cacheKey(location);
+        long fetchedAt;
+        if (offHeapCache != null) {
+            fetchedAt = offHeapCache.fetchedAt(key);
+        } else {
+            CachedWeather cached = weatherCache.asMap().get(key);
+            fetchedAt = cached != null ? cached.fetchedAt() : 0;
+        }
+        if (fetchedAt == 0) {
+            return -1;
+        }
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - fetchedAt);
+    }
+
+    /**
+     * Queues a background refresh of the entry of a location before it expires, as for a request
+     * within the refresh-ahead window. The refresh is skipped while the WeatherAPI circuit is open
+     * or its monthly budget runs low.
+     *
+     * @param location The Location to refresh.
+     * @return Whether the refresh was queued, or why not.
+     */
+    public Refresh refreshAhead(Location location) {
+        return scheduleRefresh(location);
+    }
+
+    /**
+     * Returns the cached weather data for the given location without calling the WeatherAPI.
+     *
+     * @param location The Location object for which to retrieve weather data.
+     * @return The cached Weather object, or null if the location is not cached.
+     */
+    public Weather getCachedWeather(Location location) {
+        String key = cacheKey(location);
+        if (hotLocations != null) {
+            // Every lookup goes through here, count it towards the hot keys to pre-warm.
+            hotLocations.record(key, location);
+        }
+        CachedWeather cached = lookup(key);
+        if (cached == null) {
+            return null;
+        }
+        return serveFromCache(location, cached);
+    }
+
+    /**
+     * Returns the cached weather data for the given location without calling the WeatherAPI or blocking the
+     * calling thread: the persistent tier and the shared cache are read on a worker thread.
+     *
+     * @param location The Location object for which to retrieve weather data.
+     * @return Mono emitting the cached Weather object, or completing empty if the location is not cached.
+     */
+    public Mono<Weather> getCachedWeatherAsync(Location location) {
+        String key = cacheKey(location);
+        if (hotLocations != null) {
+            // Reactive lookups go through here, count them towards the hot keys to pre-warm too.
+            hotLocations.record(key, location);
+        }
+        CachedWeather cached = lookupInMemory(key);
+        if (cached != null) {
+            return Mono.just(serveFromCache(location, cached));
+        }
+        if (weatherStore == null && sharedTier == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> lookupInTiers(key))
+            .subscribeOn(Schedulers.boundedElastic())
+            .map(loaded -> serveFromCache(location, loaded));
+    }
+
+    /**
+     * Retrieves weather data for many locations using the WeatherAPI bulk request mode.
+     * Locations are sent in bulk requests of at most weather-service.bulk-max-locations each,
+     * which are only made once the returned Mono for one of their locations is subscribed to.
+     * Results are stored in the cache like single lookups.
+     *
+     * @param locations The locations to retrieve weather data for, distinct by cache key.
+     * @return Mono per cache key emitting the Weather object, or an IOException if the lookup failed.
+     */
+    public Map<String, Mono<Weather>> getWeatherBulkAsync(List<Location> locations) {
+        Map<String, Mono<Weather>> results = new LinkedHashMap<>();
+        int chunkSize = Math.max(1, appConfiguration.getBulkMaxLocations());
+        for (List<Location> chunk : Lists.partition(locations, chunkSize)) {
+            Map<String, Location> byKey = new LinkedHashMap<>();
+            for (Location location : chunk) {
+                byKey.put(cacheKey(location), location);
+            }
+
+            // One bulk request per chunk, shared by all locations in it.
+            Mono<Map<String, BulkEntry>> bulkCall = fetchWeatherBulk(byKey).cache();
+            for (String key : byKey.keySet()) {
+                results.put(key, bulkCall.flatMap(entries -> {
+                    BulkEntry entry = entries.get(key);
+                    if (entry == null) {
+                        return Mono.error(new IOException("Location missing from bulk response: " + key));
+                    }
+                    return entry.error() != null ? Mono.error(entry.error()) : Mono.just(entry.weather());
+                }));
+            }
         }
+        return results;
+    }
+
+    /**
+     * Calls the WeatherAPI forecast endpoint in bulk request mode for the given locations.
+     *
+     * @param byKey The locations to retrieve weather data for, by cache key. The key is sent as custom_id.
+     * @return Mono emitting the outcome per cache key, or an IOException if the whole request failed.
+     */
+    private Mono<Map<String, BulkEntry>> fetchWeatherBulk(Map<String, Location> byKey) {
+        List<Map<String, String>> bulkLocations = byKey.entrySet().stream()
+            .map(entry -> Map.of("q", query(entry.getValue()), "custom_id", entry.getKey()))
+            .toList();
 
-        // Constructs the URL for the WeatherAPI request, including the API key and location coordinates.
-        String url = BASE_URL +
-            "?key=" + appConfiguration.getWeatherServiceApiKey() +
-            "&q=" + location.getLatitude() + "," + location.getLongitude();
+        // The call is only made once subscribed to, so the clock starts then.
+        return Mono.defer(() -> {
+            UpstreamGuard.Permit permit;
+            try {
+                // Every location of a bulk request counts as a call against the quota.
+                permit = forecastGuard.acquire(byKey.size());
+            } catch (CallNotPermittedException e) {
+                return Mono.<Map<String, BulkEntry>>error(
+                    new IOException("Error while calling Weather API: " + e.getMessage(), e));
+            }
+            int maxResponseBytes = (int) Math.min(Integer.MAX_VALUE, (long) byKey.size() * MAX_BULK_BYTES_PER_LOCATION);
+            long start = System.nanoTime();
+            return webClient.post()
+                .uri(baseUrl + "?key=" + permit.getApiKey() + "&q=bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("locations", bulkLocations))
+                .retrieve()
+                // The body is parsed from the buffers it was received in, without decoding it into a String.
+                // They are joined here rather than by the codecs, whose 256 KB limit a bulk response of a few
+                // locations exceeds, with a limit that grows with the number of locations.
+                .bodyToFlux(DataBuffer.class)
+                .as(buffers -> DataBufferUtils.join(buffers, maxResponseBytes))
+                .map(buffer -> buffer.asInputStream(true))
+                .defaultIfEmpty(InputStream.nullInputStream())
+                // Handle network-related or API connection issues.
+                .onErrorMap(WebClientException.class, e -> {
+                    RestClientException cause = UpstreamErrors.toRestClientException(e);
+                    bulkMetrics.recordFailure(start, cause, errorCode(cause));
+                    return new IOException("Error while calling Weather API: " + e.getMessage(), cause);
+                })
+                .onErrorMap(DataBufferLimitException.class, e -> {
+                    bulkMetrics.recordRequest(System.nanoTime() - start, UpstreamMetrics.PARSE_ERROR,
+                        UpstreamMetrics.NO_ERROR_CODE);
+                    return new IOException("Weather API bulk response exceeds " + maxResponseBytes + " bytes.", e);
+                })
+                .<Map<String, BulkEntry>>handle((body, sink) -> {
+                    long networkNanos = System.nanoTime() - start;
+                    // Closing the stream releases the buffer.
+                    try (body) {
+                        sink.next(bulkMetrics.timeParse(() -> parseBulkResponse(byKey, body)));
+                        bulkMetrics.recordRequest(networkNanos, UpstreamMetrics.SUCCESS, UpstreamMetrics.NO_ERROR_CODE);
+                    } catch (WeatherApiException e) {
+                        bulkMetrics.recordRequest(networkNanos, UpstreamMetrics.API_ERROR, e.getCode());
+                        sink.error(e);
+                    } catch (IOException e) {
+                        bulkMetrics.recordRequest(networkNanos, UpstreamMetrics.PARSE_ERROR, UpstreamMetrics.NO_ERROR_CODE);
+                        sink.error(e);
+                    }
+                })
+                .doOnSuccess(entries -> complete(permit, null))
+                .doOnError(e -> complete(permit, e))
+                .doOnCancel(() -> permit.complete(false));
+        });
+    }
 
-        String response;
+    /**
+     * Parses a WeatherAPI bulk response and caches every location it holds a forecast for.
+     *
+     * @param byKey The requested locations by cache key.
+     * @param response The JSON response body of the WeatherAPI.
+     * @return The outcome per cache key.
+     * @throws IOException If the response is empty, cannot be parsed or reports an error for the whole request.
+     */
+    private Map<String, BulkEntry> parseBulkResponse(Map<String, Location> byKey, InputStream response) throws IOException {
+        WeatherApiParser.ParsedBulk parsed;
         try {
-            // Sends a GET request to the WeatherAPI and retrieves the response as a JSON string.
-            response = restTemplate.getForObject(url, String.class);
+            // Reads only the fields that end up in Weather objects, without building a JSON tree.
+            parsed = WeatherApiParser.parseBulk(requireBody(response));
+        } catch (JsonProcessingException e) {
+            throw new IOException("Error parsing response JSON: " + e.getMessage(), e);
+        }
 
-            // If the response is null or empty, throw an exception.
-            if (response == null || response.isEmpty()) {
-                throw new IOException("Empty response from Weather API.");
+        // Errors such as 9000 (invalid bulk body) and 9001 (too many locations) fail the whole request.
+        checkApiError(parsed.error());
+
+        Map<String, BulkEntry> entries = new HashMap<>();
+        for (WeatherApiParser.ParsedForecast entry : parsed.entries()) {
+            String key = entry.customId();
+            Location location = key != null ? byKey.get(key) : null;
+            if (location == null) {
+                continue;
             }
-        } catch (RestClientException e) {
-            // Handle network-related or API connection issues.
-            throw new IOException("Error while calling Weather API: " + e.getMessage(), e);
+            try {
+                Weather weather = toWeather(location, entry);
+
+                // Insert the weather object in cache, this runs on the event loop of the response.
+                cacheAsync(key, weather);
+                entries.put(key, new BulkEntry(weather, null));
+            } catch (IOException e) {
+                entries.put(key, new BulkEntry(null, e));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Retrieves weather data for the given location without blocking the calling thread.
+     * Uses the same cache and in-flight calls as getWeather.
+     *
+     * @param location The Location object for which to retrieve weather data.
+     * @return Mono emitting the Weather object, or an IOException if the request or parsing fails.
+     */
+    public Mono<Weather> getWeatherAsync(Location location) {
+        // Check if cache has the weather data for the provided location, then join the upstream call
+        // if one is already in flight for this cache key, otherwise make it.
+        return getCachedWeatherAsync(location).switchIfEmpty(Mono.defer(() ->
+            Mono.fromFuture(() -> inFlightRequests.executeAsync(cacheKey(location), () -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                return fetchWeatherAsync(location)
+                    .thenApply(weather -> {
+                        // Insert the weather object in cache, this runs on the event loop of the response.
+                        cacheAsync(cacheKey(location), weather);
+                        return weather;
+                    })
+                    .whenComplete((weather, e) -> sample.stop(loadTimer(e == null)));
+            }))
+            .map(weather -> forLocation(weather, location))));
+    }
+
+    /**
+     * Looks up a cache entry in memory, and on a miss in the persistent tier, then in the shared cache.
+     * Entries read from disk or from the shared cache are put back in memory with their original fetch time.
+     *
+     * @param key The cache key.
+     * @return The cached entry, or null if it is not cached or has expired.
+     */
+    private CachedWeather lookup(String key) {
+        CachedWeather cached = lookupInMemory(key);
+        return cached != null ? cached : lookupInTiers(key);
+    }
+
+    /**
+     * Looks up a cache entry in memory, on the heap or off-heap.
+     *
+     * @param key The cache key.
+     * @return The cached entry, or null if it is not in memory or has expired.
+     */
+    private CachedWeather lookupInMemory(String key) {
+        CachedWeather cached;
+        if (offHeapCache != null) {
+            // The off-heap cache expires its entries by fetch time itself.
+            OffHeapWeatherCache.Entry entry = offHeapCache.get(key);
+            cached = entry != null ? new CachedWeather(entry.weather(), entry.fetchedAt(), null) : null;
+        } else {
+            cached = weatherCache.getIfPresent(key);
+
+            // Entries restored from disk are younger than their in-memory TTL suggests, expire them by fetch time.
+            if (cached != null && System.currentTimeMillis() - cached.fetchedAt() >= expiryInMillis) {
+                weatherCache.invalidate(key);
+                cached = null;
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Looks up a cache entry in the persistent tier, then in the shared cache, and puts it back in memory with
+     * its original fetch time. Both do blocking I/O, so reactive callers run this on a worker thread.
+     *
+     * @param key The cache key.
+     * @return The cached entry, or null if it is not cached or has expired.
+     */
+    private CachedWeather lookupInTiers(String key) {
+        if (weatherStore != null) {
+            PersistentCacheStore.Entry<Weather> stored = weatherStore.get(key);
+            if (stored != null) {
+                return remember(key, stored.value(), stored.writtenAt());
+            }
+        }
+
+        if (sharedTier != null) {
+            PersistentCacheStore.Entry<Weather> shared = sharedTier.get(key);
+            if (shared != null) {
+                return remember(key, shared.value(), shared.writtenAt());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts an entry in the in-memory cache, on the heap or off-heap. Entries on the heap are encoded to JSON
+     * once here, so that requests served from them do not encode the same data again.
+     *
+     * @param key The cache key.
+     * @param weather The Weather object.
+     * @param fetchedAt The epoch millis at which the weather was fetched.
+     * @return The entry.
+     */
+    private CachedWeather remember(String key, Weather weather, long fetchedAt) {
+        if (offHeapCache != null) {
+            // Off-heap entries are decoded on every hit, there is no object to keep the encoding with.
+            offHeapCache.put(key, weather, fetchedAt);
+            return new CachedWeather(weather, fetchedAt, null);
+        }
+        // The entry keeps a Weather object of its own, as the caller may change the one it was given.
+        // The current conditions and forecast are immutable and shared.
+        Weather snapshot = new Weather(weather.getLocation(), weather.getCurrent(), weather.getForecast(), false);
+        CachedWeather cached = new CachedWeather(snapshot, fetchedAt, encodeData(snapshot));
+        weatherCache.put(key, cached);
+        return cached;
+    }
+
+    /**
+     * Encodes the current conditions and forecast of weather data to JSON.
+     *
+     * @param weather The Weather object.
+     * @return The encoded data, or null if it cannot be encoded; responses are then encoded per request.
+     */
+    private byte[] encodeData(Weather weather) {
+        try {
+            return EncodedWeather.encodeData(objectMapper, weather);
+        } catch (IOException e) {
+            LOGGER.warn("Could not encode weather data: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores freshly fetched weather data in memory, in the persistent tier and in the shared cache.
+     *
+     * @param key The cache key.
+     * @param weather The fetched Weather object.
+     */
+    private void cache(String key, Weather weather) {
+        CachedWeather cached = remember(key, weather, System.currentTimeMillis());
+        writeTiers(key, weather, cached.fetchedAt());
+    }
+
+    /**
+     * Stores freshly fetched weather data like cache, but writes the persistent tier and the shared cache
+     * on a worker thread, so that the event loop completing a reactive call is not blocked on their I/O.
+     *
+     * @param key The cache key.
+     * @param weather The fetched Weather object.
+     */
+    private void cacheAsync(String key, Weather weather) {
+        CachedWeather cached = remember(key, weather, System.currentTimeMillis());
+        if (weatherStore == null && sharedTier == null) {
+            return;
+        }
+        try {
+            Schedulers.boundedElastic().schedule(() -> writeTiers(key, weather, cached.fetchedAt()));
+        } catch (RejectedExecutionException e) {
+            // The tiers are best-effort, the entry is still cached in memory.
+            LOGGER.debug("Skipped writing {} to the cache tiers: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes weather data to the persistent tier and to the shared cache.
+     */
+    private void writeTiers(String key, Weather weather, long fetchedAt) {
+        if (weatherStore != null) {
+            weatherStore.put(key, weather, fetchedAt);
+        }
+        if (sharedTier != null) {
+            sharedTier.put(key, weather, fetchedAt);
+        }
+    }
+
+    /**
+     * Opens the persistent tier if it is enabled. A store that cannot be opened is logged and skipped,
+     * the service then runs with the in-memory cache only.
+     *
+     * @param appConfiguration The configuration holding the cache store settings.
+     * @param expiryInMillis How long entries are kept.
+     * @return The store, or null.
+     */
+    private static PersistentCacheStore<Weather> openStore(AppConfiguration appConfiguration, long expiryInMillis) {
+        if (!appConfiguration.isCacheStoreEnabled()) {
+            return null;
+        }
+        Path file = Path.of(appConfiguration.getCacheStoreDirectory(), "weather.cache");
+        try {
+            return new PersistentCacheStore<>(file, ModelCodecs.WEATHER, expiryInMillis);
+        } catch (IOException e) {
+            LOGGER.warn("Could not open the weather cache store {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Connects to the shared cache if it is enabled. A shared cache that cannot be reached is logged and skipped,
+     * the service then runs with its own caches only.
+     *
+     * @param appConfiguration The configuration holding the shared cache settings.
+     * @return The shared cache, or null.
+     */
+    private static SharedCache openSharedCache(AppConfiguration appConfiguration) {
+        String backend = appConfiguration.getSharedCacheBackend();
+        if (backend == null || "none".equals(backend)) {
+            return null;
+        }
+        try {
+            return SharedCache.open(backend, appConfiguration.getSharedCacheRedisUri(),
+                Duration.ofMillis(appConfiguration.getSharedCacheTimeoutInMillis()));
+        } catch (IOException e) {
+            LOGGER.warn("Could not connect to the shared cache: {}", e.getMessage());
+            return null;
         }
+    }
+
+    /**
+     * Marks a cached entry as served from cache, and schedules a background refresh if it is stale
+     * or within the refresh-ahead window.
+     *
+     * @param location The Location the entry was looked up for.
+     * @param cached The cached entry.
+     * @return The cached Weather object.
+     */
+    private Weather serveFromCache(Location location, CachedWeather cached) {
+        long ageInSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - cached.fetchedAt());
+        long softExpiryInSeconds = appConfiguration.getCacheExpiryInSeconds();
+        boolean stale = ageInSeconds >= softExpiryInSeconds;
 
-        // Creates an ObjectMapper to parse the JSON response.
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode root;
+        // Every request gets its own copy, carrying its own location and cache flags, and the shared encoding.
+        Weather entry = cached.weather();
+        Weather weather = cached.encodedData() != null
+            ? new EncodedWeather(location, entry.getCurrent(), entry.getForecast(), ageInSeconds, stale, cached.encodedData())
+            : new Weather(location, entry.getCurrent(), entry.getForecast(), true, ageInSeconds, stale);
 
+        if (appConfiguration.isStaleWhileRevalidate()
+                && ageInSeconds >= softExpiryInSeconds - appConfiguration.getRefreshAheadInSeconds()) {
+            scheduleRefresh(location);
+        }
+        return weather;
+    }
+
+    /**
+     * Queues a background refresh for the location unless one is already pending.
+     *
+     * @param location The Location to refresh.
+     * @return Whether the refresh was queued, or why not.
+     */
+    private Refresh scheduleRefresh(Location location) {
+        String key = cacheKey(location);
+        // While the circuit is open the stale entry keeps being served, the refresh would only be rejected.
+        // While the monthly budget runs low, stale entries are preferred over spending it on refreshes.
+        if (forecastGuard.isOpen() || forecastGuard.isBudgetLow()) {
+            return Refresh.UPSTREAM_UNAVAILABLE;
+        }
+        if (!pendingRefreshes.add(key)) {
+            return Refresh.PENDING;
+        }
         try {
-            // Parses the JSON response into a JsonNode object.
-            root = mapper.readTree(response);
-
-            // Handle errors based on the API's error response format
-            if (root.has("code") && root.has("message")) {
-                String errorCode = root.get("code").asText();
-                String errorMessage = root.get("message").asText();
-
-                // Error handling based on the error code
-                switch (errorCode) {
-                    case "1002" -> throw new IOException("API key not provided: " + errorMessage);
-                    case "1003" -> throw new IOException("Parameter 'q' not provided: " + errorMessage);
-                    case "1005" -> throw new IOException("API request URL is invalid: " + errorMessage);
-                    case "1006" -> throw new IOException("No location found matching parameter 'q': " + errorMessage);
-                    case "9000" -> throw new IOException("Invalid JSON body in bulk request: " + errorMessage);
-                    case "9001" -> throw new IOException("Too many locations in bulk request: " + errorMessage);
-                    case "9999" -> throw new IOException("Internal application error: " + errorMessage);
-                    case "2006" -> throw new IOException("API key is invalid: " + errorMessage);
-                    case "2007" -> throw new IOException("API key has exceeded calls per month quota: " + errorMessage);
-                    case "2008" -> throw new IOException("API key has been disabled: " + errorMessage);
-                    case "2009" -> throw new IOException("API key does not have access to the resource: " + errorMessage);
-                    default -> throw new IOException("API error: " + errorMessage);
+            refreshExecutor.execute(() -> {
+                try {
+                    inFlightRequests.execute(key, () -> load(location));
+                } catch (IOException | RuntimeException e) {
+                    // The stale entry stays in place until its hard TTL, a later request retries the refresh.
+                    LOGGER.warn("Background refresh failed for {}: {}", key, e.getMessage());
+                } finally {
+                    pendingRefreshes.remove(key);
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            // The refresh queue is full, a later request retries the refresh.
+            pendingRefreshes.remove(key);
+            return Refresh.QUEUE_FULL;
+        }
+        return Refresh.SCHEDULED;
+    }
+
+    /**
+     * Fetches weather data from the WeatherAPI and stores it in the cache.
+     *
+     * @param location The Location object for which to retrieve weather data.
+     * @return The freshly fetched Weather object.
+     * @throws IOException If an error occurs during API request or JSON parsing.
+     */
+    private Weather load(Location location) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean loaded = false;
+        try {
+            Weather weather = fetchWeather(location);
+
+            // Insert the weather object in cache.
+            cache(cacheKey(location), weather);
+            loaded = true;
+            return weather;
+        } finally {
+            sample.stop(loadTimer(loaded));
+        }
+    }
+
+    /**
+     * Returns the timer of cache loads, the time to fetch, parse and store an entry on a cache miss.
+     *
+     * @param success Whether the load succeeded.
+     * @return The timer.
+     */
+    private Timer loadTimer(boolean success) {
+        return Timer.builder("weather.cache.load")
+            .description("Time to load a weatherCache entry on a miss")
+            .tag("cache", "weatherCache")
+            .tag("result", success ? "success" : "failure")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    /**
+     * Calls the WeatherAPI forecast endpoint for the given location, hedged when hedging is enabled.
+     *
+     * @param location The Location object for which to retrieve weather data.
+     * @return Weather object containing current and forecasted weather information.
+     * @throws IOException If an error occurs during API request or JSON parsing.
+     */
+    private Weather fetchWeather(Location location) throws IOException {
+        return forecastHedging.call(() -> fetchWeatherAttempt(location));
+    }
+
+    /**
+     * Makes one attempt of a WeatherAPI forecast call, with its own permit.
+     *
+     * @param location The Location object for which to retrieve weather data.
+     * @return Weather object containing current and forecasted weather information.
+     * @throws IOException If an error occurs during API request or JSON parsing.
+     */
+    private Weather fetchWeatherAttempt(Location location) throws IOException {
+        UpstreamGuard.Permit permit = acquirePermit();
+        Exception failure = null;
+        try {
+            long start = System.nanoTime();
+            try {
+                // Sends a GET request to the WeatherAPI and parses the JSON response as it arrives.
+                return StreamingResponses.get(restTemplate, weatherUrl(location, permit.getApiKey()),
+                    body -> parseAndRecord(location, body, start));
+            } catch (RestClientException e) {
+                // Handle network-related or API connection issues. An attempt aborted by hedging did not fail.
+                if (!Hedging.isAbandoned()) {
+                    forecastMetrics.recordFailure(start, e, errorCode(e));
+                }
+                throw new IOException("Error while calling Weather API: " + e.getMessage(), e);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Whatever failed the attempt, including the parser, fails its permit.
+            failure = e;
+            throw e;
+        } finally {
+            complete(permit, failure);
+        }
+    }
+
+    /**
+     * Asks the circuit breaker, concurrency limit and API keys of the WeatherAPI to make a call.
+     *
+     * @return The permit of the call.
+     * @throws IOException If the call is rejected, wrapping the CallNotPermittedException.
+     */
+    private UpstreamGuard.Permit acquirePermit() throws IOException {
+        try {
+            return forecastGuard.acquire();
+        } catch (CallNotPermittedException e) {
+            throw new IOException("Error while calling Weather API: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Completes a WeatherAPI call with its outcome. A key the WeatherAPI reported as over quota
+     * is not used again until the end of the month.
+     *
+     * @param permit The permit of the call.
+     * @param e The failure, or null if the call succeeded.
+     */
+    private void complete(UpstreamGuard.Permit permit, Throwable e) {
+        if (e != null && QUOTA_EXCEEDED_CODE.equals(apiErrorCode(e))) {
+            forecastGuard.exhaust(permit.getApiKey());
+        }
+        permit.complete(e != null && !Hedging.isAbandoned() && isUpstreamFailure(e));
+    }
+
+    /**
+     * Checks whether a failed WeatherAPI call counts against its health. Besides network failures and server errors,
+     * internal application errors and an exceeded quota do; errors about the request itself, such as an unknown location, do not.
+     *
+     * @param e The failure.
+     * @return true if the failure counts against the WeatherAPI.
+     */
+    private static boolean isUpstreamFailure(Throwable e) {
+        String code = apiErrorCode(e);
+        if (code != null) {
+            return UPSTREAM_FAILURE_CODES.contains(code);
+        }
+        return UpstreamErrors.isUpstreamFailure(e);
+    }
+
+    /**
+     * Checks whether a failed call was answered by the WeatherAPI with error 1006, no location matching the query,
+     * e.g. a zip code it does not know. Retrying the call cannot succeed.
+     *
+     * @param e The failure, possibly wrapped in a CompletionException.
+     * @return true if the WeatherAPI found no location matching the query.
+     */
+    public static boolean isUnknownLocation(Throwable e) {
+        return NO_LOCATION_CODE.equals(apiErrorCode(e));
+    }
+
+    /**
+     * Returns the WeatherAPI error code of a failed call, reported in the response body with or without an error status.
+     *
+     * @param e The failure, possibly wrapped in a CompletionException or an IOException.
+     * @return The error code, or null if the failure holds none.
+     */
+    private static String apiErrorCode(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof WeatherApiException apiError) {
+            return apiError.getCode();
+        }
+        if (cause.getCause() instanceof HttpStatusCodeException status) {
+            return errorCode(status);
+        }
+        return null;
+    }
+
+    /**
+     * Parses a forecast response and records the call with its outcome and network time.
+     *
+     * @param location The Location the forecast was requested for.
+     * @param body The JSON response body.
+     * @param start The System.nanoTime() at which the call was started. As the body is read while it is parsed,
+     *              the call is recorded with the time until its response was parsed.
+     * @return Weather object containing current and forecasted weather information.
+     * @throws IOException If the response reports an API error or cannot be parsed.
+     */
+    private Weather parseAndRecord(Location location, InputStream body, long start) throws IOException {
+        try {
+            Weather weather = forecastMetrics.timeParse(() -> parseWeatherResponse(location, body));
+            forecastMetrics.recordRequest(System.nanoTime() - start, UpstreamMetrics.SUCCESS, UpstreamMetrics.NO_ERROR_CODE);
+            return weather;
+        } catch (WeatherApiException e) {
+            forecastMetrics.recordRequest(System.nanoTime() - start, UpstreamMetrics.API_ERROR, e.getCode());
+            throw e;
+        } catch (IOException e) {
+            forecastMetrics.recordRequest(System.nanoTime() - start, UpstreamMetrics.PARSE_ERROR, UpstreamMetrics.NO_ERROR_CODE);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the WeatherAPI error code of a failed call, read from the error response body.
+     *
+     * @param e The failure.
+     * @return The error code, or null if the response holds none.
+     */
+    private static String errorCode(RestClientException e) {
+        if (!(e instanceof HttpStatusCodeException status)) {
+            return null;
+        }
+        try {
+            WeatherApiParser.ApiError error = WeatherApiParser.parseForecast(status.getResponseBodyAsString()).error();
+            return error != null ? error.code() : null;
+        } catch (IOException parseFailure) {
+            return null;
+        }
+    }
+
+    /**
+     * Calls the WeatherAPI forecast endpoint for the given location without blocking the calling thread,
+     * hedged when hedging is enabled.
+     *
+     * @param location The Location object for which to retrieve weather data.
+     * @return Future completing with the Weather object, or with an IOException if the request or parsing fails.
+     */
+    private CompletableFuture<Weather> fetchWeatherAsync(Location location) {
+        return forecastHedging.callAsync(() -> fetchWeatherAttemptAsync(location)).toFuture();
+    }
+
+    /**
+     * Makes one attempt of a WeatherAPI forecast call without blocking the calling thread, with its own permit.
+     * The call is only made once subscribed to, and an attempt cancelled by hedging completes its permit as successful.
+     *
+     * @param location The Location object for which to retrieve weather data.
+     * @return Mono emitting the Weather object, or an IOException if the request or parsing fails.
+     */
+    private Mono<Weather> fetchWeatherAttemptAsync(Location location) {
+        return Mono.defer(() -> {
+            UpstreamGuard.Permit permit;
+            try {
+                permit = acquirePermit();
+            } catch (IOException e) {
+                return Mono.<Weather>error(e);
             }
+            long start = System.nanoTime();
+            return webClient.get()
+                .uri(weatherUrl(location, permit.getApiKey()))
+                .retrieve()
+                // The body is parsed from the buffer it was received in, without decoding it into a String.
+                .bodyToMono(DataBuffer.class)
+                .map(buffer -> buffer.asInputStream(true))
+                // An empty body is reported by the parser like in the blocking path.
+                .defaultIfEmpty(InputStream.nullInputStream())
+                // Handle network-related or API connection issues.
+                .onErrorMap(WebClientException.class, e -> {
+                    RestClientException cause = UpstreamErrors.toRestClientException(e);
+                    forecastMetrics.recordFailure(start, cause, errorCode(cause));
+                    return new IOException("Error while calling Weather API: " + e.getMessage(), cause);
+                })
+                .<Weather>handle((body, sink) -> {
+                    // Closing the stream releases the buffer.
+                    try (body) {
+                        sink.next(parseAndRecord(location, body, start));
+                    } catch (IOException e) {
+                        sink.error(e);
+                    }
+                })
+                .doOnSuccess(weather -> complete(permit, null))
+                .doOnError(e -> complete(permit, e))
+                .doOnCancel(() -> permit.complete(false));
+        });
+    }
+
+    /**
+     * Constructs the URL for the WeatherAPI request, including the API key and location coordinates.
+     *
+     * @param location The Location object for which to retrieve weather data.
+     * @param apiKey The API key to make the call with.
+     * @return The request URL.
+     */
+    private String weatherUrl(Location location, String apiKey) {
+        return baseUrl +
+            "?key=" + apiKey +
+            "&q=" + query(location);
+    }
 
-            // Continue with the normal processing of the response...
+    /**
+     * Returns the WeatherAPI "q" parameter for the location: its coordinates, or its zip code if it has none.
+     */
+    private static String query(Location location) {
+        if (location.getLatitude() == null || location.getLongitude() == null) {
+            return location.getZipCode();
+        }
+        return location.getLatitude() + "," + location.getLongitude();
+    }
+
+    /**
+     * Parses a WeatherAPI forecast response. Shared by the blocking and the reactive lookups.
+     *
+     * @param location The Location the forecast was requested for.
+     * @param response The JSON response body of the WeatherAPI.
+     * @return Weather object containing current and forecasted weather information.
+     * @throws IOException If the response is empty, reports an API error or cannot be parsed.
+     */
+    private Weather parseWeatherResponse(Location location, InputStream response) throws IOException {
+        WeatherApiParser.ParsedForecast parsed;
+        try {
+            // Reads only the fields that end up in the Weather object, without building a JSON tree.
+            parsed = WeatherApiParser.parseForecast(requireBody(response));
         } catch (JsonProcessingException e) {
             // Handle JSON parsing errors
             throw new IOException("Error parsing response JSON: " + e.getMessage(), e);
         }
 
-        // Extracts the current weather node from the JSON response.
-        JsonNode currentNode = root.path("current");
-        // Extracts the current weather condition node from the JSON response.
-        JsonNode conditionNode1 = currentNode.path("condition");
-
-        // Creates a new Current object to store current weather conditions.
-        Weather.Current current = new Weather.Current(
-            // Extracts and sets the last updated epoch time.
-            currentNode.path("last_updated_epoch").asInt(),
-            // Extracts and sets the temperature in Celsius.
-            currentNode.path("temp_c").asDouble(),
-            // Extracts and sets the temperature in Fahrenheit.
-            currentNode.path("temp_f").asDouble(),
-
-            // Creates a new Condition object to store current weather condition details.
-            new Weather.Condition(
-                // Extracts and sets the condition text.
-                conditionNode1.path("text").asText(),
-                // Extracts and sets the condition icon URL.
-                conditionNode1.path("icon").asText(),
-                // Extracts and sets the condition code.
-                conditionNode1.path("code").asInt()
-            )
-        );
+        return toWeather(location, parsed);
+    }
 
-        // Extract Min/Max Temperature from Forecast
-        // Extracts the forecast day node from the JSON response.
-        JsonNode forecastNode = root.path("forecast").path("forecastday").get(0).path("day");
-
-        // Extracts the forecast weather condition node from the JSON response.
-        JsonNode forecastConditionNode = forecastNode.path("condition");
-
-        // Creates a new Forecast object to store forecasted weather conditions.
-        Weather.Forecast forecast = new Weather.Forecast(
-            // Extracts and sets the minimum temperature in Celsius.
-            forecastNode.path("mintemp_c").asDouble(),
-            // Extracts and sets the minimum temperature in Fahrenheit.
-            forecastNode.path("mintemp_f").asDouble(),
-            // Extracts and sets the maximum temperature in Celsius.
-            forecastNode.path("maxtemp_c").asDouble(),
-            // Extracts and sets the maximum temperature in Fahrenheit.
-            forecastNode.path("maxtemp_f").asDouble(),
-
-            // Creates a new Condition object to store forecasted weather condition details.
-            new Weather.Condition(
-                // Extracts and sets the forecast condition text.
-                forecastConditionNode.path("text").asText(),
-                // Extracts and sets the forecast condition icon URL.
-                forecastConditionNode.path("icon").asText(),
-                // Extracts and sets the forecast condition code.
-                forecastConditionNode.path("code").asInt()
-            )
-        );
+    /**
+     * Checks that a response body is not empty, reading its first byte ahead.
+     *
+     * @param response The JSON response body of the WeatherAPI.
+     * @return The body, from its first byte.
+     * @throws IOException If the body is empty.
+     */
+    private static InputStream requireBody(InputStream response) throws IOException {
+        PushbackInputStream body = new PushbackInputStream(response);
+        int first = body.read();
+        if (first == -1) {
+            throw new IOException("Empty response from Weather API.");
+        }
+        body.unread(first);
+        return body;
+    }
+
+    /**
+     * Throws the error matching a WeatherAPI error response.
+     *
+     * @param error The error reported by the WeatherAPI, or null.
+     * @throws IOException If an error was reported.
+     */
+    private static void checkApiError(WeatherApiParser.ApiError error) throws WeatherApiException {
+        // Handle errors based on the API's error response format
+        if (error != null) {
+            String errorCode = error.code();
+            String errorMessage = error.message();
+
+            // Error handling based on the error code
+            String message = switch (errorCode) {
+                case "1002" -> "API key not provided: ";
+                case "1003" -> "Parameter 'q' not provided: ";
+                case "1005" -> "API request URL is invalid: ";
+                case "1006" -> "No location found matching parameter 'q': ";
+                case "9000" -> "Invalid JSON body in bulk request: ";
+                case "9001" -> "Too many locations in bulk request: ";
+                case "9999" -> "Internal application error: ";
+                case "2006" -> "API key is invalid: ";
+                case "2007" -> "API key has exceeded calls per month quota: ";
+                case "2008" -> "API key has been disabled: ";
+                case "2009" -> "API key does not have access to the resource: ";
+                default -> "API error: ";
+            };
+            throw new WeatherApiException(errorCode, message + errorMessage);
+        }
+    }
+
+    /**
+     * Builds the Weather object from a parsed forecast, either a whole response or one entry of a bulk response.
+     *
+     * @param location The Location the forecast was requested for.
+     * @param parsed The parsed response fields.
+     * @return Weather object containing current and forecasted weather information.
+     * @throws IOException If the response reports an API error or holds no forecast day.
+     */
+    private static Weather toWeather(Location location, WeatherApiParser.ParsedForecast parsed) throws IOException {
+        checkApiError(parsed.error());
+
+        // A response without current conditions is read as empty conditions.
+        Weather.Current current = parsed.current() != null
+            ? parsed.current()
+            : new Weather.Current(0, 0, 0, new Weather.Condition("", "", 0));
+
+        // Min/Max Temperature come from the first forecast day.
+        if (parsed.forecast() == null) {
+            throw new IOException("No forecast day in Weather API response.");
+        }
 
         // Creates a new Weather object to store the weather data.
-        Weather weather = new Weather(
+        return new Weather(
             // Sets the location of the weather data.
             location,
 
@@ -189,16 +1241,48 @@ public class WeatherService {
             current,
 
             // Sets the forecast object in the weather object.
-            forecast,
+            parsed.forecast(),
 
             // Set the from Cache as false.
             false
         );
+    }
 
-        // Insert the weather object in cache.
-        weatherCache.put(location.getZipCode(), weather);
+    /**
+     * A cached Weather object together with the time it was fetched from the WeatherAPI. Entries are shared by
+     * all requests and never handed out: requests are served copies of the Weather object, which share its
+     * immutable current conditions and forecast.
+     *
+     * @param weather The cached Weather object.
+     * @param fetchedAt The epoch millis at which the weather was fetched.
+     * @param encodedData The JSON encoding of its current conditions and forecast, see EncodedWeather, or null.
+     */
+    private record CachedWeather(Weather weather, long fetchedAt, byte[] encodedData) {
+    }
 
-        // Returns the weather object.
-        return weather;
+    /**
+     * Error reported by the WeatherAPI in a response body, carrying its error code.
+     */
+    private static final class WeatherApiException extends IOException {
+
+        private final String code;
+
+        WeatherApiException(String code, String message) {
+            super(message);
+            this.code = code;
+        }
+
+        String getCode() {
+            return code;
+        }
+    }
+
+    /**
+     * Outcome for one location of a bulk request.
+     *
+     * @param weather The parsed Weather object, or null if the location failed.
+     * @param error The failure reported for the location, or null.
+     */
+    private record BulkEntry(Weather weather, IOException error) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.services.AddressService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+class AddressServiceCacheTests {
+
+    private static final String RESPONSE_JSON = """
+        {
+            "status":"OK",
+            "results":[
+                {
+                    "formatted_address":"1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA",
+                    "geometry":{
+                        "location": {
+                            "lat":37.4220041,
+                            "lng":-122.0833494
+                        }
+                    },
+                    "address_components":[
+                        {
+                            "long_name":"94043",
+                            "types":["postal_code"]
+                        }
+                    ]
+                }
+            ]
+        }""";
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        addressService.clearCache();
+    }
+
+    @Test
+    void normalizeAddress_ignoresCaseWhitespaceAndPunctuation() {
+        assertEquals("1600 amphitheatre pkwy mountain view ca",
+            AddressService.normalizeAddress("  1600  Amphitheatre Pkwy., Mountain View,CA "));
+    }
+
+    @Test
+    void getLocation_cachedByNormalizedAddress() throws IOException {
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        Location first = addressService.getLocation("1600 Amphitheatre Pkwy, Mountain View, CA");
+        Location second = addressService.getLocation("1600 amphitheatre pkwy  mountain view ca.");
+
+        assertSame(first, second);
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(1)));
+    }
+
+    @Test
+    void getLocation_negativeResultCached() throws IOException {
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond("{\"status\":\"ZERO_RESULTS\"}"));
+
+        assertNull(addressService.getLocation("nowhere at all"));
+        assertNull(addressService.getLocation("Nowhere, at all"));
+
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(1)));
+    }
+
+    @Test
+    void getLocation_transientFailureNotCached() throws IOException {
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond("{\"status\":\"OVER_QUERY_LIMIT\"}"));
+
+        assertNull(addressService.getLocation("some address"));
+        assertNull(addressService.getLocation("some address"));
+
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(2)));
+    }
+
+    @Test
+    void getLocation_cacheMetricsRegistered() throws IOException {
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        // The cache statistics add up over the tests sharing the application context, so count the hits of this one.
+        double hitsBefore = geocodeCacheHits();
+        addressService.getLocation("1600 Amphitheatre Pkwy, Mountain View, CA");
+        addressService.getLocation("1600 Amphitheatre Pkwy, Mountain View, CA");
+
+        assertEquals(1.0, geocodeCacheHits() - hitsBefore);
+    }
+
+    private double geocodeCacheHits() {
+        return meterRegistry.get("cache.gets").tag("cache", "geocodeCache").tag("result", "hit")
+            .functionCounter().count();
+    }
+}
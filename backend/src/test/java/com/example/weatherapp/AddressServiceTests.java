@@ -53,7 +53,7 @@ class AddressServiceTests {
             }""";
 
         Mockito.when(appConfiguration.getAddressServiceApiKey()).thenReturn("testApiKey");
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class))).thenReturn(responseJson);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(responseJson));
 
         Location location = addressService.getLocation(address);
 
@@ -82,7 +82,7 @@ class AddressServiceTests {
             }""";
 
         Mockito.when(appConfiguration.getAddressServiceApiKey()).thenReturn("testApiKey");
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class))).thenReturn(responseJson);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(responseJson));
 
         Location location = addressService.getLocation(address);
 
@@ -95,7 +95,7 @@ class AddressServiceTests {
         String responseJson = "{\"status\":\"ZERO_RESULTS\"}";
 
         Mockito.when(appConfiguration.getAddressServiceApiKey()).thenReturn("testApiKey");
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class))).thenReturn(responseJson);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(responseJson));
 
         Location location = addressService.getLocation(address);
 
@@ -108,7 +108,7 @@ class AddressServiceTests {
         String responseJson = "{\"status\":\"OK\",\"results\":[]}";
 
         Mockito.when(appConfiguration.getAddressServiceApiKey()).thenReturn("testApiKey");
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class))).thenReturn(responseJson);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(responseJson));
 
         Location location = addressService.getLocation(address);
 
@@ -0,0 +1,159 @@
+package com.example.weatherapp;
+
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.AddressService;
+import com.example.weatherapp.services.WeatherService;
+
+import reactor.core.publisher.Mono;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BatchWeatherControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private WeatherService weatherService;
+
+    @MockitoBean
+    private AddressService addressService;
+
+    @Test
+    void getWeather_mixedItems() throws Exception {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Weather weather = new Weather(
+            location,
+            new Weather.Current(1609459200, 11.2, 52.2, new Weather.Condition("Sunny", "//icon.url", 1003)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Partly cloudy", "//icon2.url", 1003)),
+            false
+        );
+
+        when(addressService.getLocationAsync("1600 Amphitheatre Parkway")).thenReturn(Mono.just(location));
+        when(addressService.getLocationAsync("Invalid Address")).thenReturn(Mono.empty());
+        when(weatherService.getCachedWeatherAsync(any(Location.class))).thenReturn(Mono.empty());
+        when(weatherService.getWeatherAsync(any(Location.class))).thenReturn(Mono.just(weather));
+
+        String body = """
+            {
+                "items": [
+                    {"address": "1600 Amphitheatre Parkway"},
+                    {"address": "1600 amphitheatre parkway."},
+                    {"address": "Invalid Address"},
+                    {"zip": "94043", "lat": 37.422, "lon": -122.084},
+                    {}
+                ]
+            }""";
+
+        MvcResult result = mockMvc.perform(post("/weather/batch")
+                                  .contentType(MediaType.APPLICATION_JSON)
+                                  .content(body))
+                                  .andExpect(request().asyncStarted())
+                                  .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$[0].status").value(200))
+               .andExpect(jsonPath("$[0].weather.current.temp_c").value(11.2))
+               .andExpect(jsonPath("$[1].status").value(200))
+               .andExpect(jsonPath("$[2].status").value(404))
+               .andExpect(jsonPath("$[3].status").value(200))
+               .andExpect(jsonPath("$[4].status").value(400));
+
+        // Duplicate addresses are geocoded once, and all items share the forecast of zip code 94043.
+        verify(addressService, times(2)).getLocationAsync(anyString());
+        verify(weatherService, times(1)).getWeatherAsync(any(Location.class));
+    }
+
+    @Test
+    void getWeather_itemsValidatedAsWeatherEndpoint() throws Exception {
+        Location location = new Location(null, "SW1A 1AA", null, null);
+        Weather weather = new Weather(
+            location,
+            new Weather.Current(1609459200, 11.2, 52.2, new Weather.Condition("Sunny", "//icon.url", 1003)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Partly cloudy", "//icon2.url", 1003)),
+            false
+        );
+
+        when(weatherService.getCachedWeatherAsync(any(Location.class))).thenReturn(Mono.empty());
+        when(weatherService.getWeatherAsync(location)).thenReturn(Mono.just(weather));
+
+        String body = """
+            {
+                "items": [
+                    {"zip": "94043; DROP"},
+                    {"lat": 91, "lon": 0},
+                    {"zip": "9404", "lat": 37.422, "lon": -122.084},
+                    {"zip": " sw1a 1aa "}
+                ]
+            }""";
+
+        MvcResult result = mockMvc.perform(post("/weather/batch")
+                                  .contentType(MediaType.APPLICATION_JSON)
+                                  .content(body))
+                                  .andExpect(request().asyncStarted())
+                                  .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$[0].status").value(400))
+               .andExpect(jsonPath("$[1].status").value(400))
+               .andExpect(jsonPath("$[2].status").value(400))
+               .andExpect(jsonPath("$[3].status").value(200))
+               .andExpect(jsonPath("$[3].weather.location.zipCode").value("SW1A 1AA"));
+
+        // Only the valid item is looked up, with its normalized zip code.
+        verify(weatherService, times(1)).getWeatherAsync(any(Location.class));
+    }
+
+    @Test
+    void getWeather_upstreamFailureHidesDetail() throws Exception {
+        when(weatherService.getCachedWeatherAsync(any(Location.class))).thenReturn(Mono.empty());
+        when(weatherService.getWeatherAsync(any(Location.class))).thenReturn(Mono.error(new ResourceAccessException(
+            "I/O error on GET request for \"https://api.weatherapi.com/v1/forecast.json?key=secret&q=94043\"")));
+
+        MvcResult result = mockMvc.perform(post("/weather/batch")
+                                  .contentType(MediaType.APPLICATION_JSON)
+                                  .content("{\"items\": [{\"zip\": \"94043\"}]}"))
+                                  .andExpect(request().asyncStarted())
+                                  .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$[0].status").value(503))
+               .andExpect(jsonPath("$[0].error").value("Weather data is temporarily unavailable."));
+    }
+
+    @Test
+    void getWeather_emptyBatch() throws Exception {
+        MvcResult result = mockMvc.perform(post("/weather/batch")
+                                  .contentType(MediaType.APPLICATION_JSON)
+                                  .content("{\"items\": []}"))
+                                  .andExpect(request().asyncStarted())
+                                  .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.models.BatchWeatherRequest;
+import com.example.weatherapp.services.AddressService;
+import com.example.weatherapp.services.BatchWeatherService;
+import com.example.weatherapp.services.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@SpringBootTest(properties = "weather-service.bulk-enabled=true")
+class BatchWeatherServiceTests {
+
+    // Chunks the stubbed response is received in, as from the network.
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private AppConfiguration appConfiguration;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void getWeather_bulkResponseMappedToItems() throws IOException {
+        String forecastJson;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("payloads/forecast.json")) {
+            forecastJson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        List<String> zipCodes = List.of("10001", "10002", "10003", "10004", "10005");
+
+        // Entries come back in reverse order, each with its own temperature, and 10003 is not a known location.
+        List<String> entries = new ArrayList<>();
+        for (int i = zipCodes.size() - 1; i >= 0; i--) {
+            String zipCode = zipCodes.get(i);
+            if (zipCode.equals("10003")) {
+                entries.add("{\"query\":{\"custom_id\":\"10003\",\"q\":\"10003\","
+                    + "\"error\":{\"code\":1006,\"message\":\"No matching location found.\"}}}");
+            } else {
+                String forecast = forecastJson.replaceFirst("\"temp_c\": 11.2", "\"temp_c\": " + (20 + i));
+                entries.add("{\"query\":{\"custom_id\":\"" + zipCode + "\",\"q\":\"" + zipCode + "\","
+                    + forecast.substring(forecast.indexOf('{') + 1) + "}");
+            }
+        }
+        byte[] response = ("{\"bulk\":[" + String.join(",", entries) + "]}").getBytes(StandardCharsets.UTF_8);
+        // Larger than the 256 KB the WebClient codecs hold in memory by default.
+        assertTrue(response.length > 256 * 1024);
+
+        AtomicInteger bulkCalls = new AtomicInteger();
+        WebClient webClient = WebClient.builder()
+            .exchangeFunction(request -> {
+                assertTrue(request.url().getQuery().contains("q=bulk"));
+                bulkCalls.incrementAndGet();
+                return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(chunks(response))
+                    .build());
+            })
+            .build();
+        WeatherService weatherService = new WeatherService(appConfiguration, restTemplate, webClient, objectMapper,
+            new SimpleMeterRegistry());
+        BatchWeatherService batchWeatherService = new BatchWeatherService(appConfiguration, addressService, weatherService);
+
+        try {
+            List<BatchWeatherRequest.Item> items = zipCodes.stream()
+                .map(zipCode -> new BatchWeatherRequest.Item(null, zipCode, null, null))
+                .toList();
+            List<BatchWeatherService.Outcome> outcomes = batchWeatherService.getWeather(items).block(Duration.ofSeconds(5));
+
+            assertNotNull(outcomes);
+            assertEquals(1, bulkCalls.get());
+            for (int i = 0; i < zipCodes.size(); i++) {
+                BatchWeatherService.Outcome outcome = outcomes.get(i);
+                if (zipCodes.get(i).equals("10003")) {
+                    // The error of one location only fails its own item.
+                    assertNull(outcome.weather());
+                    assertTrue(WeatherService.isUnknownLocation(outcome.error()));
+                } else {
+                    assertNull(outcome.error());
+                    assertEquals(zipCodes.get(i), outcome.weather().getLocation().getZipCode());
+                    assertEquals(20 + i, outcome.weather().getCurrent().getTemperatureC());
+                }
+            }
+        } finally {
+            weatherService.shutdown();
+        }
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] response) {
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < response.length; offset += CHUNK_SIZE) {
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                Arrays.copyOfRange(response, offset, Math.min(response.length, offset + CHUNK_SIZE))));
+        }
+        return Flux.fromIterable(buffers);
+    }
+}
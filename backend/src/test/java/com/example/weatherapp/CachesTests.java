@@ -0,0 +1,52 @@
+package com.example.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.example.weatherapp.cache.Caches;
+import com.example.weatherapp.models.Location;
+import com.github.benmanes.caffeine.cache.Cache;
+
+class CachesTests {
+
+    @Test
+    void build_boundsByEntries() {
+        Cache<String, Location> cache = Caches.build(600, 100, 0, Caches::weigh);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("address " + i, location(i));
+        }
+        cache.cleanUp();
+
+        assertEquals(100, cache.estimatedSize());
+    }
+
+    @Test
+    void build_boundsByMemory() {
+        Cache<String, Location> cache = Caches.build(600, Long.MAX_VALUE, 1, Caches::weigh);
+        int weight = Caches.weigh("address 0", location(0));
+        for (int i = 0; i < 100_000; i++) {
+            cache.put("address " + i, location(i));
+        }
+        cache.cleanUp();
+
+        long weightedSize = cache.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+        assertTrue(weightedSize <= 1024 * 1024);
+        assertTrue(cache.estimatedSize() < 1024 * 1024 / weight + 1);
+        assertTrue(cache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    void weigh_countsStrings() {
+        Location location = location(0);
+        Location longer = new Location(location.getFormattedAddress() + ", Mountain View, CA, USA",
+            location.getZipCode(), location.getLatitude(), location.getLongitude());
+
+        assertTrue(Caches.weigh("key", longer) > Caches.weigh("key", location));
+        assertTrue(Caches.weigh("key", location) > Caches.weigh("key"));
+    }
+
+    private static Location location(int i) {
+        return new Location(i + " Amphitheatre Parkway", "94043", 37.422, -122.084);
+    }
+}
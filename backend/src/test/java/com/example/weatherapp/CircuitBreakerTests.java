@@ -0,0 +1,167 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.http.AdaptiveConcurrencyLimit;
+import com.example.weatherapp.http.CallNotPermittedException;
+import com.example.weatherapp.http.CircuitBreaker;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.services.AddressService;
+import com.example.weatherapp.services.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest(properties = {
+    "circuit-breaker.enabled=true",
+    "circuit-breaker.window-size=4",
+    "circuit-breaker.minimum-calls=4",
+    "circuit-breaker.open-duration-ms=60000"
+})
+class CircuitBreakerTests {
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private AppConfiguration appConfiguration;
+
+    @Autowired
+    private WebClient webClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void getWeather_failsFastOnceCircuitOpens() {
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenThrow(new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+
+        for (int i = 0; i < 4; i++) {
+            Location location = new Location("Address " + i, "1000" + i, 10.0 * i, 10.0 * i);
+            assertThrows(IOException.class, () -> weatherService.getWeather(location));
+        }
+
+        // The circuit is open, the next call is rejected without reaching the WeatherAPI.
+        Location location = new Location("Address 5", "10005", 50.0, 50.0);
+        IOException exception = assertThrows(IOException.class, () -> weatherService.getWeather(location));
+        assertInstanceOf(CallNotPermittedException.class, exception.getCause());
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(4)));
+
+        assertEquals(1.0, meterRegistry.get("upstream.circuit.state").tag("upstream", "forecast").tag("state", "open")
+            .gauge().value());
+        assertEquals(1.0, meterRegistry.get("upstream.calls.rejected").tag("upstream", "forecast")
+            .tag("reason", "circuit_open").counter().count());
+    }
+
+    @Test
+    void getWeather_unexpectedFailuresCountAgainstCircuit() {
+        // A failure other than an I/O or HTTP client error, such as one thrown while parsing the response.
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenThrow(new IllegalStateException("Unexpected response"));
+        // A service of its own, whose circuit was not opened by the other tests.
+        WeatherService service = new WeatherService(appConfiguration, restTemplate, webClient, objectMapper,
+            new SimpleMeterRegistry());
+
+        try {
+            for (int i = 0; i < 4; i++) {
+                Location location = new Location("Address " + i, "1000" + i, 10.0 * i, 10.0 * i);
+                assertThrows(IllegalStateException.class, () -> service.getWeather(location));
+            }
+
+            Location location = new Location("Address 5", "10005", 50.0, 50.0);
+            IOException exception = assertThrows(IOException.class, () -> service.getWeather(location));
+            assertInstanceOf(CallNotPermittedException.class, exception.getCause());
+            UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(4)));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void getLocation_unexpectedFailuresCountAgainstCircuit() {
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenThrow(new IllegalStateException("Unexpected response"));
+
+        for (int i = 0; i < 4; i++) {
+            String address = "Address " + i;
+            assertThrows(IllegalStateException.class, () -> addressService.getLocation(address));
+        }
+
+        // Each failed call completed its permit, so the circuit opened instead of running out of permits.
+        assertThrows(CallNotPermittedException.class, () -> addressService.getLocation("Address 5"));
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(4)));
+        assertEquals(1.0, meterRegistry.get("upstream.circuit.state").tag("upstream", "geocode").tag("state", "open")
+            .gauge().value());
+    }
+
+    @Test
+    void circuitBreaker_closesAfterSuccessfulProbes() throws InterruptedException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", new SimpleMeterRegistry(), 50, 100, 1000, 4, 2, 200, 2);
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onComplete(System.nanoTime(), 0, true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+
+        Thread.sleep(300);
+
+        // Two probe calls are let through, a third one is not until they complete.
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+        long start = System.nanoTime();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        circuitBreaker.onComplete(start, 0, false);
+        circuitBreaker.onComplete(start, 0, false);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void concurrencyLimit_shrinksOnSlowCallsAndGrowsWhenHealthy() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test", new SimpleMeterRegistry(), 10, 2, 20, 100, 0.5);
+
+        assertTrue(limit.tryAcquire());
+        limit.onComplete(1_000_000_000L, false);
+        assertEquals(5, limit.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        // The limit is reached, further calls are rejected.
+        assertFalse(limit.tryAcquire());
+
+        for (int i = 0; i < 5; i++) {
+            limit.onComplete(1_000_000L, false);
+        }
+        assertTrue(limit.getLimit() > 5);
+        assertEquals(0, limit.getInFlight());
+    }
+}
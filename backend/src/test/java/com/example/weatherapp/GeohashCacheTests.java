@@ -0,0 +1,125 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.weatherapp.cache.Geohash;
+import com.example.weatherapp.models.EncodedWeather;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.WeatherService;
+
+@SpringBootTest(properties = {
+    "weather-service.geohash-precision=5",
+    "weather-service.cache-expiry-seconds=60"
+})
+class GeohashCacheTests {
+
+    private static final String RESPONSE_JSON = """
+        {
+            "current": {"temp_c": 11.2, "condition": {"text": "Sunny"}},
+            "forecast": {"forecastday": [{"day": {"mintemp_c": 9.2, "condition": {"text": "Cloudy"}}}]}
+        }""";
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @BeforeEach
+    public void setup() {
+        weatherService.clearCache();
+    }
+
+    @Test
+    void geohash_knownValue() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("9q9hv", Geohash.encode(37.4220041, -122.0833494, 5));
+    }
+
+    @Test
+    void getWeather_nearbyLocationsShareForecast() throws IOException {
+        // Two addresses less than a kilometer apart, in different zip codes but the same geohash cell.
+        Location googleplex = new Location("1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA",
+            "94043", 37.4220041, -122.0833494);
+        Location shoreline = new Location("Charleston Rd, Mountain View, CA 94039, USA",
+            "94039", 37.4275, -122.0900);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        Weather first = weatherService.getWeather(googleplex);
+        Weather second = weatherService.getWeather(shoreline);
+
+        assertFalse(first.isFromCache());
+        assertTrue(second.isFromCache());
+        assertEquals(11.2, second.getCurrent().getTemperatureC());
+        // The shared forecast is returned with the requested location.
+        assertEquals("94039", second.getLocation().getZipCode());
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(1)));
+    }
+
+    @Test
+    void getWeather_hitsShareTheEncodingOfTheEntry() throws IOException {
+        Location googleplex = new Location("1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA",
+            "94043", 37.4220041, -122.0833494);
+        Location shoreline = new Location("Charleston Rd, Mountain View, CA 94039, USA",
+            "94039", 37.4275, -122.0900);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        weatherService.getWeather(googleplex);
+        EncodedWeather first = assertInstanceOf(EncodedWeather.class, weatherService.getWeather(googleplex));
+        EncodedWeather second = assertInstanceOf(EncodedWeather.class, weatherService.getWeather(shoreline));
+
+        // Each request gets its own object with its own location, over the encoding made once for the entry.
+        assertNotSame(first, second);
+        assertEquals("94043", first.getLocation().getZipCode());
+        assertEquals("94039", second.getLocation().getZipCode());
+        assertSame(first.getEncodedData(), second.getEncodedData());
+    }
+
+    @Test
+    void getWeather_entryUnchangedByCallers() throws IOException {
+        Location googleplex = new Location("1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA",
+            "94043", 37.4220041, -122.0833494);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        // The caller of the fetch replaces the conditions of the object it was given.
+        Weather fetched = weatherService.getWeather(googleplex);
+        fetched.setCurrent(new Weather.Current(0, -40, -40, new Weather.Condition("Changed", "", 0)));
+
+        EncodedWeather cached = assertInstanceOf(EncodedWeather.class, weatherService.getWeather(googleplex));
+        assertEquals(11.2, cached.getCurrent().getTemperatureC());
+        assertTrue(new String(cached.getEncodedData(), StandardCharsets.UTF_8).contains("\"temp_c\":11.2"));
+
+        // Served objects cannot be made to disagree with their encoding.
+        assertThrows(UnsupportedOperationException.class, () -> cached.setCurrent(fetched.getCurrent()));
+        assertThrows(UnsupportedOperationException.class, () -> cached.setForecast(fetched.getForecast()));
+    }
+
+    @Test
+    void cacheKey_coordinatesWithoutZipCode() {
+        Location withoutZip = new Location("Somewhere", null, 37.4220041, -122.0833494);
+        Location elsewhere = new Location("Elsewhere", null, 40.7128, -74.0060);
+
+        assertEquals("geo:9q9hv", WeatherService.cacheKey(withoutZip, 5));
+        assertNotEquals(WeatherService.cacheKey(withoutZip, 5), WeatherService.cacheKey(elsewhere, 5));
+        // Without a geohash precision the cache is keyed by zip code as before.
+        assertEquals("94043", WeatherService.cacheKey(new Location("", "94043", 37.42, -122.08), 0));
+    }
+}
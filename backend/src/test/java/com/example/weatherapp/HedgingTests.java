@@ -0,0 +1,288 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.http.Hedging;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.WeatherService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+@SpringBootTest(properties = {
+    "hedging.enabled=true",
+    "hedging.percentile=0.95",
+    "hedging.min-delay-ms=20",
+    "hedging.max-ratio=0.1"
+})
+class HedgingTests {
+
+    private static final String WEATHER_JSON = """
+        {
+            "current": {"temp_c": 11.2, "condition": {"text": "Sunny"}},
+            "forecast": {"forecastday": [{"day": {"mintemp_c": 9.2, "condition": {"text": "Cloudy"}}}]}
+        }""";
+
+    // Calls made before the delay is known.
+    private static final int WARM_UP_CALLS = 100;
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private AppConfiguration appConfiguration;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private SimpleMeterRegistry hedgingRegistry;
+
+    private Hedging hedging;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        hedgingRegistry = new SimpleMeterRegistry();
+        hedging = new Hedging("test", appConfiguration, hedgingRegistry);
+        for (int i = 0; i < WARM_UP_CALLS; i++) {
+            hedging.call(() -> "fast");
+        }
+    }
+
+    @Test
+    void call_notHedgedBeforeTheDelayIsKnown() throws IOException {
+        Hedging cold = new Hedging("cold", appConfiguration, new SimpleMeterRegistry());
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals("slow", cold.call(() -> {
+            attempts.incrementAndGet();
+            sleep(50);
+            return "slow";
+        }));
+        assertEquals(1, attempts.get());
+        assertEquals(-1, cold.getDelayInMillis());
+    }
+
+    @Test
+    void call_slowAttemptAnsweredByHedge() throws IOException {
+        // Fast calls only, so the delay is the minimum.
+        assertEquals(20, hedging.getDelayInMillis());
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        String result = hedging.call(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(5000);
+                return "primary";
+            }
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, hedges("won"));
+        assertEquals(0.0, hedges("lost"));
+        // The first attempt was interrupted on the calling thread, which is left without an interrupt.
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    void call_firstAttemptMadeOnCallingThread() throws IOException {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+
+        String result = hedging.call(() -> {
+            threads.add(Thread.currentThread());
+            if (threads.size() == 1) {
+                sleep(200);
+                return "primary";
+            }
+            throw new IOException("Hedge failed");
+        });
+
+        assertEquals("primary", result);
+        assertEquals(2, threads.size());
+        assertSame(Thread.currentThread(), threads.get(0));
+        assertTrue(threads.get(1).isVirtual());
+        assertTrue(threads.get(1).getName().startsWith("hedged-test-"));
+    }
+
+    @Test
+    void callAsync_slowAttemptAnsweredByHedge() {
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+
+        String result = hedging.callAsync(() -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(5)).map(tick -> "primary").doOnCancel(cancelled::incrementAndGet)
+                : Mono.just("hedge"))
+            .block(Duration.ofSeconds(2));
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1, cancelled.get());
+        assertEquals(1.0, hedges("won"));
+    }
+
+    @Test
+    void call_failedHedgeFallsBackToFirstAttempt() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedging.call(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(200);
+                return "primary";
+            }
+            throw new IOException("Hedge failed");
+        });
+
+        assertEquals("primary", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, hedges("failed"));
+        assertEquals(0.0, hedges("won"));
+    }
+
+    @Test
+    void call_failedFirstAttemptFallsBackToHedge() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedging.call(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(100);
+                throw new IOException("Primary failed");
+            }
+            sleep(300);
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, hedges("won"));
+    }
+
+    @Test
+    void call_bothAttemptsFailed() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        IOException e = assertThrows(IOException.class, () -> hedging.call(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(100);
+                throw new IOException("Primary failed");
+            }
+            throw new IOException("Hedge failed");
+        }));
+
+        assertEquals("Primary failed", e.getMessage());
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, hedges("failed"));
+    }
+
+    @Test
+    void callAsync_failedHedgeFallsBackToFirstAttempt() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedging.callAsync(() -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(200)).map(tick -> "primary")
+                : Mono.<String>error(new IOException("Hedge failed")))
+            .block(Duration.ofSeconds(2));
+
+        assertEquals("primary", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, hedges("failed"));
+        assertEquals(0.0, hedges("won"));
+    }
+
+    @Test
+    void callAsync_firstAttemptFailedWithinDelayNotHedged() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        Throwable error = hedging.callAsync(() -> {
+                attempts.incrementAndGet();
+                return Mono.<String>error(new IOException("Primary failed"));
+            })
+            .map(result -> (Throwable) new AssertionError("Unexpected result " + result))
+            .onErrorResume(Mono::just)
+            .block(Duration.ofSeconds(2));
+
+        assertInstanceOf(IOException.class, error);
+        assertEquals("Primary failed", error.getMessage());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000);
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, hedges("failed") + hedges("skipped"));
+    }
+
+    @Test
+    void call_hedgesCappedByBudget() throws IOException {
+        // The warm up earned 0.1 hedge per call, so at most 10 hedges can be sent before more calls are made.
+        int slowCalls = 30;
+        for (int i = 0; i < slowCalls; i++) {
+            hedging.call(() -> {
+                sleep(40);
+                return "slow";
+            });
+        }
+
+        double sent = hedges("won") + hedges("lost");
+        assertTrue(sent >= 9 && sent <= 13, "hedges sent: " + sent);
+        assertEquals(slowCalls - sent, hedges("skipped"));
+    }
+
+    @Test
+    void getWeather_slowForecastCallHedged() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(invocation -> {
+            // The first call after the warm up hangs until aborted.
+            if (calls.incrementAndGet() == WARM_UP_CALLS + 1) {
+                Thread.sleep(5000);
+            }
+            return UpstreamStubs.extract(invocation, WEATHER_JSON);
+        });
+        for (int i = 0; i < WARM_UP_CALLS; i++) {
+            weatherService.getWeather(new Location("Address " + i, String.valueOf(10000 + i), 1.0 + i, 1.0 + i));
+        }
+
+        long start = System.nanoTime();
+        Weather weather = weatherService.getWeather(new Location("Slow address", "20000", -1.0, -1.0));
+
+        assertEquals(11.2, weather.getCurrent().getTemperatureC());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000);
+        assertEquals(1.0, meterRegistry.get("upstream.hedges").tag("upstream", "forecast").tag("outcome", "won")
+            .counter().count());
+    }
+
+    private double hedges(String outcome) {
+        return hedgingRegistry.get("upstream.hedges").tag("outcome", outcome).counter().count();
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Aborted");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+class HttpClientConfigurationTests {
+
+    @Autowired
+    private ClientHttpRequestFactory clientHttpRequestFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void requestFactory_usesPooledHttpClient() {
+        assertInstanceOf(HttpComponentsClientHttpRequestFactory.class, clientHttpRequestFactory);
+    }
+
+    @Test
+    void poolMetrics_registeredPerUpstreamHost() {
+        for (String host : new String[] {"maps.googleapis.com", "api.weatherapi.com"}) {
+            assertEquals(0.0, meterRegistry.get("http.client.pool.leased").tag("host", host).gauge().value());
+            assertEquals(0.0, meterRegistry.get("http.client.pool.pending").tag("host", host).gauge().value());
+            assertNotNull(meterRegistry.get("http.client.pool.idle").tag("host", host).gauge());
+        }
+        assertNotNull(meterRegistry.get("httpcomponents.httpclient.pool.total.max").gauge());
+    }
+
+    @Test
+    void deadline_cancelledOnceResponseClosed() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        try {
+            URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/");
+            double pendingBefore = pendingDeadlines();
+
+            ClientHttpRequest request = clientHttpRequestFactory.createRequest(uri, HttpMethod.GET);
+            assertEquals(pendingBefore + 1, pendingDeadlines());
+            ClientHttpResponse response = request.execute();
+            assertEquals(200, response.getStatusCode().value());
+            response.close();
+
+            // The deadline leaves the timer queue with the response, rather than when it would have fired.
+            assertEquals(pendingBefore, pendingDeadlines());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private double pendingDeadlines() {
+        return meterRegistry.get("http.client.deadlines.pending").gauge().value();
+    }
+}
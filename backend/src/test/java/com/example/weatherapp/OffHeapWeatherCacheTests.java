@@ -0,0 +1,156 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.weatherapp.cache.OffHeapWeatherCache;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.WeatherService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+class OffHeapWeatherCacheTests {
+
+    private static final String RESPONSE_JSON = """
+        {
+            "current": {"last_updated_epoch": 1609459200, "temp_c": 11.2, "temp_f": 52.2,
+                        "condition": {"text": "Sunny", "icon": "//icon.url", "code": 1000}},
+            "forecast": {"forecastday": [{"day": {"mintemp_c": 9.2, "maxtemp_c": 12.5,
+                        "condition": {"text": "Cloudy", "icon": "//icon2.url", "code": 1006}}}]}
+        }""";
+
+    @DynamicPropertySource
+    static void cacheBackendProperties(DynamicPropertyRegistry registry) {
+        registry.add("weather-service.cache-backend", () -> "off-heap");
+        registry.add("weather-service.off-heap-capacity", () -> "1000");
+        registry.add("weather-service.cache-expiry-seconds", () -> "60");
+    }
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        weatherService.clearCache();
+    }
+
+    @Test
+    void getWeather_servedFromOffHeapCache() throws IOException {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        weatherService.getWeather(location);
+        Weather cached = weatherService.getWeather(location);
+
+        assertTrue(cached.isFromCache());
+        assertEquals(location, cached.getLocation());
+        assertEquals(1609459200, cached.getCurrent().getLastUpdated());
+        assertEquals(11.2, cached.getCurrent().getTemperatureC());
+        assertEquals("Sunny", cached.getCurrent().getCondition().getText());
+        assertEquals(12.5, cached.getForecast().getMaxTempC());
+        assertEquals(1006, cached.getForecast().getCondition().getCode());
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(1)));
+
+        // The cache metrics are published under the same name as with the heap backend.
+        assertNotNull(meterRegistry.find("cache.size").tag("cache", "weatherCache").gauge());
+        assertNotNull(meterRegistry.find("cache.off.heap.bytes").tag("cache", "weatherCache").gauge());
+    }
+
+    @Test
+    void cache_roundTripAndConditionsInterned() {
+        OffHeapWeatherCache cache = new OffHeapWeatherCache(100, 60_000);
+        long now = System.currentTimeMillis();
+
+        cache.put("geo:9q9hv", weather(11.2, "Sunny", 1000), now);
+        cache.put("geo:9q9hy", weather(13.4, "Sunny", 1000), now);
+
+        OffHeapWeatherCache.Entry first = cache.get("geo:9q9hv");
+        OffHeapWeatherCache.Entry second = cache.get("geo:9q9hy");
+        assertEquals(now, first.fetchedAt());
+        assertNull(first.weather().getLocation());
+        assertEquals(11.2, first.weather().getCurrent().getTemperatureC());
+        assertEquals(13.4, second.weather().getCurrent().getTemperatureC());
+        assertEquals(54.5, first.weather().getForecast().getMaxTempF());
+        // Both entries share the interned condition.
+        assertSame(first.weather().getCurrent().getCondition(), second.weather().getCurrent().getCondition());
+        assertEquals(2, cache.size());
+
+        // A put replaces the entry of the same key.
+        cache.put("geo:9q9hv", weather(15.0, "Cloudy", 1006), now);
+        assertEquals(15.0, cache.get("geo:9q9hv").weather().getCurrent().getTemperatureC());
+        assertEquals("Cloudy", cache.get("geo:9q9hv").weather().getCurrent().getCondition().getText());
+        assertEquals(2, cache.size());
+
+        cache.invalidate("geo:9q9hv");
+        assertNull(cache.get("geo:9q9hv"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void cache_missingPartsAndExpiry() {
+        OffHeapWeatherCache cache = new OffHeapWeatherCache(100, 60_000);
+
+        cache.put("94043", new Weather(null, null, weather(11.2, "Sunny", 1000).getForecast(), false),
+            System.currentTimeMillis());
+        Weather weather = cache.get("94043").weather();
+        assertNull(weather.getCurrent());
+        assertNotNull(weather.getForecast());
+
+        cache.put("expired", weather(11.2, "Sunny", 1000), System.currentTimeMillis() - 120_000);
+        assertNull(cache.get("expired"));
+    }
+
+    @Test
+    void cache_evictsOldestEntryOfAFullSet() {
+        // A single set of eight slots.
+        OffHeapWeatherCache cache = new OffHeapWeatherCache(1, 60_000);
+        assertEquals(8, cache.capacity());
+        assertEquals(8 * OffHeapWeatherCache.SLOT_SIZE, cache.offHeapBytes());
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 9; i++) {
+            cache.put("key" + i, weather(i, "Sunny", 1000), now - 1000 + i);
+        }
+
+        assertNull(cache.get("key0"));
+        for (int i = 1; i < 9; i++) {
+            assertEquals(i, cache.get("key" + i).weather().getCurrent().getTemperatureC());
+        }
+        assertEquals(8, cache.size());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("key8"));
+    }
+
+    private static Weather weather(double temperatureC, String text, int code) {
+        return new Weather(
+            null,
+            new Weather.Current(1609459200, temperatureC, 52.2, new Weather.Condition(text, "//icon.url", code)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Partly cloudy", "//icon2.url", 1003)),
+            false
+        );
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.weatherapp.cache.ModelCodecs;
+import com.example.weatherapp.cache.PersistentCacheStore;
+import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest
+class PersistentCacheTests {
+
+    private static final String RESPONSE_JSON = """
+        {
+            "current": {"temp_c": 11.2, "condition": {"text": "Sunny"}},
+            "forecast": {"forecastday": [{"day": {"mintemp_c": 9.2, "condition": {"text": "Cloudy"}}}]}
+        }""";
+
+    private static final Path CACHE_DIRECTORY = createCacheDirectory();
+
+    @DynamicPropertySource
+    static void cacheStoreProperties(DynamicPropertyRegistry registry) {
+        registry.add("cache-store.enabled", () -> "true");
+        registry.add("cache-store.directory", CACHE_DIRECTORY::toString);
+        registry.add("weather-service.cache-expiry-seconds", () -> "60");
+    }
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private AppConfiguration appConfiguration;
+
+    @Autowired
+    private WebClient webClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @BeforeEach
+    public void setup() {
+        weatherService.clearCache();
+    }
+
+    @Test
+    void getWeather_servedFromDiskAfterRestart() throws IOException {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        weatherService.getWeather(location);
+
+        // A new service over the same directory stands in for a restarted application.
+        WeatherService restarted = new WeatherService(appConfiguration, restTemplate, webClient, objectMapper,
+            new SimpleMeterRegistry());
+        try {
+            Weather weather = restarted.getCachedWeather(location);
+            assertNotNull(weather);
+            assertTrue(weather.isFromCache());
+            assertEquals(11.2, weather.getCurrent().getTemperatureC());
+            assertEquals("Cloudy", weather.getForecast().getCondition().getText());
+            assertEquals("94043", weather.getLocation().getZipCode());
+        } finally {
+            restarted.shutdown();
+        }
+
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(1)));
+    }
+
+    @Test
+    void store_expiredAndIncompleteRecordsAreIgnored() throws IOException {
+        Path file = CACHE_DIRECTORY.resolve("expiry-test.cache");
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, null);
+
+        try (PersistentCacheStore<Location> store = new PersistentCacheStore<>(file, ModelCodecs.LOCATION, 60_000)) {
+            store.put("fresh", location, System.currentTimeMillis());
+            store.put("expired", location, System.currentTimeMillis() - 120_000);
+        }
+
+        // Simulate a crash in the middle of an append.
+        Files.write(file, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        try (PersistentCacheStore<Location> store = new PersistentCacheStore<>(file, ModelCodecs.LOCATION, 60_000)) {
+            assertEquals(location, store.get("fresh").value());
+            assertNull(store.get("expired"));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void store_corruptRecordLengthTreatedAsTruncatedTail() throws IOException {
+        Path file = CACHE_DIRECTORY.resolve("corrupt-test.cache");
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, null);
+
+        try (PersistentCacheStore<Location> store = new PersistentCacheStore<>(file, ModelCodecs.LOCATION, 60_000)) {
+            store.put("fresh", location, System.currentTimeMillis());
+        }
+        long completeSize = Files.size(file);
+
+        // A length of almost 2 GB, far more than the bytes that follow.
+        Files.write(file, new byte[] {0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (PersistentCacheStore<Location> store = new PersistentCacheStore<>(file, ModelCodecs.LOCATION, 60_000)) {
+            assertEquals(location, store.get("fresh").value());
+            assertEquals(1, store.size());
+        }
+        assertEquals(completeSize, Files.size(file));
+    }
+
+    @Test
+    void store_compactsInTheBackgroundWhileServing() throws IOException, InterruptedException {
+        Path file = CACHE_DIRECTORY.resolve("compaction-test.cache");
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, null);
+
+        try (PersistentCacheStore<Location> store = new PersistentCacheStore<>(file, ModelCodecs.LOCATION, 60_000)) {
+            store.put("kept", location, System.currentTimeMillis());
+
+            // Superseded records of one key soon take up most of the file and trigger a compaction.
+            for (int i = 0; i < 30_000; i++) {
+                store.put("overwritten", new Location("Address " + i, "94043", 37.422, -122.084), System.currentTimeMillis());
+                if (i % 1000 == 0) {
+                    assertEquals(location, store.get("kept").value());
+                }
+            }
+
+            // Without compaction the file would hold about 2 MB of records.
+            long deadline = System.currentTimeMillis() + 5000;
+            while (Files.size(file) >= 1024 * 1024 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(Files.size(file) < 1024 * 1024);
+            assertEquals(location, store.get("kept").value());
+            assertEquals("Address 29999", store.get("overwritten").value().getFormattedAddress());
+            assertEquals(2, store.size());
+        }
+
+        // The compacted file is read back like any other.
+        try (PersistentCacheStore<Location> store = new PersistentCacheStore<>(file, ModelCodecs.LOCATION, 60_000)) {
+            assertEquals(location, store.get("kept").value());
+            assertEquals("Address 29999", store.get("overwritten").value().getFormattedAddress());
+        }
+    }
+
+    private static Path createCacheDirectory() {
+        try {
+            Path directory = Files.createTempDirectory("weather-cache");
+            directory.toFile().deleteOnExit();
+            return directory;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.weatherapp.cache.CountMinSketch;
+import com.example.weatherapp.cache.HotKeys;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.services.WeatherPrewarmer;
+import com.example.weatherapp.services.WeatherService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+class PrewarmTests {
+
+    private static final String RESPONSE_JSON = """
+        {
+            "current": {"temp_c": 11.2, "condition": {"text": "Sunny"}},
+            "forecast": {"forecastday": [{"day": {"mintemp_c": 9.2, "condition": {"text": "Cloudy"}}}]}
+        }""";
+
+    @DynamicPropertySource
+    static void prewarmProperties(DynamicPropertyRegistry registry) {
+        registry.add("prewarm.enabled", () -> "true");
+        // One call per run, and no scheduled run during the test.
+        registry.add("prewarm.interval-seconds", () -> "60");
+        registry.add("prewarm.calls-per-minute", () -> "1");
+        registry.add("weather-service.cache-expiry-seconds", () -> "600");
+    }
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Autowired
+    private WeatherPrewarmer weatherPrewarmer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        weatherService.clearCache();
+    }
+
+    @Test
+    void run_refreshesHottestLocationsWithinBudget() throws Exception {
+        Location hot = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Location warm = new Location("350 Fifth Avenue", "10118", 40.748, -73.985);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        for (int i = 0; i < 5; i++) {
+            weatherService.getWeather(hot);
+        }
+        weatherService.getWeather(warm);
+        assertEquals(List.of(hot, warm), weatherService.getHotLocations().subList(0, 2));
+
+        // Both entries expire, the budget allows the hottest one to be refreshed.
+        weatherService.clearCache();
+        double skippedBefore = skippedForBudget();
+        weatherPrewarmer.run();
+
+        awaitCached(hot);
+        assertEquals(-1, weatherService.getCacheAgeSeconds(warm));
+        assertEquals(skippedBefore + 1, skippedForBudget());
+
+        // A fresh entry is not refreshed again.
+        double refreshes = meterRegistry.get("weather.prewarm.refreshes").counter().count();
+        weatherPrewarmer.run();
+        assertEquals(refreshes, meterRegistry.get("weather.prewarm.refreshes").counter().count());
+    }
+
+    @Test
+    void hotKeys_tracksMostRequestedKeys() {
+        HotKeys<String> hotKeys = new HotKeys<>(2);
+        for (int i = 0; i < 1000; i++) {
+            hotKeys.record("cold" + i, "cold" + i);
+            if (i % 2 == 0) {
+                hotKeys.record("hot", "hot");
+            }
+            if (i % 5 == 0) {
+                hotKeys.record("warm", "warm");
+            }
+        }
+
+        assertEquals(List.of("hot", "warm"), hotKeys.top());
+        assertTrue(hotKeys.size() <= 4);
+    }
+
+    @Test
+    void countMinSketch_estimatesAndAges() {
+        CountMinSketch sketch = new CountMinSketch(1024, 100);
+        for (int i = 0; i < 40; i++) {
+            sketch.increment("94043");
+        }
+        assertTrue(sketch.estimate("94043") >= 40);
+        assertEquals(0, sketch.estimate("10118"));
+
+        // The counters are halved after 100 increments.
+        for (int i = 0; i < 60; i++) {
+            sketch.increment("key" + i);
+        }
+        assertTrue(sketch.estimate("94043") >= 20 && sketch.estimate("94043") < 40);
+    }
+
+    private double skippedForBudget() {
+        Counter counter = meterRegistry.find("weather.prewarm.skipped").tag("reason", "budget").counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private void awaitCached(Location location) throws InterruptedException, IOException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (weatherService.getCacheAgeSeconds(location) < 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Location was not refreshed");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.weatherapp.http.ApiKeyPool;
+import com.example.weatherapp.http.CallNotPermittedException;
+import com.example.weatherapp.http.MonthlyQuota;
+import com.example.weatherapp.http.TokenBucket;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.services.WeatherService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest(properties = {
+    "weather-service.api-key=key-a,key-b",
+    "weather-service.monthly-quota=1"
+})
+class RateLimitTests {
+
+    private static final String RESPONSE_JSON = """
+        {
+            "current": {"temp_c": 11.2, "condition": {"text": "Sunny"}},
+            "forecast": {"forecastday": [{"day": {"mintemp_c": 9.2, "condition": {"text": "Cloudy"}}}]}
+        }""";
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Test
+    void getWeather_callsSpreadOverKeysUntilQuotaIsSpent() throws IOException {
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        weatherService.getWeather(new Location("Mountain View", "94043", 37.42, -122.08));
+        weatherService.getWeather(new Location("New York", "10001", 40.71, -74.00));
+
+        // Each key has a budget of one call, so each was used once.
+        ArgumentCaptor<String> urls = ArgumentCaptor.forClass(String.class);
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(2)), urls.capture());
+        List<String> keys = urls.getAllValues().stream().map(url -> url.replaceAll(".*key=([^&]+).*", "$1")).sorted().toList();
+        assertEquals(List.of("key-a", "key-b"), keys);
+
+        IOException exception = assertThrows(IOException.class,
+            () -> weatherService.getWeather(new Location("Chicago", "60601", 41.88, -87.62)));
+        assertInstanceOf(CallNotPermittedException.class, exception.getCause());
+    }
+
+    @Test
+    void tokenBucket_allowsBurstThenRate() {
+        TokenBucket bucket = new TokenBucket(1, 3);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // A token given back can be taken again.
+        bucket.refund();
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    void monthlyQuota_startsOverWithNewMonth() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-01-31T23:59:00Z"));
+        MonthlyQuota quota = new MonthlyQuota(2, clock);
+
+        assertTrue(quota.tryConsume(2));
+        assertFalse(quota.tryConsume(1));
+        assertEquals(0, quota.remaining());
+
+        clock.instant = Instant.parse("2026-02-01T00:00:00Z");
+        assertEquals(2, quota.remaining());
+        assertTrue(quota.tryConsume(1));
+
+        // A key reported as over quota is not used again this month.
+        quota.exhaust();
+        assertFalse(quota.tryConsume(1));
+        assertEquals(0, quota.remainingRatio());
+    }
+
+    @Test
+    void apiKeyPool_budgetLow() {
+        ApiKeyPool pool = new ApiKeyPool("test", "a, b", 0, 1, 10, 0.5, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 8; i++) {
+            assertNotNull(pool.acquire(1));
+        }
+        assertFalse(pool.isBudgetLow());
+
+        // 12 of the 20 calls across both keys are spent.
+        assertNotNull(pool.acquire(4));
+        assertTrue(pool.isBudgetLow());
+
+        pool.exhaust("a");
+        pool.exhaust("b");
+        assertTrue(pool.isExhausted());
+        assertNull(pool.acquire(1));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.AddressService;
+import com.example.weatherapp.services.WeatherService;
+
+import reactor.core.publisher.Mono;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReactiveWeatherControllerTests {
+
+    private static final String ADDRESS = "1600 Amphitheatre Parkway";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private WeatherService weatherService;
+
+    @MockitoBean
+    private AddressService addressService;
+
+    @Test
+    void getWeather_validAddress() throws Exception {
+        Location location = new Location(ADDRESS, "94043", 37.422, -122.084);
+        Weather weather = new Weather(
+            location,
+            new Weather.Current(1609459200, 11.2, 52.2, new Weather.Condition("Sunny", "//icon.url", 1003)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Partly cloudy", "//icon2.url", 1003)),
+            false
+        );
+
+        when(addressService.getLocationAsync(ADDRESS)).thenReturn(Mono.just(location));
+        when(weatherService.getWeatherAsync(location)).thenReturn(Mono.just(weather));
+
+        mockMvc.perform(asyncDispatch(performAsync()))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.current.temp_c").value(11.2))
+               .andExpect(jsonPath("$.forecast.maxtemp_c").value(12.5));
+    }
+
+    @Test
+    void getWeather_invalidAddress() throws Exception {
+        when(addressService.getLocationAsync(ADDRESS)).thenReturn(Mono.empty());
+
+        mockMvc.perform(asyncDispatch(performAsync()))
+               .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getWeather_emptyAddress() throws Exception {
+        MvcResult result = mockMvc.perform(get("/reactive/weather").param("address", ""))
+                                  .andExpect(request().asyncStarted())
+                                  .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+               .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getWeather_weatherServiceUnavailable() throws Exception {
+        Location location = new Location(ADDRESS, "94043", 37.422, -122.084);
+
+        when(addressService.getLocationAsync(ADDRESS)).thenReturn(Mono.just(location));
+        when(weatherService.getWeatherAsync(location)).thenReturn(Mono.just(new Weather()));
+
+        mockMvc.perform(asyncDispatch(performAsync()))
+               .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void getWeather_internalServerError() throws Exception {
+        when(addressService.getLocationAsync(ADDRESS)).thenReturn(Mono.error(new IOException()));
+
+        mockMvc.perform(asyncDispatch(performAsync()))
+               .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void getWeather_clientError() throws Exception {
+        when(addressService.getLocationAsync(ADDRESS))
+            .thenReturn(Mono.error(new HttpClientErrorException(HttpStatus.FORBIDDEN)));
+
+        mockMvc.perform(asyncDispatch(performAsync()))
+               .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void getWeather_serviceUnavailable() throws Exception {
+        when(addressService.getLocationAsync(ADDRESS)).thenReturn(Mono.just(new Location()));
+        when(weatherService.getWeatherAsync(any(Location.class)))
+            .thenReturn(Mono.error(new RestClientException("Service unavailable")));
+
+        mockMvc.perform(asyncDispatch(performAsync()))
+               .andExpect(status().isServiceUnavailable());
+    }
+
+    private MvcResult performAsync() throws Exception {
+        return mockMvc.perform(get("/reactive/weather").param("address", ADDRESS))
+                      .andExpect(request().asyncStarted())
+                      .andReturn();
+    }
+}
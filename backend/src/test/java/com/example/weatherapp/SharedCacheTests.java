@@ -0,0 +1,183 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.weatherapp.cache.CacheSerializer;
+import com.example.weatherapp.cache.LocalSharedCache;
+import com.example.weatherapp.cache.ModelCodecs;
+import com.example.weatherapp.cache.PersistentCacheStore;
+import com.example.weatherapp.cache.SharedCacheTier;
+import com.example.weatherapp.configuration.AppConfiguration;
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.AddressService;
+import com.example.weatherapp.services.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest
+class SharedCacheTests {
+
+    private static final String WEATHER_JSON = """
+        {
+            "current": {"temp_c": 11.2, "condition": {"text": "Sunny"}},
+            "forecast": {"forecastday": [{"day": {"mintemp_c": 9.2, "condition": {"text": "Cloudy"}}}]}
+        }""";
+
+    private static final String GEOCODE_JSON = """
+        {
+            "status":"OK",
+            "results":[
+                {
+                    "formatted_address":"1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA",
+                    "geometry":{"location": {"lat":37.4220041, "lng":-122.0833494}},
+                    "address_components":[{"long_name":"94043", "types":["postal_code"]}]
+                }
+            ]
+        }""";
+
+    @DynamicPropertySource
+    static void sharedCacheProperties(DynamicPropertyRegistry registry) {
+        registry.add("shared-cache.backend", () -> "local");
+        registry.add("weather-service.cache-expiry-seconds", () -> "60");
+    }
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private AppConfiguration appConfiguration;
+
+    @Autowired
+    private WebClient webClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Autowired
+    private AddressService addressService;
+
+    @BeforeEach
+    public void setup() {
+        weatherService.clearCache();
+        addressService.clearCache();
+    }
+
+    @Test
+    void getWeather_sharedWithOtherInstances() throws IOException {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(WEATHER_JSON));
+
+        weatherService.getWeather(location);
+
+        // A second service with its own in-memory cache stands in for another instance.
+        WeatherService otherInstance = new WeatherService(appConfiguration, restTemplate, webClient, objectMapper,
+            new SimpleMeterRegistry());
+        try {
+            Weather weather = otherInstance.getWeather(location);
+            assertTrue(weather.isFromCache());
+            assertEquals(11.2, weather.getCurrent().getTemperatureC());
+            assertEquals("Cloudy", weather.getForecast().getCondition().getText());
+        } finally {
+            otherInstance.shutdown();
+        }
+
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(1)));
+    }
+
+    @Test
+    void getWeatherAsync_readsSharedCacheOffTheCallingThread() throws IOException {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(WEATHER_JSON));
+
+        weatherService.getWeather(location);
+
+        WeatherService otherInstance = new WeatherService(appConfiguration, restTemplate, webClient, objectMapper,
+            new SimpleMeterRegistry());
+        try {
+            String callingThread = Thread.currentThread().getName();
+            String[] servingThread = new String[1];
+            Weather weather = otherInstance.getWeatherAsync(location)
+                .doOnNext(served -> servingThread[0] = Thread.currentThread().getName())
+                .block();
+            assertTrue(weather.isFromCache());
+            assertEquals(11.2, weather.getCurrent().getTemperatureC());
+            assertNotEquals(callingThread, servingThread[0]);
+        } finally {
+            otherInstance.shutdown();
+        }
+    }
+
+    @Test
+    void getLocation_sharedWithOtherInstances() throws IOException {
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(GEOCODE_JSON));
+
+        addressService.getLocation("1600 Amphitheatre Pkwy, Mountain View, CA");
+
+        AddressService otherInstance = new AddressService(appConfiguration, restTemplate, webClient, new SimpleMeterRegistry());
+        try {
+            Location location = otherInstance.getLocation("1600 amphitheatre pkwy mountain view ca");
+            assertEquals("94043", location.getZipCode());
+            assertEquals(37.4220041, location.getLatitude());
+        } finally {
+            otherInstance.shutdown();
+        }
+
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(1)));
+    }
+
+    @Test
+    void tier_expiresWithFetchTime() {
+        SharedCacheTier<Location> tier = new SharedCacheTier<>(LocalSharedCache.INSTANCE,
+            CacheSerializer.binary(ModelCodecs.LOCATION), "test:", "expiry", 60_000, new SimpleMeterRegistry());
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, null);
+        long now = System.currentTimeMillis();
+
+        tier.put("fresh", location, now - 30_000);
+        tier.put("expired", location, now - 120_000);
+
+        PersistentCacheStore.Entry<Location> fresh = tier.get("fresh");
+        assertNotNull(fresh);
+        assertEquals(location, fresh.value());
+        assertEquals(now - 30_000, fresh.writtenAt());
+        assertNull(tier.get("expired"));
+
+        tier.clear();
+        assertNull(tier.get("fresh"));
+    }
+
+    @Test
+    void tier_jsonSerializer() {
+        SharedCacheTier<Weather> tier = new SharedCacheTier<>(LocalSharedCache.INSTANCE,
+            CacheSerializer.json(Weather.class), "test:", "json", 60_000, new SimpleMeterRegistry());
+        Weather weather = new Weather(new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084),
+            new Weather.Current(1609459200, 11.2, 52.2, new Weather.Condition("Sunny", "//icon.url", 1000)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Cloudy", "//icon2.url", 1006)),
+            false);
+
+        tier.put("94043", weather, System.currentTimeMillis());
+
+        assertEquals(weather, tier.get("94043").value());
+        tier.clear();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.weatherapp;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import com.example.weatherapp.http.UpstreamPayloadLog;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+class UpstreamPayloadLogTests {
+
+    private static final String PAYLOAD = "{\"status\":\"OK\",\"results\":[]}";
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("upstream.payloads");
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    public void setup() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void log_structuredFieldsWithoutAddress() {
+        new UpstreamPayloadLog("geocode", 1.0).log("1600 Amphitheatre Parkway", "94043", "OK", 12_000_000, PAYLOAD);
+
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertTrue(event.getFormattedMessage().contains(PAYLOAD));
+        assertEquals("94043", value(event, "zip"));
+        assertEquals(12L, value(event, "latency_ms"));
+        assertEquals(16, ((String) value(event, "address_hash")).length());
+        // The address itself is only logged as a hash.
+        assertFalse(event.getKeyValuePairs().toString().contains("Amphitheatre"));
+    }
+
+    @Test
+    void log_notSampled() {
+        UpstreamPayloadLog payloadLog = new UpstreamPayloadLog("geocode", 0);
+        for (int i = 0; i < 100; i++) {
+            payloadLog.log("1600 Amphitheatre Parkway", "94043", "OK", 12_000_000, PAYLOAD);
+        }
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    private static Object value(ILoggingEvent event, String key) {
+        return event.getKeyValuePairs().stream()
+            .filter(pair -> pair.key.equals(key))
+            .map(pair -> pair.value)
+            .findFirst()
+            .orElse(null);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Stubs of the upstream calls made with a mocked RestTemplate. The services send their requests with
+ * RestTemplate.execute and parse the response body as it arrives, so the stubs answer by running the
+ * response extractor of the call on a response holding the given body.
+ */
+final class UpstreamStubs {
+
+    private UpstreamStubs() {
+    }
+
+    /**
+     * Matches any upstream GET request, for Mockito.when(get(restTemplate)) or get(Mockito.verify(restTemplate)).
+     */
+    static Object get(RestTemplate restTemplate) {
+        return get(restTemplate, Mockito.anyString());
+    }
+
+    /**
+     * Matches the upstream GET requests whose URL matches the given matcher, e.g. an ArgumentCaptor.
+     */
+    static Object get(RestTemplate restTemplate, String url) {
+        return restTemplate.execute(url, Mockito.eq(HttpMethod.GET), Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * Answers a request with a 200 response holding the given body.
+     */
+    static Answer<Object> respond(String body) {
+        return invocation -> extract(invocation, body);
+    }
+
+    /**
+     * Runs the response extractor of a stubbed request on a 200 response holding the given body.
+     * A failure reading the body is thrown as a ResourceAccessException, as RestTemplate does.
+     */
+    static Object extract(InvocationOnMock invocation, String body) {
+        ResponseExtractor<?> extractor = invocation.getArgument(3);
+        try (ClientHttpResponse response = new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), HttpStatus.OK)) {
+            return extractor.extractData(response);
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error: " + e.getMessage(), e);
+        }
+    }
+}
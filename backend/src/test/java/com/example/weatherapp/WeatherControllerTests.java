@@ -1,31 +1,50 @@
 package com.example.weatherapp;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import org.mockito.InjectMocks;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 
 import com.example.weatherapp.controllers.WeatherController;
+import com.example.weatherapp.models.EncodedWeather;
 import com.example.weatherapp.models.Location;
 import com.example.weatherapp.models.Weather;
 import com.example.weatherapp.services.AddressService;
 import com.example.weatherapp.services.WeatherService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -34,6 +53,12 @@ class WeatherControllerTests {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @MockitoBean
     private WeatherService weatherService;
 
@@ -118,6 +143,24 @@ class WeatherControllerTests {
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    void getWeather_responsesCountedByStatus() throws Exception {
+        when(addressService.getLocation("Nowhere")).thenReturn(null);
+        double before = notFoundCount();
+
+        mockMvc.perform(get("/weather")
+                .param("address", "Nowhere")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+
+        assertEquals(before + 1, notFoundCount());
+    }
+
+    private double notFoundCount() {
+        Counter counter = meterRegistry.find("weather.responses").tag("status", "404").counter();
+        return counter != null ? counter.count() : 0;
+    }
+
     @Test
     void getWeather_clientError() throws Exception {
         when(addressService.getLocation("1600 Amphitheatre Parkway")).thenThrow(new HttpClientErrorException(HttpStatus.FORBIDDEN));
@@ -138,4 +181,211 @@ class WeatherControllerTests {
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isServiceUnavailable());
     }
+
+    @Test
+    void getWeather_cachingHeaders() throws Exception {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Weather weather = new Weather(
+            location,
+            new Weather.Current(1609459200, 11.2, 52.2, new Weather.Condition("Sunny", "//icon.url", 1003)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Partly cloudy", "//icon2.url", 1003)),
+            true
+        );
+
+        when(addressService.getLocation("1600 Amphitheatre Parkway")).thenReturn(location);
+        when(weatherService.getWeather(location)).thenReturn(weather);
+        when(weatherService.getRemainingCacheSeconds(weather)).thenReturn(600L);
+
+        MvcResult result = mockMvc.perform(get("/weather")
+                .param("address", "1600 Amphitheatre Parkway")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=600, public"))
+                .andReturn();
+        String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        // The same data is not sent again to a client that already has it.
+        mockMvc.perform(get("/weather")
+                .param("address", "1600 Amphitheatre Parkway")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        // Changed data is sent in full.
+        mockMvc.perform(get("/weather")
+                .param("address", "1600 Amphitheatre Parkway")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"outdated\"")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.current.temp_c").value(11.2));
+    }
+
+    @Test
+    void getWeather_binaryFormats() throws Exception {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Weather weather = new Weather(
+            location,
+            new Weather.Current(1609459200, 11.2, 52.2, new Weather.Condition("Sunny", "//icon.url", 1003)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Partly cloudy", "//icon2.url", 1003)),
+            false
+        );
+
+        when(addressService.getLocation("1600 Amphitheatre Parkway")).thenReturn(location);
+        when(weatherService.getWeather(location)).thenReturn(weather);
+
+        // CBOR and Smile carry the same schema as the JSON response.
+        for (ObjectMapper mapper : new ObjectMapper[] {new CBORMapper(), new SmileMapper()}) {
+            String mediaType = mapper instanceof CBORMapper ? MediaType.APPLICATION_CBOR_VALUE : "application/x-jackson-smile";
+            MvcResult result = mockMvc.perform(get("/weather")
+                    .param("address", "1600 Amphitheatre Parkway")
+                    .accept(mediaType))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, mediaType))
+                    .andReturn();
+
+            JsonNode body = mapper.readTree(result.getResponse().getContentAsByteArray());
+            assertEquals(11.2, body.get("current").get("temp_c").asDouble());
+            assertEquals(12.5, body.get("forecast").get("maxtemp_c").asDouble());
+            assertEquals("Partly cloudy", body.get("forecast").get("condition").get("text").asText());
+        }
+    }
+
+    @Test
+    void getWeather_cachedWeatherWrittenFromItsEncoding() throws Exception {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Weather weather = new Weather(
+            location,
+            new Weather.Current(1609459200, 11.2, 52.2, new Weather.Condition("Sunny", "//icon.url", 1003)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Partly \"cloudy\"", "//icon2.url", 1003)),
+            true, 42, true
+        );
+        EncodedWeather cached = new EncodedWeather(location, weather.getCurrent(), weather.getForecast(), 42, true,
+            EncodedWeather.encodeData(objectMapper, weather));
+
+        when(addressService.getLocation("1600 Amphitheatre Parkway")).thenReturn(location);
+        when(weatherService.getWeather(location)).thenReturn(cached);
+
+        MvcResult result = mockMvc.perform(get("/weather")
+                .param("address", "1600 Amphitheatre Parkway")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .andReturn();
+
+        // The response is the JSON Jackson writes for the same data.
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.readTree(mapper.writeValueAsBytes(weather)),
+            mapper.readTree(result.getResponse().getContentAsByteArray()));
+        assertEquals(result.getResponse().getContentAsByteArray().length, result.getResponse().getContentLength());
+    }
+
+    @Test
+    void getWeather_coordinatesSkipGeocoding() throws Exception {
+        Location location = new Location(null, null, 37.422, -122.084);
+        Weather weather = new Weather(
+            location,
+            new Weather.Current(1609459200, 11.2, 52.2, new Weather.Condition("Sunny", "//icon.url", 1003)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Partly cloudy", "//icon2.url", 1003)),
+            false
+        );
+        when(weatherService.getWeather(location)).thenReturn(weather);
+
+        mockMvc.perform(get("/weather")
+                .param("lat", "37.422")
+                .param("lon", "-122.084")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.current.temp_c").value(11.2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.location.latitude").value(37.422));
+
+        verify(addressService, never()).getLocation(anyString());
+    }
+
+    @Test
+    void getWeather_zipCodeSkipsGeocoding() throws Exception {
+        Location location = new Location(null, "SW1A 1AA", null, null);
+        Weather weather = new Weather(
+            location,
+            new Weather.Current(1609459200, 11.2, 52.2, new Weather.Condition("Sunny", "//icon.url", 1003)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Partly cloudy", "//icon2.url", 1003)),
+            false
+        );
+        when(weatherService.getWeather(location)).thenReturn(weather);
+
+        mockMvc.perform(get("/weather")
+                .param("zip", " sw1a 1aa ")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.location.zipCode").value("SW1A 1AA"));
+
+        verify(addressService, never()).getLocation(anyString());
+    }
+
+    @Test
+    void getWeather_postalCodesOfEachCountry() throws Exception {
+        Weather weather = new Weather(
+            new Location(),
+            new Weather.Current(1609459200, 11.2, 52.2, new Weather.Condition("Sunny", "//icon.url", 1003)),
+            new Weather.Forecast(9.2, 48.6, 12.5, 54.5, new Weather.Condition("Partly cloudy", "//icon2.url", 1003)),
+            false
+        );
+        when(weatherService.getWeather(any())).thenReturn(weather);
+
+        for (String zipCode : new String[] {"94043", "94043-1351", "EC1A1BB", "M1 1AE", "k1a 0b1", "H0H0H0"}) {
+            mockMvc.perform(get("/weather").param("zip", zipCode))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void getWeather_unknownZipCode() throws Exception {
+        // The WeatherAPI answers a query matching no location with 400 Bad Request and error 1006.
+        HttpClientErrorException noLocation = HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request",
+            HttpHeaders.EMPTY, "{\"error\":{\"code\":1006,\"message\":\"No matching location found.\"}}"
+                .getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        when(weatherService.getWeather(any()))
+            .thenThrow(new IOException("Error while calling Weather API: " + noLocation.getMessage(), noLocation));
+
+        mockMvc.perform(get("/weather").param("zip", "99999"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getWeather_invalidCoordinatesOrZipCode() throws Exception {
+        String[][] invalid = {
+            {"lat", "91", "lon", "0"},
+            {"lat", "0", "lon", "-180.5"},
+            {"lat", "NaN", "lon", "0"},
+            {"lat", "north", "lon", "0"},
+            {"zip", "9"},
+            {"zip", "94043; DROP"},
+            {"zip", "9404"},
+            {"zip", "94043-12"},
+            {"zip", "ABC-DEF"},
+            {"zip", "SW1A 1A"},
+            {"zip", "D1A 0B1"},
+        };
+        for (String[] params : invalid) {
+            MockHttpServletRequestBuilder request = get("/weather");
+            for (int i = 0; i < params.length; i += 2) {
+                request.param(params[i], params[i + 1]);
+            }
+            mockMvc.perform(request).andExpect(status().isBadRequest());
+        }
+
+        verify(weatherService, never()).getWeather(any());
+    }
+
+    @Test
+    void getWeather_coordinatesUpstreamFailureMapped() throws Exception {
+        when(weatherService.getWeather(any())).thenThrow(new RestClientException("WeatherAPI unavailable"));
+
+        mockMvc.perform(get("/weather")
+                .param("lat", "37.422")
+                .param("lon", "-122.084"))
+                .andExpect(status().isServiceUnavailable());
+    }
 }
@@ -0,0 +1,72 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.WeatherService;
+
+@SpringBootTest(properties = {
+    "weather-service.stale-while-revalidate=true",
+    "weather-service.cache-expiry-seconds=3",
+    "weather-service.cache-hard-expiry-seconds=60",
+    "weather-service.refresh-ahead-seconds=2"
+})
+class WeatherServiceRefreshAheadTests {
+
+    private static final String RESPONSE_JSON = """
+        {
+            "current": {"temp_c": 11.2, "condition": {"text": "Sunny"}},
+            "forecast": {"forecastday": [{"day": {"mintemp_c": 9.2, "condition": {"text": "Cloudy"}}}]}
+        }""";
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @BeforeEach
+    public void setup() {
+        weatherService.clearCache();
+    }
+
+    @Test
+    void getWeather_nearExpiryHitsTriggerExactlyOneBackgroundRefresh() throws IOException, InterruptedException {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        Weather fresh = weatherService.getWeather(location);
+
+        // Let the entry enter the refresh-ahead window, one second into its three-second soft TTL.
+        Thread.sleep(1100);
+
+        for (int i = 0; i < 5; i++) {
+            Weather hit = weatherService.getWeather(location);
+            assertTrue(hit.isFromCache());
+            assertFalse(hit.isStale());
+            assertNotSame(fresh, hit);
+        }
+
+        // The hits share one background refresh, and the refreshed entry is out of the window again.
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.timeout(2000).times(2)));
+        Thread.sleep(200);
+        weatherService.getWeather(location);
+        Thread.sleep(200);
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(2)));
+
+        // The cached object is copied on every hit, not marked in place.
+        assertFalse(fresh.isFromCache());
+    }
+}
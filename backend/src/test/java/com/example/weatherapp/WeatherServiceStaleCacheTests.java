@@ -0,0 +1,70 @@
+package com.example.weatherapp;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.weatherapp.models.Location;
+import com.example.weatherapp.models.Weather;
+import com.example.weatherapp.services.WeatherService;
+
+@SpringBootTest(properties = {
+    "weather-service.stale-while-revalidate=true",
+    "weather-service.cache-expiry-seconds=1",
+    "weather-service.cache-hard-expiry-seconds=60",
+    "weather-service.refresh-ahead-seconds=0"
+})
+class WeatherServiceStaleCacheTests {
+
+    private static final String RESPONSE_JSON = """
+        {
+            "current": {"temp_c": 11.2, "condition": {"text": "Sunny"}},
+            "forecast": {"forecastday": [{"day": {"mintemp_c": 9.2, "condition": {"text": "Cloudy"}}}]}
+        }""";
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @BeforeEach
+    public void setup() {
+        weatherService.clearCache();
+    }
+
+    @Test
+    void getWeather_staleEntryServedAndRefreshedInBackground() throws IOException, InterruptedException {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        Mockito.when(UpstreamStubs.get(restTemplate)).thenAnswer(UpstreamStubs.respond(RESPONSE_JSON));
+
+        Weather fresh = weatherService.getWeather(location);
+        assertFalse(fresh.isFromCache());
+
+        // Let the entry pass its soft TTL.
+        Thread.sleep(1100);
+
+        Weather stale = weatherService.getWeather(location);
+        assertTrue(stale.isFromCache());
+        assertTrue(stale.isStale());
+        assertTrue(stale.getCacheAgeSeconds() >= 1);
+
+        // The stale entry triggers exactly one background refresh.
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.timeout(2000).times(2)));
+        Thread.sleep(200);
+
+        Weather refreshed = weatherService.getWeather(location);
+        assertTrue(refreshed.isFromCache());
+        assertFalse(refreshed.isStale());
+        assertEquals(11.2, refreshed.getCurrent().getTemperatureC());
+    }
+}
@@ -1,9 +1,24 @@
 package com.example.weatherapp;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,13 +26,24 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
 
 import com.example.weatherapp.configuration.AppConfiguration;
 import com.example.weatherapp.models.Location;
 import com.example.weatherapp.models.Weather;
 import com.example.weatherapp.services.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
 
 @SpringBootTest
 class WeatherServiceTests {
@@ -31,6 +57,12 @@ class WeatherServiceTests {
     @Autowired
     private WeatherService weatherService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @BeforeEach
     public void setup() {
         weatherService.clearCache();
@@ -76,8 +108,8 @@ class WeatherServiceTests {
 
         // Mocking the configuration and RestTemplate to return a valid response
         Mockito.when(appConfiguration.getWeatherServiceApiKey()).thenReturn(apiKey);
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class)))
-                .thenReturn(responseJson);
+        Mockito.when(UpstreamStubs.get(restTemplate))
+                .thenAnswer(UpstreamStubs.respond(responseJson));
 
         // Call the method under test
         Weather weather = weatherService.getWeather(location);
@@ -91,6 +123,61 @@ class WeatherServiceTests {
         assertEquals("1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA", weather.getLocation().getFormattedAddress());
     }
 
+    @Test
+    void getWeather_recordedResponse() throws IOException {
+        Location location = new Location("1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA",
+        "94043", 37.4220041, -122.0833494);
+
+        // A full recorded response, with location details, astro and hourly data for three days.
+        String responseJson;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("payloads/forecast.json")) {
+            responseJson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        Mockito.when(appConfiguration.getWeatherServiceApiKey()).thenReturn("testApiKey");
+        Mockito.when(UpstreamStubs.get(restTemplate))
+                .thenAnswer(UpstreamStubs.respond(responseJson));
+
+        Weather weather = weatherService.getWeather(location);
+
+        assertNotNull(weather);
+        assertEquals(1735721100, weather.getCurrent().getLastUpdated());
+        assertEquals(11.2, weather.getCurrent().getTemperatureC());
+        assertEquals(1000, weather.getCurrent().getCondition().getCode());
+        assertEquals(9.2, weather.getForecast().getMinTempC());
+        assertEquals(54.5, weather.getForecast().getMaxTempF());
+        assertEquals("Partly cloudy", weather.getForecast().getCondition().getText());
+    }
+
+    @Test
+    void getWeatherAsync_recordedResponseParsedFromBuffer() throws IOException {
+        Location location = new Location("1600 Amphitheatre Pkwy, Mountain View, CA 94043, USA",
+        "94043", 37.4220041, -122.0833494);
+
+        String responseJson;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("payloads/forecast.json")) {
+            responseJson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        // The WeatherAPI answers the WebClient without any I/O.
+        WebClient webClient = WebClient.builder()
+            .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(responseJson)
+                .build()))
+            .build();
+        WeatherService reactiveService = new WeatherService(appConfiguration, restTemplate, webClient, objectMapper,
+            new SimpleMeterRegistry());
+
+        Weather weather = reactiveService.getWeatherAsync(location).block(Duration.ofSeconds(5));
+
+        assertNotNull(weather);
+        assertEquals(11.2, weather.getCurrent().getTemperatureC());
+        assertEquals(9.2, weather.getForecast().getMinTempC());
+        assertEquals("Partly cloudy", weather.getForecast().getCondition().getText());
+        Mockito.verifyNoInteractions(restTemplate);
+    }
+
     @Test
     void getWeather_missingApiKey() {
         Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
@@ -100,8 +187,8 @@ class WeatherServiceTests {
                                  "message": "API key not provided"
                                }""";
 
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class)))
-               .thenReturn(errorResponse);
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond(errorResponse));
 
         IOException exception = assertThrows(IOException.class, () -> {
             weatherService.getWeather(location);
@@ -119,8 +206,8 @@ class WeatherServiceTests {
                                  "message": "API key is invalid"
                                }""";
 
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class)))
-               .thenReturn(errorResponse);
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond(errorResponse));
 
         IOException exception = assertThrows(IOException.class, () -> {
             weatherService.getWeather(location);
@@ -138,14 +225,15 @@ class WeatherServiceTests {
                                  "message": "API request URL is invalid"
                                }""";
 
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class)))
-               .thenReturn(errorResponse);
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond(errorResponse));
 
         IOException exception = assertThrows(IOException.class, () -> {
             weatherService.getWeather(location);
         });
 
         assertTrue(exception.getMessage().contains("API request URL is invalid"));
+        assertFalse(WeatherService.isUnknownLocation(exception));
     }
 
     @Test
@@ -157,14 +245,15 @@ class WeatherServiceTests {
                                  "message": "No location found matching parameter 'q'"
                                }""";
 
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class)))
-               .thenReturn(errorResponse);
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond(errorResponse));
 
         IOException exception = assertThrows(IOException.class, () -> {
             weatherService.getWeather(location);
         });
 
         assertTrue(exception.getMessage().contains("No location found matching parameter 'q'"));
+        assertTrue(WeatherService.isUnknownLocation(exception));
     }
 
     @Test
@@ -176,8 +265,8 @@ class WeatherServiceTests {
                                  "message": "API key has exceeded calls per month quota"
                                }""";
 
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class)))
-               .thenReturn(errorResponse);
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond(errorResponse));
 
         IOException exception = assertThrows(IOException.class, () -> {
             weatherService.getWeather(location);
@@ -186,6 +275,30 @@ class WeatherServiceTests {
         assertTrue(exception.getMessage().contains("API key has exceeded calls per month quota"));
     }
 
+    @Test
+    void getWeather_apiErrorRecordedWithErrorCode() {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        String errorResponse = """
+                               {
+                                 "code": "2006",
+                                 "message": "API key is invalid"
+                               }""";
+
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond(errorResponse));
+
+        Timer timer = meterRegistry.timer("upstream.requests", "upstream", "forecast", "outcome", "api_error",
+            "error_code", "2006");
+        long before = timer.count();
+        long parsesBefore = meterRegistry.get("upstream.parse").tag("upstream", "forecast").timer().count();
+
+        assertThrows(IOException.class, () -> weatherService.getWeather(location));
+
+        assertEquals(before + 1, timer.count());
+        // Parsing is timed separately from the network call.
+        assertEquals(parsesBefore + 1, meterRegistry.get("upstream.parse").tag("upstream", "forecast").timer().count());
+    }
+
     @Test
     void getWeather_internalServerError() {
         Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
@@ -195,8 +308,8 @@ class WeatherServiceTests {
                                  "message": "Internal application error"
                                }""";
 
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class)))
-               .thenReturn(errorResponse);
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond(errorResponse));
 
         IOException exception = assertThrows(IOException.class, () -> {
             weatherService.getWeather(location);
@@ -214,8 +327,8 @@ class WeatherServiceTests {
                                  "message": "API key not provided"
                                }""";
 
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class)))
-               .thenReturn(errorResponse);
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond(errorResponse));
 
         IOException exception = assertThrows(IOException.class, () -> {
             weatherService.getWeather(location);
@@ -233,8 +346,8 @@ class WeatherServiceTests {
                                  "message": "Parameter 'q' not provided"
                                }""";
 
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class)))
-               .thenReturn(errorResponse);
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond(errorResponse));
 
         IOException exception = assertThrows(IOException.class, () -> {
             weatherService.getWeather(location);
@@ -252,8 +365,8 @@ class WeatherServiceTests {
                                  "message": "Json body passed in bulk request is invalid. Please make sure it is valid json with utf-8 encoding."
                                }""";
 
-        Mockito.when(restTemplate.getForObject(Mockito.anyString(), Mockito.eq(String.class)))
-               .thenReturn(errorResponse);
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(UpstreamStubs.respond(errorResponse));
 
         IOException exception = assertThrows(IOException.class, () -> {
             weatherService.getWeather(location);
@@ -261,4 +374,74 @@ class WeatherServiceTests {
 
         assertTrue(exception.getMessage().contains("Json body passed in bulk request is invalid"));
     }
+
+    @Test
+    void getWeather_concurrentMissesCoalesced() throws Exception {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        String responseJson = """
+                              {
+                                  "current": {"temp_c": 11.2, "condition": {"text": "Sunny"}},
+                                  "forecast": {"forecastday": [{"day": {"mintemp_c": 9.2, "condition": {"text": "Cloudy"}}}]}
+                              }""";
+
+        // Slow upstream so that all callers arrive while the first call is still in flight.
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(invocation -> {
+                   Thread.sleep(500);
+                   return UpstreamStubs.extract(invocation, responseJson);
+               });
+
+        List<Future<Weather>> results = runConcurrently(8, () -> weatherService.getWeather(location));
+
+        Weather first = results.get(0).get();
+        for (Future<Weather> result : results) {
+            assertSame(first, result.get());
+        }
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(1)));
+    }
+
+    @Test
+    void getWeather_concurrentFailurePropagatedAndNotCached() throws Exception {
+        Location location = new Location("1600 Amphitheatre Parkway", "94043", 37.422, -122.084);
+        String errorResponse = """
+                               {
+                                 "code": "9999",
+                                 "message": "Internal application error"
+                               }""";
+
+        Mockito.when(UpstreamStubs.get(restTemplate))
+               .thenAnswer(invocation -> {
+                   Thread.sleep(500);
+                   return UpstreamStubs.extract(invocation, errorResponse);
+               });
+
+        List<Future<Weather>> results = runConcurrently(8, () -> weatherService.getWeather(location));
+
+        for (Future<Weather> result : results) {
+            ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(IOException.class, exception.getCause());
+        }
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(1)));
+
+        // The failure is not cached, so the next call goes upstream again.
+        assertThrows(IOException.class, () -> weatherService.getWeather(location));
+        UpstreamStubs.get(Mockito.verify(restTemplate, Mockito.times(2)));
+    }
+
+    private static List<Future<Weather>> runConcurrently(int threads, Callable<Weather> call)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Weather>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return call.call();
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        return results;
+    }
 }